@@ -0,0 +1,93 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * BenchmarkDatabase Class
+ *
+ * @author radfordd
+ *
+ * BenchmarkDatabase provides the databases used by the benchmarks: a
+ * SyntheticWatershed Spatial.db3 file for each scale, generated once into the
+ * bench.data.dir folder (build/bench-data by default) and reused by later
+ * runs, and in-memory output databases with the crop output tables.
+ */
+final class BenchmarkDatabase {
+    static final String[] CROP_TABLES = {"crop_economic_fields", "crop_economic_farms", "crop_economic_subbasins"};
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     *
+     * @param scale: SyntheticWatershed scale.
+     * @return An open Connection to the Spatial.db3 file of the scale, with
+     *         auto-commit disabled. The lookup indexes of the file are
+     *         created before it is renamed into place, so a trial never
+     *         prepares a file another trial is reading.
+     */
+
+    static synchronized Connection openSpatial(int scale) throws ClassNotFoundException, SQLException, IOException {
+        File db3 = new File(System.getProperty("bench.data.dir", "build/bench-data"), "spatial_x" + scale + ".db3");
+        if(!db3.isFile()) {
+            File tmp = new File(db3.getPath() + ".tmp");
+            tmp.delete();
+            new SyntheticWatershed(scale, SyntheticWatershed.BENCH_SEED, SimulationHorizon.DEFAULT).writeSpatialDatabase(tmp);
+            try(Connection c = connect(tmp)) {
+                SpatialIndexPreparer.prepare(c);
+            }
+            if(!tmp.renameTo(db3)) {
+                throw new IOException("Cannot create " + db3);
+            }
+        }
+        Connection c = connect(db3);
+        // Only compares the fingerprint, unless the file was made by an
+        // earlier version of the benchmarks.
+        SpatialIndexPreparer.prepare(c);
+        return c;
+    }
+
+    private static Connection connect(File db3) throws ClassNotFoundException, SQLException {
+        Class.forName("org.sqlite.JDBC");
+        Connection c = DriverManager.getConnection("jdbc:sqlite:" + db3.getAbsolutePath());
+        c.setAutoCommit(false);
+        return c;
+    }
+
+    /**
+     *
+     * @return An open Connection to an in-memory output database holding the
+     *         crop output tables, with auto-commit disabled.
+     */
+
+    static Connection openOutput() throws ClassNotFoundException, SQLException {
+        Class.forName("org.sqlite.JDBC");
+        Connection c = DriverManager.getConnection("jdbc:sqlite::memory:");
+        c.setAutoCommit(false);
+        try(Statement stmt = c.createStatement()) {
+            for(String tbl : CROP_TABLES) {
+                stmt.executeUpdate("CREATE TABLE " + tbl + "(id int, year int, yield real, revenue real, cost real, net_return real);");
+            }
+        }
+        c.commit();
+        return c;
+    }
+
+    /**
+     * Removes the rows written by the previous invocation.
+     */
+
+    static void clearOutput(Connection c) throws SQLException {
+        try(Statement stmt = c.createStatement()) {
+            for(String tbl : CROP_TABLES) {
+                stmt.executeUpdate("DELETE FROM " + tbl + ";");
+            }
+        }
+        c.commit();
+    }
+}
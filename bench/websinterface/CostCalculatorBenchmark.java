@@ -0,0 +1,124 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CostCalculatorBenchmark Class
+ *
+ * @author radfordd
+ *
+ * CostCalculatorBenchmark measures the small dam and holding pond cost
+ * calculations over the records of the STC DBF tables, repeated to the given
+ * number of dams and ponds. The batch benchmarks compare the BmpCostEngine on
+ * one thread with the fork/join split.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CostCalculatorBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+    private ColumnTable dams;
+    private ColumnTable ponds;
+    private double[] embankment;
+    private double[] lifeTime;
+    private double[][] pondColumns;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        dams = repeat(new DbfReader(new File("STC/Data/Spatial/small_dam.dbf")).readTable("Existing",
+                      new String[]{"ID", "Embankment", "LifeTime"}));
+        ponds = repeat(new DbfReader(new File("STC/Data/Spatial/cattle_yard.dbf")).readTable("Existing",
+                       new String[]{"ID", "HRU", "Cattles", "ClayLiner", "PlasticLn", "WireFence", "Distance", "Trenching", "Pond_Yrs"}));
+        embankment = dams.toDoubleArray(1);
+        lifeTime = dams.toDoubleArray(2);
+        pondColumns = new double[11][];
+        for(int j = 0; j < 7; j++) {
+            pondColumns[j] = ponds.toDoubleArray(j + 2);
+        }
+        for(int j = 7; j < 11; j++) {
+            pondColumns[j] = new double[rows];
+        }
+    }
+
+    private ColumnTable repeat(ColumnTable src) {
+        NameTypePair[] ntp = new NameTypePair[src.getColumnCount()];
+        for(int j = 0; j < ntp.length; j++) {
+            ntp[j] = src.getColumn(j);
+        }
+        ColumnTable t = new ColumnTable(ntp, rows);
+        t.setRowCount(rows);
+        for(int i = 0; i < rows; i++) {
+            for(int j = 0; j < ntp.length; j++) {
+                t.setDouble(i, j, src.getDouble(i % src.getRowCount(), j));
+            }
+        }
+        return t;
+    }
+
+    @Benchmark
+    public double[] smallDamCosts() {
+        return ScenarioBuilder.loadSmallDamEconCosts(dams);
+    }
+
+    @Benchmark
+    public double pondBaseCost() {
+        double sum = 0.0;
+        for(int i = 0; i < rows; i++) {
+            sum += ScenarioBuilder.calculatePondBaseCost(ponds.getDouble(i, 2), ponds.getDouble(i, 3), ponds.getDouble(i, 4),
+                                                         ponds.getDouble(i, 5), ponds.getDouble(i, 6), ponds.getDouble(i, 7));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double pondMaintenanceCost() {
+        double sum = 0.0;
+        for(int i = 0; i < rows; i++) {
+            sum += ScenarioBuilder.calculatePondMaintenanceCost(ponds.getDouble(i, 2), ponds.getDouble(i, 5));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public ColumnTable pondCosts() {
+        return ScenarioBuilder.loadPondCosts(ponds);
+    }
+
+    @Benchmark
+    public double[] smallDamBatchSequential() {
+        return BmpCostEngine.smallDamCosts(embankment, lifeTime, false);
+    }
+
+    @Benchmark
+    public double[] smallDamBatchParallel() {
+        return BmpCostEngine.smallDamCosts(embankment, lifeTime, true);
+    }
+
+    @Benchmark
+    public double[][] pondBatchSequential() {
+        return pondBatch(false);
+    }
+
+    @Benchmark
+    public double[][] pondBatchParallel() {
+        return pondBatch(true);
+    }
+
+    private double[][] pondBatch(boolean parallel) {
+        double[][] p = pondColumns;
+        BmpCostEngine.pondCosts(p[0], p[1], p[2], p[3], p[4], p[5], p[6], p[7], p[8], p[9], p[10], rows, parallel);
+        return p;
+    }
+}
@@ -0,0 +1,53 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CostUncertaintyBenchmark Class
+ *
+ * @author radfordd
+ *
+ * CostUncertaintyBenchmark measures the cost percentiles of the Existing
+ * small dams and holding ponds of the STC DBF tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CostUncertaintyBenchmark {
+    @Param({"1000", "10000"})
+    public int draws;
+    private CostUncertainty mc;
+    private ColumnTable dams;
+    private ColumnTable ponds;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        mc = new CostUncertainty(draws, CostUncertainty.DEFAULT_SEED, CostUncertainty.DEFAULT_SPREAD);
+        dams = new DbfReader(new File("STC/Data/Spatial/small_dam.dbf")).readTable("Existing",
+                new String[]{"ID", "Embankment", "LifeTime"});
+        ponds = new DbfReader(new File("STC/Data/Spatial/cattle_yard.dbf")).readTable("Existing",
+                new String[]{"ID", "HRU", "Cattles", "ClayLiner", "PlasticLn", "WireFence", "Distance", "Trenching", "Pond_Yrs"});
+    }
+
+    @Benchmark
+    public double[][] smallDams() {
+        return mc.smallDamPercentiles(dams.toDoubleArray(1), dams.toDoubleArray(2));
+    }
+
+    @Benchmark
+    public double[][] holdingPonds() {
+        return mc.pondPercentiles(ponds.toDoubleArray(2), ponds.toDoubleArray(3), ponds.toDoubleArray(4), ponds.toDoubleArray(5),
+                                  ponds.toDoubleArray(6), ponds.toDoubleArray(7), ponds.toDoubleArray(8));
+    }
+}
@@ -0,0 +1,95 @@
+package websinterface;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * CropRollupBenchmark Class
+ *
+ * @author radfordd
+ *
+ * CropRollupBenchmark measures the crop stages of a build against a
+ * SyntheticWatershed Spatial.db3 file at 1x, 10x and 100x the STC field
+ * count: copying yield_historic to crop_economic_fields, loading the yield
+ * index, and the farm and subbasin rollups. Output is written to an
+ * in-memory database that is emptied before every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CropRollupBenchmark {
+    @Param({"1", "10", "100"})
+    public int scale;
+
+    private Connection spatial;
+    private Connection output;
+    private Statement in;
+    private TableSchemaCache schema;
+    private CropRollupAggregator yields;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        spatial = BenchmarkDatabase.openSpatial(scale);
+        output = BenchmarkDatabase.openOutput();
+        in = spatial.createStatement();
+        schema = new TableSchemaCache(output);
+        yields = new CropRollupAggregator(in, "yield_historic");
+    }
+
+    @Setup(Level.Invocation)
+    public void clear() throws SQLException {
+        BenchmarkDatabase.clearOutput(output);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        output.close();
+        spatial.close();
+    }
+
+    @Benchmark
+    public void cropEconFields() throws SQLException {
+        ResultSet rs = in.executeQuery("SELECT * FROM yield_historic;");
+        NameTypePair[] ntp = ScenarioBuilder.loadInputNamesAndTypes(rs);
+        try(BatchedTableWriter w = new BatchedTableWriter(output, "crop_economic_fields", schema)) {
+            while(rs.next()) {
+                w.writeRow(rs, ntp, 0, 1);
+            }
+            w.commit();
+        }
+    }
+
+    @Benchmark
+    public CropRollupAggregator loadYields() throws SQLException {
+        return new CropRollupAggregator(in, "yield_historic");
+    }
+
+    @Benchmark
+    public void farmRollup() throws SQLException {
+        try(BatchedTableWriter w = new BatchedTableWriter(output, "crop_economic_farms", schema)) {
+            yields.writeRollup(in, "field_farm", "farm", w);
+            w.commit();
+        }
+    }
+
+    @Benchmark
+    public void subbasinRollup() throws SQLException {
+        try(BatchedTableWriter w = new BatchedTableWriter(output, "crop_economic_subbasins", schema)) {
+            yields.writeRollup(in, "field_subbasin", "subbasin", w);
+            w.commit();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * DbfReaderBenchmark Class
+ *
+ * @author radfordd
+ *
+ * DbfReaderBenchmark measures loading the Existing records of the shipped STC
+ * DBF tables, as loadDbfTableData does: mapping and parsing the file, and
+ * reading the requested columns into a ColumnTable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DbfReaderBenchmark {
+    @Param({"small_dam", "cattle_yard", "grazing"})
+    public String table;
+
+    private File dbf;
+    private String[] columns;
+
+    @Setup(Level.Trial)
+    public void locate() {
+        dbf = new File("STC/Data/Spatial/" + table + ".dbf");
+        switch(table) {
+            case "small_dam":
+                columns = new String[]{"ID", "Embankment", "LifeTime"};
+                break;
+            case "cattle_yard":
+                columns = new String[]{"ID", "HRU", "Cattles", "ClayLiner", "PlasticLn", "WireFence", "Distance", "Trenching", "Pond_Yrs"};
+                break;
+            default:
+                columns = new String[]{"ID", "Grazing_Ha", "UnitCost"};
+                break;
+        }
+    }
+
+    @Benchmark
+    public ColumnTable loadDbfTableData() throws IOException {
+        return new DbfReader(dbf).readTable("Existing", columns);
+    }
+}
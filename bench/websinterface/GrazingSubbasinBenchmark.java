@@ -0,0 +1,63 @@
+package websinterface;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * GrazingSubbasinBenchmark Class
+ *
+ * @author radfordd
+ *
+ * GrazingSubbasinBenchmark measures the grazing subbasin aggregation against
+ * a SyntheticWatershed Spatial.db3 file, with one grazing record for every
+ * grazing area of the watershed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GrazingSubbasinBenchmark {
+    @Param({"1", "10", "100"})
+    public int scale;
+
+    private Connection spatial;
+    private Statement inA;
+    private Statement inB;
+    private ColumnTable grazing;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        spatial = BenchmarkDatabase.openSpatial(scale);
+        inA = spatial.createStatement();
+        inB = spatial.createStatement();
+        int n = SyntheticWatershed.GRAZING * scale;
+        grazing = new ColumnTable(new String[]{"ID", "Grazing_Ha", "UnitCost"}, new int[]{1, 0, 0}, n);
+        grazing.setRowCount(n);
+        for(int i = 0; i < n; i++) {
+            grazing.setInt(i, 0, i + 1);
+            grazing.setDouble(i, 1, 1.0 + i % 7);
+            grazing.setDouble(i, 2, 50.0 + i % 13);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        spatial.close();
+    }
+
+    @Benchmark
+    public GrazingSubbasinAggregator aggregate() throws SQLException {
+        return new GrazingSubbasinAggregator(grazing, inA, inB, "subbasin_grazing", "grazing_area");
+    }
+}
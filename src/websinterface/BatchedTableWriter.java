@@ -0,0 +1,232 @@
+package websinterface;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * BatchedTableWriter Class
+ *
+ * @author radfordd
+ *
+ * BatchedTableWriter holds a single PreparedStatement for one output table.
+ * Values are bound as typed parameters, rows are queued with addBatch and sent
+ * to SQLite with executeBatch once the batch size is reached. The table is
+ * committed once, by commit(), which the caller runs as the last statement of
+ * the block writing the table. Closing a writer that was not committed rolls
+ * the table back, so a table whose writing stopped with an exception, from
+ * the writer or from the code reading its rows, is never left half written.
+ * The batch size can be adjusted with the websinterface.batchSize system
+ * property.
+ * 
+ * Before each batch is sent and before the table is committed, the writer
+ * checks whether its thread has been interrupted or its CancelCheck reports
+ * the build as cancelled. A cancelled build stops with a CancellationException.
+ * 
+ * A RowListener can be told the number of rows written after each batch and
+ * once more, with the final count, after the last batch is sent by commit().
+ */
+class BatchedTableWriter implements AutoCloseable {
+
+    /**
+     * Told the number of rows written to the table after each batch, the last
+     * time with the number of rows in the table.
+     */
+
+    interface RowListener {
+        void rowsWritten(String tbl, long rows);
+    }
+
+    /**
+     * Tells the writer whether the build it writes for has been cancelled.
+     */
+
+    interface CancelCheck {
+        boolean isCancelled();
+    }
+
+    protected static final int DEFAULT_BATCH_SIZE = Integer.getInteger("websinterface.batchSize", 1000);
+    private final Connection c;
+    private final PreparedStatement ps;
+    private final String tbl;
+    private final int batchSize;
+    private int pending;
+    private int rows;
+    private RowListener rowListener;
+    private CancelCheck cancelCheck;
+    private boolean committed;
+
+    /**
+     *
+     * @param c: Connection to the Output SQL Database.
+     * @param tbl: String containing the name of the Output SQL Table.
+     * @param columns: Column names of the Output SQL Table, in insert order.
+     * @param batchSize: Number of rows queued before the batch is executed.
+     * @throws SQLException: Error preparing the INSERT statement.
+     */
+
+    public BatchedTableWriter(Connection c, String tbl, String[] columns, int batchSize) throws SQLException {
+        String names = "", params = "";
+        for(int i = 0; i < columns.length; i++) {
+            if(i > 0) {
+                names += ", ";
+                params += ", ";
+            }
+            names += columns[i];
+            params += "?";
+        }
+        this.c = c;
+        this.tbl = tbl;
+        this.batchSize = batchSize < 1 ? 1 : batchSize;
+        ps = c.prepareStatement("INSERT INTO " + tbl + "(" + names + ") VALUES(" + params + ");");
+    }
+
+    public BatchedTableWriter(Connection c, String tbl, String[] columns) throws SQLException {
+        this(c, tbl, columns, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     *
+     * @param c: Connection to the Output SQL Database.
+     * @param tbl: String containing the name of the Output SQL Table.
+     * @param schema: TableSchemaCache of the Output SQL Database, used to
+     *                look up the column names of tbl.
+     */
+
+    public BatchedTableWriter(Connection c, String tbl, TableSchemaCache schema) throws SQLException {
+        this(c, tbl, schema.getColumnNames(tbl), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     *
+     * @param col: Parameter index, starting at 1.
+     * @param v: Integer value for the column.
+     */
+
+    public void setInt(int col, int v) throws SQLException {
+        ps.setInt(col, v);
+    }
+
+    /**
+     *
+     * @param col: Parameter index, starting at 1.
+     * @param v: Double value for the column.
+     */
+
+    public void setDouble(int col, double v) throws SQLException {
+        ps.setDouble(col, v);
+    }
+
+    /**
+     * Binds the current row of a ResultSet from column n onwards, starting at
+     * parameter p, and queues it.
+     *
+     * @param iRs: Input ResultSet positioned on the row to be copied.
+     * @param ntp: The NameTypePair array from loadInputNamesAndTypes.
+     * @param n: First column of ntp to copy.
+     * @param p: First parameter index to bind.
+     */
+
+    public void writeRow(ResultSet iRs, NameTypePair[] ntp, int n, int p) throws SQLException {
+        for(int i = n; i < ntp.length; i++, p++) {
+            if(ntp[i].getPairType() == 1) {
+                ps.setInt(p, iRs.getInt(i + 1));
+            }
+            else {
+                ps.setDouble(p, iRs.getDouble(i + 1));
+            }
+        }
+        addRow();
+    }
+
+    /**
+     * Queues the currently bound parameters as a row and executes the batch
+     * once it is full.
+     */
+
+    public void addRow() throws SQLException {
+        ps.addBatch();
+        rows++;
+        if(++pending >= batchSize) {
+            checkCancelled();
+            ps.executeBatch();
+            pending = 0;
+            if(rowListener != null) {
+                rowListener.rowsWritten(tbl, rows);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param l: RowListener told the number of rows written, or null.
+     */
+
+    public void setRowListener(RowListener l) {
+        rowListener = l;
+    }
+
+    /**
+     *
+     * @param check: CancelCheck of the build, or null to check only for an
+     *               interrupt of the thread.
+     */
+
+    public void setCancelCheck(CancelCheck check) {
+        cancelCheck = check;
+    }
+
+    private boolean isCancelled() {
+        return Thread.currentThread().isInterrupted() || (cancelCheck != null && cancelCheck.isCancelled());
+    }
+
+    /**
+     *
+     * @throws CancellationException: The build has been cancelled.
+     */
+
+    private void checkCancelled() {
+        if(isCancelled()) {
+            throw new CancellationException("Writing " + tbl + " cancelled");
+        }
+    }
+
+    /**
+     * Executes any queued rows and commits the table.
+     *
+     * @throws CancellationException: The build has been cancelled. The table
+     *                                is rolled back when the writer is
+     *                                closed.
+     */
+
+    public void commit() throws SQLException {
+        checkCancelled();
+        if(pending > 0) {
+            ps.executeBatch();
+            pending = 0;
+            if(rowListener != null) {
+                rowListener.rowsWritten(tbl, rows);
+            }
+        }
+        c.commit();
+        committed = true;
+    }
+
+    /**
+     * Releases the statement, rolling the table back unless commit() has
+     * completed.
+     */
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if(!committed) {
+                c.rollback();
+            }
+        } finally {
+            ps.close();
+        }
+    }
+}
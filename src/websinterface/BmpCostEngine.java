@@ -0,0 +1,224 @@
+package websinterface;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BmpCostEngine Class
+ *
+ * @author radfordd
+ *
+ * BmpCostEngine calculates the costs of small dams and holding ponds for whole
+ * columns of BMP records at once. The inputs are primitive column arrays, such
+ * as those of a ColumnTable, and the costs are written into output arrays in a
+ * plain counted loop over the records, which the JIT compiles without bounds
+ * checks or calls. Large batches can be split across the cores with fork/join.
+ *
+ * The results are identical, bit for bit, to the original scalar formulas.
+ * Math.pow(x, 2.0) is written as x * x, which Math.pow returns exactly, while
+ * the cube of the small dam formula is left to Math.pow, as x * x * x rounds
+ * differently.
+ */
+class BmpCostEngine {
+    // Batches smaller than this are always calculated on the calling thread.
+    static final int SPLIT_THRESHOLD = 1 << 14;
+    private static ForkJoinPool pool;
+
+    private BmpCostEngine() {
+    }
+
+    /**
+     *
+     * @param m: Embankment Value.
+     * @param l: LifeTime Value.
+     * @return Calculated Cost of Small Dam.
+     */
+
+    static double smallDamCost(double m, double l) {
+        return (4.87e-7 * Math.pow(m, 3.0) - 4.24e-3 * (m * m) + 1.28e1 * m + 6.71e3) / l;
+    }
+
+    /**
+     *
+     * @param catl: Cattle value.
+     * @param clay: Clay_Liner value.
+     * @param plst: Plastic_Liner value.
+     * @param wire: Wire_Fence value.
+     * @param dist: Distance value.
+     * @param trch: Trenching value.
+     * @return Calculated Base Cost of Holding Pond, the midpoint of the
+     *         minimum and maximum cost.
+     */
+
+    static double pondBaseCost(double catl, double clay, double plst, double wire, double dist, double trch) {
+        double min = pondBaseCostMin(catl, clay, plst, wire, dist, trch);
+        double max = pondBaseCostMax(catl, clay, plst, wire, dist, trch);
+        return min / 2.0 + max / 2.0;
+    }
+
+    static double pondBaseCostMin(double catl, double clay, double plst, double wire, double dist, double trch) {
+        double sqrtC = Math.sqrt(catl);
+        double eqn1 = 1.512 * catl + 9.332 * sqrtC;
+        double eqn2 = 2.52 * catl + trch * 6.54 * sqrtC + 0.844 * dist + clay * eqn1;
+        double eqn3 = (0.5 * 9.5 + 7.47) * eqn1;
+        double min = 1.38e-10 * (eqn2 * eqn2) - 5.027e-5 * eqn2 + 6.736 + clay * eqn3
+        + plst / 0.7 * eqn3 + wire * (189.0 + Math.sqrt(556.0 * catl)) + 10000.0;
+        return min * 1.1483;
+    }
+
+    static double pondBaseCostMax(double catl, double clay, double plst, double wire, double dist, double trch) {
+        double sqrtC = Math.sqrt(catl);
+        double eqn1 = 2.232 * catl + 11.338 * sqrtC;
+        double eqn2 = 3.72 * catl + trch * 7.94 * sqrtC + 0.844 * dist + clay * eqn1;
+        double eqn3 = (0.5 * 9.5 + 7.47) * eqn1;
+        double max = 1.38e-10 * (eqn2 * eqn2) - 5.027e-5 * eqn2 + 6.736 + clay * eqn3
+        + plst / 0.7 * eqn3 + wire * (189.0 + Math.sqrt(820.0 * catl)) + 10000.0;
+        return max * 1.1483;
+    }
+
+    /**
+     *
+     * @param catl: Cattle value.
+     * @param wire: Wire_Fence value.
+     * @return Calculated Maintenance Cost of Holding Pond, the midpoint of
+     *         the minimum and maximum cost.
+     */
+
+    static double pondMaintenanceCost(double catl, double wire) {
+        return pondMaintenanceCostMin(catl, wire) / 2.0 + pondMaintenanceCostMax(catl, wire) / 2.0;
+    }
+
+    static double pondMaintenanceCostMin(double catl, double wire) {
+        double s = Math.sqrt(1.68 * catl) - 6;
+        double eqn = 0.03048 * (s * s);
+        return 1.38e-10 * (eqn * eqn) - 5.027e-5 * eqn + 6.737
+        + wire * (24.48 + 3.05 * Math.sqrt(catl)) + 1.25 * catl;
+    }
+
+    static double pondMaintenanceCostMax(double catl, double wire) {
+        double s = Math.sqrt(2.48 * catl) - 6;
+        double eqn = 0.03048 * (s * s);
+        return 1.38e-10 * (eqn * eqn) - 5.027e-5 * eqn + 6.737
+        + wire * (24.48 + 3.71 * Math.sqrt(catl)) + 1.85 * catl;
+    }
+
+    /**
+     *
+     * @param embankment: Embankment of each dam.
+     * @param lifeTime: LifeTime of each dam.
+     * @param parallel: True to split a large batch across the cores.
+     * @return The yearly cost of each dam.
+     */
+
+    static double[] smallDamCosts(final double[] embankment, final double[] lifeTime, boolean parallel) {
+        final double[] cost = new double[embankment.length];
+        run(new Kernel() {
+            @Override
+            void compute(int from, int to) {
+                for(int i = from; i < to; i++) {
+                    cost[i] = smallDamCost(embankment[i], lifeTime[i]);
+                }
+            }
+        }, cost.length, parallel ? SPLIT_THRESHOLD : cost.length);
+        return cost;
+    }
+
+    /**
+     * Calculates the costs of n holding ponds. Each array holds at least n
+     * entries, one for each pond.
+     *
+     * @param catl: Cattles of each pond.
+     * @param clay: ClayLiner of each pond.
+     * @param plst: PlasticLn of each pond.
+     * @param wire: WireFence of each pond.
+     * @param dist: Distance of each pond.
+     * @param trch: Trenching of each pond.
+     * @param years: Pond_Yrs of each pond.
+     * @param base: Output base cost.
+     * @param annual: Output annual cost, the base cost over Pond_Yrs.
+     * @param maintenance: Output maintenance cost.
+     * @param total: Output total yearly cost, annual plus maintenance.
+     * @param n: Number of ponds.
+     * @param parallel: True to split a large batch across the cores.
+     */
+
+    static void pondCosts(final double[] catl, final double[] clay, final double[] plst, final double[] wire,
+                          final double[] dist, final double[] trch, final double[] years, final double[] base,
+                          final double[] annual, final double[] maintenance, final double[] total, int n, boolean parallel) {
+        run(new Kernel() {
+            @Override
+            void compute(int from, int to) {
+                for(int i = from; i < to; i++) {
+                    double b = pondBaseCost(catl[i], clay[i], plst[i], wire[i], dist[i], trch[i]);
+                    double a = b / years[i];
+                    double m = pondMaintenanceCost(catl[i], wire[i]);
+                    base[i] = b;
+                    annual[i] = a;
+                    maintenance[i] = m;
+                    total[i] = a + m;
+                }
+            }
+        }, n, parallel ? SPLIT_THRESHOLD : n);
+    }
+
+    /**
+     * Runs a Kernel over n records, split into tasks of at least grain
+     * records across the cores.
+     *
+     * @param k: Kernel to run.
+     * @param n: Number of records.
+     * @param grain: Smallest number of records worth a task of its own.
+     *               A grain of n or more runs on the calling thread.
+     */
+
+    static void run(Kernel k, int n, int grain) {
+        grain = Math.max(grain, 1);
+        if(n < 2 * grain) {
+            k.compute(0, n);
+        }
+        else {
+            pool().invoke(new Split(k, 0, n, grain));
+        }
+    }
+
+    private static synchronized ForkJoinPool pool() {
+        if(pool == null) {
+            pool = new ForkJoinPool();
+        }
+        return pool;
+    }
+
+    /**
+     * A loop over a range of records.
+     */
+
+    abstract static class Kernel {
+        abstract void compute(int from, int to);
+    }
+
+    private static class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Kernel k;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        Split(Kernel k, int from, int to, int grain) {
+            this.k = k;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from < 2 * grain) {
+                k.compute(from, to);
+            }
+            else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Split(k, from, mid, grain), new Split(k, mid, to, grain));
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package websinterface;
+
+/**
+ * BuildProgressListener Interface
+ *
+ * @author radfordd
+ *
+ * BuildProgressListener receives the ProgressEvents of scenario builds. Events
+ * are delivered on the thread of the build that raised them, so a listener
+ * updating Swing components must pass the update to the Event Dispatch Thread,
+ * and a listener shared by builds running at the same time must be thread
+ * safe. Row events can arrive once per batch of rows written; wrap a slow
+ * listener in a CoalescingProgressListener to limit their rate.
+ */
+interface BuildProgressListener {
+    void progress(ProgressEvent e);
+}
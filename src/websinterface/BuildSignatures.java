@@ -0,0 +1,121 @@
+package websinterface;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BuildSignatures Class
+ *
+ * @author radfordd
+ *
+ * BuildSignatures tracks the inputs each output table of a scenario database
+ * was built from, in the build_inputs table of that database. A signature is
+ * a String made from the modification time and size of the input files and
+ * any other value the table depends on, such as the simulation horizon. A
+ * table whose recorded signature matches the signature of its current inputs
+ * is up to date and does not need to be rebuilt. A table without a recorded
+ * signature, such as a table of a database written before the signatures were
+ * kept, is always stale.
+ */
+class BuildSignatures {
+    static final String TABLE = "build_inputs";
+    // Changed whenever the way the output tables are computed changes, so
+    // that every table is rebuilt.
+    private static final String VERSION = "1";
+    private final Connection c;
+    private final Map<String, String> recorded = new HashMap<>();
+
+    /**
+     *
+     * @param c: Connection to the Output SQL Database.
+     * @throws SQLException: Error creating or reading the build_inputs table.
+     */
+
+    public BuildSignatures(Connection c) throws SQLException {
+        this.c = c;
+        try(Statement stmt = c.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + TABLE + "(tbl text PRIMARY KEY, signature text);");
+            ResultSet rs = stmt.executeQuery("SELECT tbl, signature FROM " + TABLE + ";");
+            while(rs.next()) {
+                recorded.put(rs.getString(1), rs.getString(2));
+            }
+        }
+    }
+
+    /**
+     *
+     * @param parts: Inputs of a table. A File contributes its name,
+     *               modification time and size, any other value its String
+     *               form.
+     * @return The signature of the inputs.
+     */
+
+    public static String of(Object... parts) {
+        StringBuilder sb = new StringBuilder(VERSION);
+        for(Object p : parts) {
+            sb.append('|');
+            if(p instanceof File) {
+                File f = (File) p;
+                sb.append(f.getName()).append(':').append(f.lastModified()).append(':').append(f.length());
+            }
+            else {
+                sb.append(p);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     *
+     * @param tbl: Output table name.
+     * @param signature: Signature of the current inputs of the table.
+     * @return True if the table was built from different inputs.
+     */
+
+    public boolean isStale(String tbl, String signature) {
+        return !signature.equals(recorded.get(tbl));
+    }
+
+    /**
+     * Removes all rows of a stale table and its recorded signature, so that a
+     * build that fails part way leaves the table stale.
+     *
+     * @param tbl: Output table name.
+     * @throws SQLException: Error deleting the rows.
+     */
+
+    public void clear(String tbl) throws SQLException {
+        try(Statement stmt = c.createStatement()) {
+            stmt.executeUpdate("DELETE FROM " + tbl + ";");
+        }
+        try(PreparedStatement ps = c.prepareStatement("DELETE FROM " + TABLE + " WHERE tbl = ?;")) {
+            ps.setString(1, tbl);
+            ps.executeUpdate();
+        }
+        recorded.remove(tbl);
+    }
+
+    /**
+     * Records the signature of a table that has been rebuilt, and commits.
+     *
+     * @param tbl: Output table name.
+     * @param signature: Signature of the inputs the table was built from.
+     * @throws SQLException: Error writing the build_inputs table.
+     */
+
+    public void record(String tbl, String signature) throws SQLException {
+        try(PreparedStatement ps = c.prepareStatement("INSERT OR REPLACE INTO " + TABLE + " VALUES (?, ?);")) {
+            ps.setString(1, tbl);
+            ps.setString(2, signature);
+            ps.executeUpdate();
+        }
+        c.commit();
+        recorded.put(tbl, signature);
+    }
+}
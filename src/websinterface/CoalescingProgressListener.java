@@ -0,0 +1,43 @@
+package websinterface;
+
+/**
+ * CoalescingProgressListener Class
+ *
+ * @author radfordd
+ *
+ * CoalescingProgressListener limits the rate at which row events reach
+ * another BuildProgressListener, such as one updating the Swing progress bar.
+ * Stage events are always passed on. A row event is passed on only if no
+ * event has been passed on within the minimum interval, otherwise it is
+ * dropped, since the next event reports a later state of the build.
+ */
+class CoalescingProgressListener implements BuildProgressListener {
+    private final BuildProgressListener delegate;
+    private final long minIntervalNanos;
+    private long last;
+    private boolean started;
+
+    /**
+     *
+     * @param delegate: BuildProgressListener receiving the events.
+     * @param minIntervalMillis: Minimum time between two row events passed on.
+     */
+
+    public CoalescingProgressListener(BuildProgressListener delegate, long minIntervalMillis) {
+        this.delegate = delegate;
+        this.minIntervalNanos = minIntervalMillis * 1000000L;
+    }
+
+    @Override
+    public void progress(ProgressEvent e) {
+        synchronized(this) {
+            long now = System.nanoTime();
+            if(!e.isStageCompleted() && started && now - last < minIntervalNanos) {
+                return;
+            }
+            started = true;
+            last = now;
+        }
+        delegate.progress(e);
+    }
+}
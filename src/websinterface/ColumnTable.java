@@ -0,0 +1,227 @@
+package websinterface;
+
+import java.sql.SQLException;
+
+/**
+ * ColumnTable Class
+ *
+ * @author radfordd
+ *
+ * ColumnTable holds table data by column, using one int[] for every Integer
+ * column and one double[] for every Double column. The schema is an Array of
+ * NameTypePairs, where a type of 1 represents an Integer column and a type of
+ * 0 represents a Double column, as with ValueTypePair. Rows are read and
+ * written through the typed getters and setters, or through the column arrays
+ * directly.
+ */
+class ColumnTable {
+    private final NameTypePair[] schema;
+    private final int[][] ints;
+    private final double[][] doubles;
+    private int rows;
+    private int capacity;
+
+    /**
+     *
+     * @param schema: NameTypePair Array describing the columns of the table.
+     * @param capacity: Number of rows allocated up front. The table grows
+     *                  when more rows are added.
+     */
+
+    public ColumnTable(NameTypePair[] schema, int capacity) {
+        this.schema = schema.clone();
+        this.capacity = Math.max(capacity, 1);
+        ints = new int[schema.length][];
+        doubles = new double[schema.length][];
+        for(int i = 0; i < schema.length; i++) {
+            if(schema[i].getPairType() == 1) {
+                ints[i] = new int[this.capacity];
+            }
+            else {
+                doubles[i] = new double[this.capacity];
+            }
+        }
+    }
+
+    /**
+     *
+     * @param names: Column names.
+     * @param types: Column types, 1 for Integer and 0 for Double.
+     * @param capacity: Number of rows allocated up front.
+     */
+
+    public ColumnTable(String[] names, int[] types, int capacity) {
+        this(schemaOf(names, types), capacity);
+    }
+
+    private static NameTypePair[] schemaOf(String[] names, int[] types) {
+        NameTypePair[] ntp = new NameTypePair[names.length];
+        for(int i = 0; i < names.length; i++) {
+            ntp[i] = new NameTypePair(names[i], types[i]);
+        }
+        return ntp;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return schema.length;
+    }
+
+    public NameTypePair getColumn(int col) {
+        return schema[col];
+    }
+
+    /**
+     * Appends an empty row.
+     *
+     * @return The index of the new row.
+     */
+
+    public int addRow() {
+        if(rows == capacity) {
+            grow(capacity * 2);
+        }
+        return rows++;
+    }
+
+    /**
+     * Sets the number of rows, growing the table if needed. New rows are 0.
+     *
+     * @param n: Number of rows.
+     */
+
+    public void setRowCount(int n) {
+        if(n > capacity) {
+            grow(n);
+        }
+        rows = n;
+    }
+
+    private void grow(int n) {
+        for(int i = 0; i < schema.length; i++) {
+            if(ints[i] != null) {
+                int[] temp = new int[n];
+                System.arraycopy(ints[i], 0, temp, 0, rows);
+                ints[i] = temp;
+            }
+            else {
+                double[] temp = new double[n];
+                System.arraycopy(doubles[i], 0, temp, 0, rows);
+                doubles[i] = temp;
+            }
+        }
+        capacity = n;
+    }
+
+    public int getInt(int row, int col) {
+        return ints[col] != null ? ints[col][row] : (int) doubles[col][row];
+    }
+
+    public double getDouble(int row, int col) {
+        return ints[col] != null ? ints[col][row] : doubles[col][row];
+    }
+
+    public void setInt(int row, int col, int v) {
+        if(ints[col] != null) {
+            ints[col][row] = v;
+        }
+        else {
+            doubles[col][row] = v;
+        }
+    }
+
+    public void setDouble(int row, int col, double v) {
+        if(ints[col] != null) {
+            ints[col][row] = (int) v;
+        }
+        else {
+            doubles[col][row] = v;
+        }
+    }
+
+    /**
+     *
+     * @param col: Index of an Integer column.
+     * @return The backing array of the column. Only the first getRowCount()
+     *         entries are in use.
+     */
+
+    public int[] intColumn(int col) {
+        return ints[col];
+    }
+
+    /**
+     *
+     * @param col: Index of a Double column.
+     * @return The backing array of the column. Only the first getRowCount()
+     *         entries are in use.
+     */
+
+    public double[] doubleColumn(int col) {
+        return doubles[col];
+    }
+
+    /**
+     * Copies a column into a Double array, converting Integer values.
+     *
+     * @param col: Index of the column.
+     * @return A new Array of length getRowCount().
+     */
+
+    public double[] toDoubleArray(int col) {
+        double[] vals = new double[rows];
+        if(ints[col] != null) {
+            for(int i = 0; i < rows; i++) {
+                vals[i] = ints[col][i];
+            }
+        }
+        else {
+            System.arraycopy(doubles[col], 0, vals, 0, rows);
+        }
+        return vals;
+    }
+
+    /**
+     * Copies a column into an Integer array, truncating Double values.
+     *
+     * @param col: Index of the column.
+     * @return A new Array of length getRowCount().
+     */
+
+    public int[] toIntArray(int col) {
+        int[] vals = new int[rows];
+        if(ints[col] != null) {
+            System.arraycopy(ints[col], 0, vals, 0, rows);
+        }
+        else {
+            for(int i = 0; i < rows; i++) {
+                vals[i] = (int) doubles[col][i];
+            }
+        }
+        return vals;
+    }
+
+    /**
+     * Writes every row of the table, binding each column to the parameter of
+     * the same position.
+     *
+     * @param w: BatchedTableWriter for the output Table.
+     */
+
+    public void write(BatchedTableWriter w) throws SQLException {
+        for(int r = 0; r < rows; r++) {
+            for(int c = 0; c < schema.length; c++) {
+                if(ints[c] != null) {
+                    w.setInt(c + 1, ints[c][r]);
+                }
+                else {
+                    w.setDouble(c + 1, doubles[c][r]);
+                }
+            }
+            w.addRow();
+        }
+    }
+}
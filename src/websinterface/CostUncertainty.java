@@ -0,0 +1,271 @@
+package websinterface;
+
+/**
+ * CostUncertainty Class
+ *
+ * @author radfordd
+ *
+ * CostUncertainty samples the costs of small dams and holding ponds to give
+ * the spread of each cost as well as its expected value. The base and
+ * maintenance cost of a holding pond are drawn uniformly between the minimum
+ * and maximum cost that BmpCostEngine takes the midpoint of. Each coefficient
+ * of the small dam polynomial is drawn uniformly within a relative spread of
+ * its value. Each BMP gets its own number of draws, and the P5, P50 and P95 of
+ * those draws are kept.
+ *
+ * The draws of a BMP come from a xorshift generator seeded from the seed of
+ * the CostUncertainty and the position of the BMP, so the results do not
+ * depend on how the BMPs are split across the cores. BMPs are sampled in
+ * parallel, and each task reuses one buffer for the draws of all its BMPs, so
+ * the sampling loop allocates nothing per draw or per BMP.
+ */
+class CostUncertainty {
+    static final double[] PERCENTILES = {0.05, 0.50, 0.95};
+    static final int DEFAULT_DRAWS = 10000;
+    static final long DEFAULT_SEED = 1L;
+    static final double DEFAULT_SPREAD = 0.10;
+    private final int draws;
+    private final long seed;
+    private final double spread;
+
+    /**
+     *
+     * @param draws: Number of draws for each BMP.
+     * @param seed: Seed of the draws.
+     * @param spread: Relative spread of the small dam coefficients, from 0
+     *                to less than 1. A spread of 0.1 draws each coefficient
+     *                within 10% of its value.
+     */
+
+    public CostUncertainty(int draws, long seed, double spread) {
+        if(draws < 1) {
+            throw new IllegalArgumentException("Draws must be at least 1: " + draws);
+        }
+        if(!(spread >= 0.0 && spread < 1.0)) {
+            throw new IllegalArgumentException("Spread must be from 0 to less than 1: " + spread);
+        }
+        this.draws = draws;
+        this.seed = seed;
+        this.spread = spread;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public double getSpread() {
+        return spread;
+    }
+
+    /**
+     *
+     * @param embankment: Embankment of each dam.
+     * @param lifeTime: LifeTime of each dam.
+     * @return The P5, P50 and P95 of the yearly cost of each dam, as one Array
+     *         for each percentile.
+     */
+
+    public double[][] smallDamPercentiles(final double[] embankment, final double[] lifeTime) {
+        final int n = embankment.length;
+        final double[][] out = new double[PERCENTILES.length][n];
+        BmpCostEngine.run(new BmpCostEngine.Kernel() {
+            @Override
+            void compute(int from, int to) {
+                double[] buf = new double[draws];
+                double lo = 1.0 - spread, range = 2.0 * spread;
+                for(int i = from; i < to; i++) {
+                    double m = embankment[i];
+                    double m3 = Math.pow(m, 3.0);
+                    double m2 = m * m;
+                    double l = lifeTime[i];
+                    long x = stream(i, 0);
+                    for(int d = 0; d < draws; d++) {
+                        x = next(x);
+                        double c3 = 4.87e-7 * (lo + range * uniform(x));
+                        x = next(x);
+                        double c2 = 4.24e-3 * (lo + range * uniform(x));
+                        x = next(x);
+                        double c1 = 1.28e1 * (lo + range * uniform(x));
+                        x = next(x);
+                        double c0 = 6.71e3 * (lo + range * uniform(x));
+                        buf[d] = (c3 * m3 - c2 * m2 + c1 * m + c0) / l;
+                    }
+                    percentiles(buf, out, i);
+                }
+            }
+        }, n, grain());
+        return out;
+    }
+
+    /**
+     * Each Array holds one entry for each pond.
+     *
+     * @param catl: Cattles of each pond.
+     * @param clay: ClayLiner of each pond.
+     * @param plst: PlasticLn of each pond.
+     * @param wire: WireFence of each pond.
+     * @param dist: Distance of each pond.
+     * @param trch: Trenching of each pond.
+     * @param years: Pond_Yrs of each pond.
+     * @return The P5, P50 and P95 of the total yearly cost of each pond, the
+     *         base cost over Pond_Yrs plus the maintenance cost, as one Array
+     *         for each percentile.
+     */
+
+    public double[][] pondPercentiles(final double[] catl, final double[] clay, final double[] plst, final double[] wire,
+                                      final double[] dist, final double[] trch, final double[] years) {
+        final int n = catl.length;
+        final double[][] out = new double[PERCENTILES.length][n];
+        BmpCostEngine.run(new BmpCostEngine.Kernel() {
+            @Override
+            void compute(int from, int to) {
+                double[] buf = new double[draws];
+                for(int i = from; i < to; i++) {
+                    double bMin = BmpCostEngine.pondBaseCostMin(catl[i], clay[i], plst[i], wire[i], dist[i], trch[i]);
+                    double bRange = BmpCostEngine.pondBaseCostMax(catl[i], clay[i], plst[i], wire[i], dist[i], trch[i]) - bMin;
+                    double mMin = BmpCostEngine.pondMaintenanceCostMin(catl[i], wire[i]);
+                    double mRange = BmpCostEngine.pondMaintenanceCostMax(catl[i], wire[i]) - mMin;
+                    double y = years[i];
+                    long x = stream(i, 1);
+                    for(int d = 0; d < draws; d++) {
+                        x = next(x);
+                        double base = bMin + bRange * uniform(x);
+                        x = next(x);
+                        buf[d] = base / y + mMin + mRange * uniform(x);
+                    }
+                    percentiles(buf, out, i);
+                }
+            }
+        }, n, grain());
+        return out;
+    }
+
+    /**
+     *
+     * @return The number of BMPs sampled by one task, about
+     *         BmpCostEngine.SPLIT_THRESHOLD draws.
+     */
+
+    private int grain() {
+        return Math.max(1, BmpCostEngine.SPLIT_THRESHOLD / draws);
+    }
+
+    /**
+     *
+     * @param bmp: Position of the BMP.
+     * @param kind: 0 for small dams and 1 for holding ponds.
+     * @return The starting state of the generator of the BMP, never 0.
+     */
+
+    private long stream(int bmp, int kind) {
+        // SplitMix64 finaliser, spreading nearby seeds over the whole state.
+        long z = seed + (2L * bmp + kind + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return z == 0 ? 0x9E3779B97F4A7C15L : z;
+    }
+
+    private static long next(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+
+    /**
+     *
+     * @return A value from 0 to less than 1 made from the top 53 bits of x.
+     */
+
+    private static double uniform(long x) {
+        return (x >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Stores the percentiles of the draws of one BMP. The draws are reordered.
+     *
+     * @param buf: Draws of the BMP.
+     * @param out: Output Array of each percentile.
+     * @param i: Position of the BMP.
+     */
+
+    private static void percentiles(double[] buf, double[][] out, int i) {
+        int lo = 0;
+        for(int p = 0; p < PERCENTILES.length; p++) {
+            // Nearest rank; the percentiles are ascending, so each selection
+            // only searches above the previous one.
+            int k = Math.min(buf.length - 1, Math.max(0, (int) Math.ceil(PERCENTILES[p] * buf.length) - 1));
+            select(buf, lo, buf.length - 1, k);
+            out[p][i] = buf[k];
+            lo = k;
+        }
+    }
+
+    /**
+     * Moves the k-th smallest value of a[lo..hi] to a[k], with smaller
+     * values before it and larger values after it. This is the Floyd-Rivest
+     * selection: a large range is first narrowed to a small sample around
+     * the expected position of k, so most values are compared only once.
+     */
+
+    static void select(double[] a, int lo, int hi, int k) {
+        while(hi > lo) {
+            if(hi - lo > 600) {
+                double n = hi - lo + 1;
+                double i = k - lo + 1;
+                double z = Math.log(n);
+                double s = 0.5 * Math.exp(2.0 * z / 3.0);
+                double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * (i < n / 2 ? -1.0 : 1.0);
+                int newLo = Math.max(lo, (int) (k - i * s / n + sd));
+                int newHi = Math.min(hi, (int) (k + (n - i) * s / n + sd));
+                select(a, newLo, newHi, k);
+            }
+            double t = a[k];
+            int i = lo, j = hi;
+            swap(a, lo, k);
+            if(a[hi] > t) {
+                swap(a, hi, lo);
+            }
+            while(i < j) {
+                swap(a, i, j);
+                i++;
+                j--;
+                while(a[i] < t) {
+                    i++;
+                }
+                while(a[j] > t) {
+                    j--;
+                }
+            }
+            if(a[lo] == t) {
+                swap(a, lo, j);
+            }
+            else {
+                j++;
+                swap(a, j, hi);
+            }
+            if(j <= k) {
+                lo = j + 1;
+            }
+            if(k <= j) {
+                hi = j - 1;
+            }
+        }
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    @Override
+    public String toString() {
+        return "draws=" + draws + ",seed=" + seed + ",spread=" + spread;
+    }
+}
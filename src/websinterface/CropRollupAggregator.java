@@ -0,0 +1,213 @@
+package websinterface;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * CropRollupAggregator Class
+ *
+ * @author radfordd
+ *
+ * CropRollupAggregator loads a yield table (yield_historic or
+ * yield_conventional) from the Spatial.db3 file once, into one primitive
+ * array per column, sorted by field and year. The rows of each field are
+ * located through an index keyed by the field id, which allows the farm and
+ * subbasin rollups to be computed in a single pass over the field_farm or
+ * field_subbasin table without any further queries against the yield table.
+ */
+class CropRollupAggregator {
+    private final NameTypePair[] ntp;
+    private final int[] fieldIds;
+    private final double[][] cols;
+    private final int rows;
+    private final int maxRowsPerField;
+    // Dense index by field id when the ids are compact, otherwise the sorted
+    // distinct field ids are searched.
+    private int[] denseStart;
+    private int[] denseCount;
+    private int[] sortedIds;
+    private int[] sortedStart;
+    private int[] sortedCount;
+
+    /**
+     *
+     * @param in: Input Statement for the Spatial.db3 file.
+     * @param tbl: yield_historic or yield_conventional SQL Table. The first
+     *             column must be the field id.
+     * @throws SQLException: Error reading the yield table.
+     */
+
+    public CropRollupAggregator(Statement in, String tbl) throws SQLException {
+        ResultSet rs = in.executeQuery("SELECT COUNT(*) FROM " + tbl + ";");
+        int count = rs.next() ? rs.getInt(1) : 0;
+        rs = in.executeQuery("SELECT * FROM " + tbl + " ORDER BY field, year;");
+        ntp = ScenarioBuilder.loadInputNamesAndTypes(rs);
+        fieldIds = new int[count];
+        cols = new double[ntp.length - 1][count];
+        int r = 0;
+        while(rs.next() && r < count) {
+            fieldIds[r] = rs.getInt(1);
+            for(int j = 1; j < ntp.length; j++) {
+                cols[j - 1][r] = rs.getDouble(j + 1);
+            }
+            r++;
+        }
+        rows = r;
+        maxRowsPerField = buildIndex();
+    }
+
+    private int buildIndex() {
+        int distinct = 0, maxId = 0, minId = 0, maxRun = 0;
+        for(int r = 0; r < rows; r++) {
+            if(r == 0 || fieldIds[r] != fieldIds[r - 1]) {
+                distinct++;
+            }
+            maxId = Math.max(maxId, fieldIds[r]);
+            minId = Math.min(minId, fieldIds[r]);
+        }
+        sortedIds = new int[distinct];
+        sortedStart = new int[distinct];
+        sortedCount = new int[distinct];
+        int d = -1;
+        for(int r = 0; r < rows; r++) {
+            if(r == 0 || fieldIds[r] != fieldIds[r - 1]) {
+                d++;
+                sortedIds[d] = fieldIds[r];
+                sortedStart[d] = r;
+            }
+            sortedCount[d]++;
+            maxRun = Math.max(maxRun, sortedCount[d]);
+        }
+        if(minId >= 0 && maxId <= 4 * rows + 1024) {
+            denseStart = new int[maxId + 1];
+            denseCount = new int[maxId + 1];
+            for(int i = 0; i < distinct; i++) {
+                denseStart[sortedIds[i]] = sortedStart[i];
+                denseCount[sortedIds[i]] = sortedCount[i];
+            }
+        }
+        return maxRun;
+    }
+
+    /**
+     *
+     * @param field: Field id.
+     * @return The index of the first row of the field, or -1 if the field has
+     *         no rows in the yield table.
+     */
+
+    private int startOf(int field) {
+        if(denseStart != null) {
+            return field >= 0 && field < denseCount.length && denseCount[field] > 0 ? denseStart[field] : -1;
+        }
+        int i = Arrays.binarySearch(sortedIds, field);
+        return i >= 0 ? sortedStart[i] : -1;
+    }
+
+    private int countOf(int field) {
+        if(denseStart != null) {
+            return field >= 0 && field < denseCount.length ? denseCount[field] : 0;
+        }
+        int i = Arrays.binarySearch(sortedIds, field);
+        return i >= 0 ? sortedCount[i] : 0;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Computes the rollup of the yield table for every farm or subbasin and
+     * writes it to the output table. The weight table is read once, ordered
+     * by the BMP id. A farm/subbasin whose first field has a percentage of 1.0
+     * takes the rows of that field directly. Otherwise the rows of all of its
+     * fields are summed, weighted by their percentage, with the n-th row of
+     * each field contributing to the n-th output row.
+     *
+     * @param in: Input Statement for the Spatial.db3 file.
+     * @param tbl: field_farm or field_subbasin SQL Table.
+     * @param bmp: Name of the BMP id column, either farm or subbasin.
+     * @param w: BatchedTableWriter for the output Table. The BMP id is bound
+     *           as the first parameter of every row.
+     * @throws SQLException: Error reading the weight table or writing the
+     *                       output table.
+     */
+
+    public void writeRollup(Statement in, String tbl, String bmp, BatchedTableWriter w) throws SQLException {
+        ResultSet rs = in.executeQuery("SELECT field, " + bmp + ", percent FROM " + tbl + " WHERE " + bmp + " > 0 ORDER BY " + bmp + ";");
+        double[][] totals = new double[cols.length][maxRowsPerField];
+        int bmpId = 0, groupRows = 0;
+        boolean direct = false, open = false;
+        while(rs.next()) {
+            int fieldId = rs.getInt(1);
+            int id = rs.getInt(2);
+            double pct = rs.getDouble(3);
+            if(!open || id != bmpId) {
+                if(open && !direct) {
+                    writeTotals(w, bmpId, totals, groupRows);
+                }
+                bmpId = id;
+                open = true;
+                direct = pct == 1.0;
+                groupRows = 0;
+                if(direct) {
+                    writeField(w, bmpId, fieldId);
+                }
+                else {
+                    for(double[] t : totals) {
+                        Arrays.fill(t, 0.0);
+                    }
+                }
+            }
+            if(!direct) {
+                int start = startOf(fieldId);
+                int n = countOf(fieldId);
+                for(int i = 0; i < n; i++) {
+                    // The year column is carried over, the values are summed.
+                    totals[0][i] = cols[0][start + i];
+                    for(int j = 1; j < cols.length; j++) {
+                        totals[j][i] += cols[j][start + i] * pct;
+                    }
+                }
+                groupRows = Math.max(groupRows, n);
+            }
+        }
+        if(open && !direct) {
+            writeTotals(w, bmpId, totals, groupRows);
+        }
+    }
+
+    private void writeField(BatchedTableWriter w, int bmpId, int fieldId) throws SQLException {
+        int start = startOf(fieldId);
+        int n = countOf(fieldId);
+        for(int i = start; i < start + n; i++) {
+            w.setInt(1, bmpId);
+            for(int j = 0; j < cols.length; j++) {
+                bind(w, j, cols[j][i]);
+            }
+            w.addRow();
+        }
+    }
+
+    private void writeTotals(BatchedTableWriter w, int bmpId, double[][] totals, int n) throws SQLException {
+        for(int i = 0; i < n; i++) {
+            w.setInt(1, bmpId);
+            w.setInt(2, (int) totals[0][i]);
+            for(int j = 1; j < cols.length; j++) {
+                w.setDouble(j + 2, totals[j][i]);
+            }
+            w.addRow();
+        }
+    }
+
+    private void bind(BatchedTableWriter w, int j, double v) throws SQLException {
+        if(ntp[j + 1].getPairType() == 1) {
+            w.setInt(j + 2, (int) v);
+        }
+        else {
+            w.setDouble(j + 2, v);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * DbfReader Class
+ *
+ * @author radfordd
+ *
+ * DbfReader reads dBase III (.dbf) tables, such as the tables found within the
+ * STC/Data/Spatial folder, from a buffer holding the whole file. The file is
+ * read in one pass and closed when the reader is created, rather than mapped,
+ * as a mapping is only released by the garbage collector and keeps the file
+ * locked on Windows until then. The header is parsed once when the reader is
+ * created. Numeric (N and F) fields are decoded straight from the buffered
+ * bytes by a Column cursor, so scanning a table does not create any objects
+ * per record. readTable() projects the requested columns of the records
+ * marked as Existing into a ColumnTable.
+ */
+class DbfReader {
+    private static final byte HEADER_END = 0x0D;
+    private static final byte DELETED = '*';
+    // Powers of ten that are exactly representable as a double.
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                                           1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private final String name;
+    private final ByteBuffer buf;
+    private final int records;
+    private final int headerLength;
+    private final int recordLength;
+    private final String[] fieldNames;
+    private final char[] fieldTypes;
+    private final int[] fieldOffsets;
+    private final int[] fieldLengths;
+
+    /**
+     *
+     * @param f: DBF file to read.
+     * @throws IOException: The file cannot be read, or is not a valid DBF table.
+     */
+
+    public DbfReader(File f) throws IOException {
+        name = f.getName();
+        try(RandomAccessFile raf = new RandomAccessFile(f, "r");
+            FileChannel ch = raf.getChannel()) {
+            long size = ch.size();
+            if(size > Integer.MAX_VALUE) {
+                throw new IOException(name + " is too large to read");
+            }
+            buf = ByteBuffer.allocate((int) size);
+            while(buf.hasRemaining()) {
+                if(ch.read(buf) < 0) {
+                    throw new IOException(name + " ended before its expected size");
+                }
+            }
+            buf.flip();
+        }
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if(buf.limit() < 32) {
+            throw new IOException(name + " is not a valid DBF table");
+        }
+        records = buf.getInt(4);
+        headerLength = buf.getShort(8) & 0xFFFF;
+        recordLength = buf.getShort(10) & 0xFFFF;
+        int fields = 0;
+        while(32 + fields * 32 < headerLength && buf.get(32 + fields * 32) != HEADER_END) {
+            fields++;
+        }
+        if(fields == 0 || (long) headerLength + (long) records * recordLength > buf.limit()) {
+            throw new IOException(name + " is not a valid DBF table");
+        }
+        fieldNames = new String[fields];
+        fieldTypes = new char[fields];
+        fieldOffsets = new int[fields];
+        fieldLengths = new int[fields];
+        // Byte 0 of every record is the deletion flag.
+        int offset = 1;
+        byte[] nm = new byte[11];
+        for(int i = 0; i < fields; i++) {
+            int d = 32 + i * 32;
+            int len = 0;
+            while(len < 11 && buf.get(d + len) != 0) {
+                nm[len] = buf.get(d + len);
+                len++;
+            }
+            fieldNames[i] = new String(nm, 0, len, StandardCharsets.US_ASCII).trim();
+            fieldTypes[i] = (char) buf.get(d + 11);
+            fieldOffsets[i] = offset;
+            fieldLengths[i] = buf.get(d + 16) & 0xFF;
+            offset += fieldLengths[i];
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRecordCount() {
+        return records;
+    }
+
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+
+    public String getFieldName(int i) {
+        return fieldNames[i];
+    }
+
+    public char getFieldType(int i) {
+        return fieldTypes[i];
+    }
+
+    /**
+     *
+     * @param field: Field name, not case sensitive.
+     * @return The index of the field, or -1 if there is no such field.
+     */
+
+    public int indexOf(String field) {
+        for(int i = 0; i < fieldNames.length; i++) {
+            if(fieldNames[i].equalsIgnoreCase(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isDeleted(int record) {
+        return buf.get(headerLength + record * recordLength) == DELETED;
+    }
+
+    /**
+     *
+     * @param field: Field name, not case sensitive.
+     * @return A Column cursor over the numeric field.
+     * @throws IOException: No such field, or the field is not numeric.
+     */
+
+    public Column column(String field) throws IOException {
+        int i = indexOf(field);
+        if(i < 0) {
+            throw new IOException("No field " + field + " in " + name);
+        }
+        if(fieldTypes[i] != 'N' && fieldTypes[i] != 'F') {
+            throw new IOException("Field " + field + " in " + name + " is not numeric");
+        }
+        return new Column(i);
+    }
+
+    /**
+     * Reads the records of the table marked as Existing. Deleted records are
+     * skipped.
+     *
+     * @param existing: Name of the field marking a record as Existing, with a
+     *                  value of 1.
+     * @param columns: Names of the fields to read.
+     * @return vals: A ColumnTable with one column for each entry of columns.
+     *               A column is stored as Double if any of its values has a
+     *               fractional part, or if it is the Embankment or Distance
+     *               column, and as Integer otherwise.
+     * @throws IOException: A requested field does not exist or is not numeric.
+     */
+
+    public ColumnTable readTable(String existing, String[] columns) throws IOException {
+        Column exists = column(existing);
+        Column[] cols = new Column[columns.length];
+        for(int j = 0; j < columns.length; j++) {
+            cols[j] = column(columns[j]);
+        }
+        // Gather the matching records first, so that the column types are
+        // known before the values are stored.
+        int[] hits = new int[records];
+        int entries = 0;
+        for(int r = 0; r < records; r++) {
+            if(!isDeleted(r) && exists.getInt(r) == 1) {
+                hits[entries++] = r;
+            }
+        }
+        int[] types = new int[columns.length];
+        for(int j = 0; j < columns.length; j++) {
+            types[j] = columns[j].equalsIgnoreCase("embankment") || columns[j].equalsIgnoreCase("distance") ? 0 : 1;
+            for(int i = 0; i < entries && types[j] == 1; i++) {
+                if(cols[j].getDouble(hits[i]) % 1 > 0) {
+                    types[j] = 0;
+                }
+            }
+        }
+        ColumnTable vals = new ColumnTable(columns, types, entries);
+        vals.setRowCount(entries);
+        for(int j = 0; j < columns.length; j++) {
+            if(types[j] == 1) {
+                int[] v = vals.intColumn(j);
+                for(int i = 0; i < entries; i++) {
+                    v[i] = cols[j].getInt(hits[i]);
+                }
+            }
+            else {
+                double[] v = vals.doubleColumn(j);
+                for(int i = 0; i < entries; i++) {
+                    v[i] = cols[j].getDouble(hits[i]);
+                }
+            }
+        }
+        return vals;
+    }
+
+    /**
+     * A cursor over one numeric field. Values are decoded from the table
+     * buffer on every call. Blank values are read as 0.
+     */
+
+    class Column {
+        private final int offset;
+        private final int length;
+
+        private Column(int field) {
+            offset = fieldOffsets[field];
+            length = fieldLengths[field];
+        }
+
+        public boolean isBlank(int record) {
+            int p = headerLength + record * recordLength + offset;
+            for(int i = 0; i < length; i++) {
+                if(buf.get(p + i) != ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int getInt(int record) {
+            return (int) getDouble(record);
+        }
+
+        /**
+         * Decodes the ASCII number of the record. Numbers with at most 18
+         * significant digits and a small exponent are computed with a single
+         * rounding, which gives the same result as Double.parseDouble. Any
+         * other number is passed to Double.parseDouble.
+         *
+         * @param record: Record index.
+         * @return The value of the field.
+         */
+
+        public double getDouble(int record) {
+            int p = headerLength + record * recordLength + offset;
+            int end = p + length;
+            while(p < end && buf.get(p) == ' ') {
+                p++;
+            }
+            while(end > p && buf.get(end - 1) == ' ') {
+                end--;
+            }
+            if(p == end) {
+                return 0.0;
+            }
+            int i = p;
+            boolean neg = false;
+            byte b = buf.get(i);
+            if(b == '-' || b == '+') {
+                neg = b == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0, scale = 0;
+            boolean dot = false, any = false;
+            for(; i < end; i++) {
+                b = buf.get(i);
+                if(b >= '0' && b <= '9') {
+                    any = true;
+                    if(mantissa == 0 && b == '0') {
+                        if(dot) {
+                            scale--;
+                        }
+                        continue;
+                    }
+                    if(digits == 18) {
+                        return parseSlow(p, end);
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if(dot) {
+                        scale--;
+                    }
+                }
+                else if(b == '.' && !dot) {
+                    dot = true;
+                }
+                else {
+                    break;
+                }
+            }
+            if(!any) {
+                return parseSlow(p, end);
+            }
+            if(i < end) {
+                if(b != 'e' && b != 'E') {
+                    return parseSlow(p, end);
+                }
+                i++;
+                boolean expNeg = false;
+                if(i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                    expNeg = buf.get(i) == '-';
+                    i++;
+                }
+                if(i == end) {
+                    return parseSlow(p, end);
+                }
+                int exp = 0;
+                for(; i < end; i++) {
+                    b = buf.get(i);
+                    if(b < '0' || b > '9' || exp > 1000) {
+                        return parseSlow(p, end);
+                    }
+                    exp = exp * 10 + (b - '0');
+                }
+                scale += expNeg ? -exp : exp;
+            }
+            double v;
+            if(mantissa == 0) {
+                v = 0.0;
+            }
+            else if(mantissa < (1L << 53) && scale >= -22 && scale <= 22) {
+                v = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+            }
+            else {
+                return parseSlow(p, end);
+            }
+            return neg ? -v : v;
+        }
+
+        private double parseSlow(int p, int end) {
+            byte[] b = new byte[end - p];
+            for(int i = 0; i < b.length; i++) {
+                b[i] = buf.get(p + i);
+            }
+            try {
+                return Double.parseDouble(new String(b, StandardCharsets.US_ASCII));
+            } catch(NumberFormatException e) {
+                return 0.0;
+            }
+        }
+    }
+}
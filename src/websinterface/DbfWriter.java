@@ -0,0 +1,122 @@
+package websinterface;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * DbfWriter Class
+ *
+ * @author radfordd
+ *
+ * DbfWriter writes a dBase III (.dbf) table of numeric (N) fields, in the
+ * layout read by DbfReader. Records are streamed to the file as they are
+ * added, and the record count in the header is filled in when the writer is
+ * closed.
+ */
+class DbfWriter implements AutoCloseable {
+    private final File f;
+    private final OutputStream out;
+    private final int[] lengths;
+    private final int[] decimals;
+    private final byte[] record;
+    private int records;
+
+    /**
+     *
+     * @param f: Output DBF file.
+     * @param names: Field names, at most 10 characters.
+     * @param lengths: Width of each field in characters.
+     * @param decimals: Number of decimal places of each field.
+     * @throws IOException: Error writing the header.
+     */
+
+    public DbfWriter(File f, String[] names, int[] lengths, int[] decimals) throws IOException {
+        this.f = f;
+        this.lengths = lengths.clone();
+        this.decimals = decimals.clone();
+        int recordLength = 1;
+        for(int len : lengths) {
+            recordLength += len;
+        }
+        record = new byte[recordLength];
+        int headerLength = 32 + 32 * names.length + 1;
+        byte[] header = new byte[headerLength];
+        Calendar now = Calendar.getInstance();
+        header[0] = 0x03;
+        header[1] = (byte) (now.get(Calendar.YEAR) - 1900);
+        header[2] = (byte) (now.get(Calendar.MONTH) + 1);
+        header[3] = (byte) now.get(Calendar.DAY_OF_MONTH);
+        putShort(header, 8, headerLength);
+        putShort(header, 10, recordLength);
+        for(int i = 0; i < names.length; i++) {
+            int d = 32 + i * 32;
+            byte[] nm = names[i].getBytes(StandardCharsets.US_ASCII);
+            if(nm.length > 10) {
+                throw new IllegalArgumentException("Field name longer than 10 characters: " + names[i]);
+            }
+            System.arraycopy(nm, 0, header, d, nm.length);
+            header[d + 11] = 'N';
+            header[d + 16] = (byte) lengths[i];
+            header[d + 17] = (byte) decimals[i];
+        }
+        header[headerLength - 1] = 0x0D;
+        out = new BufferedOutputStream(new FileOutputStream(f), 1 << 16);
+        out.write(header);
+    }
+
+    /**
+     *
+     * @param values: Value of each field, formatted with the decimals of the field.
+     * @throws IOException: Error writing the record, or a value too wide for its field.
+     */
+
+    public void addRecord(double... values) throws IOException {
+        record[0] = ' ';
+        int p = 1;
+        for(int i = 0; i < lengths.length; i++) {
+            String s = String.format(Locale.ROOT, "%" + lengths[i] + "." + decimals[i] + "f", values[i]);
+            if(s.length() > lengths[i]) {
+                throw new IOException("Value " + values[i] + " does not fit field " + i + " of " + f.getName());
+            }
+            for(int j = 0; j < lengths[i]; j++) {
+                record[p + j] = (byte) s.charAt(j);
+            }
+            p += lengths[i];
+        }
+        out.write(record);
+        records++;
+    }
+
+    public int getRecordCount() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write(0x1A);
+        } finally {
+            out.close();
+        }
+        byte[] count = new byte[4];
+        for(int i = 0; i < 4; i++) {
+            count[i] = (byte) (records >>> (8 * i));
+        }
+        try(RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(4);
+            raf.write(count);
+        }
+    }
+
+    private static void putShort(byte[] b, int off, int v) {
+        b[off] = (byte) v;
+        b[off + 1] = (byte) (v >>> 8);
+    }
+}
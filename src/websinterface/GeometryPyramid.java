@@ -0,0 +1,176 @@
+package websinterface;
+
+import java.util.Arrays;
+import whitebox.geospatialfiles.shapefile.ShapeFileRecord;
+
+/**
+ * GeometryPyramid Class
+ *
+ * @author radfordd
+ *
+ * GeometryPyramid holds simplified versions of the lines and polygons of a
+ * vector layer at LEVELS tolerances, each STEP times the one before, so that a
+ * view far from the features draws a few vertices for each pixel rather than
+ * every vertex of the layer. Each part is simplified with the Douglas-Peucker
+ * algorithm, starting from the level below, and a level of a record is only
+ * built the first time it is drawn.
+ *
+ * The tolerances are fractions of the size of the layer, the finest being
+ * 2^-20 of its width or height; views closer than that draw the records
+ * themselves.
+ */
+class GeometryPyramid {
+    static final int LEVELS = 8;
+    static final double STEP = 4.0;
+    private final double baseTolerance;
+    private final Simplified[][] levels;
+
+    /**
+     *
+     * @param size: Larger of the width and height of the layer.
+     * @param numRecords: Number of records of the layer.
+     */
+
+    public GeometryPyramid(double size, int numRecords) {
+        baseTolerance = size / (1 << 20);
+        levels = new Simplified[LEVELS][numRecords];
+    }
+
+    /**
+     *
+     * @param tolerance: Largest distance, in map units, that a simplified
+     *                   line may move from its record.
+     * @return The coarsest level within tolerance, or -1 if only the records
+     *         themselves are.
+     */
+
+    public int getLevel(double tolerance) {
+        if(!(baseTolerance > 0)) {
+            return -1;
+        }
+        int level = -1;
+        // a level also carries the error of the levels below it
+        for(double t = baseTolerance * STEP / (STEP - 1); t <= tolerance && level < LEVELS - 1; t *= STEP) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     *
+     * @param record: Line or polygon record of the layer.
+     * @param level: Level from getLevel(), at least 0.
+     * @return The simplified points and parts of the record.
+     */
+
+    public Simplified get(ShapeFileRecord record, int level) {
+        int r = record.getRecordNumber() - 1;
+        if(r < 0 || r >= levels[level].length) {
+            return new Simplified(record.getGeometry().getPoints(), record.getGeometry().getParts());
+        }
+        Simplified s = levels[level][r];
+        if(s == null) {
+            Simplified finer = level > 0 ? get(record, level - 1)
+                    : new Simplified(record.getGeometry().getPoints(), record.getGeometry().getParts());
+            s = simplify(finer, baseTolerance * Math.pow(STEP, level));
+            levels[level][r] = s;
+        }
+        return s;
+    }
+
+    private static Simplified simplify(Simplified in, double tolerance) {
+        double[][] points = in.points;
+        int[] parts = in.parts;
+        boolean[] keep = new boolean[points.length];
+        int kept = 0;
+        int[] stack = new int[64];
+        double tol2 = tolerance * tolerance;
+        for(int p = 0; p < parts.length; p++) {
+            int start = parts[p];
+            int end = p < parts.length - 1 ? parts[p + 1] : points.length;
+            if(end - start < 4) {
+                for(int k = start; k < end; k++) {
+                    keep[k] = true;
+                }
+                kept += end - start;
+                continue;
+            }
+            keep[start] = true;
+            keep[end - 1] = true;
+            kept += 2;
+            int top = 0;
+            stack[top++] = start;
+            stack[top++] = end - 1;
+            while(top > 0) {
+                int last = stack[--top];
+                int first = stack[--top];
+                double max = tol2;
+                int far = -1;
+                for(int k = first + 1; k < last; k++) {
+                    double d = distance2(points[first], points[last], points[k]);
+                    if(d > max) {
+                        max = d;
+                        far = k;
+                    }
+                }
+                if(far >= 0) {
+                    keep[far] = true;
+                    kept++;
+                    if(top + 4 > stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    }
+                    stack[top++] = first;
+                    stack[top++] = far;
+                    stack[top++] = far;
+                    stack[top++] = last;
+                }
+            }
+        }
+        if(kept == points.length) {
+            return in;
+        }
+        double[][] outPoints = new double[kept][];
+        int[] outParts = new int[parts.length];
+        int n = 0;
+        for(int p = 0; p < parts.length; p++) {
+            int start = parts[p];
+            int end = p < parts.length - 1 ? parts[p + 1] : points.length;
+            outParts[p] = n;
+            for(int k = start; k < end; k++) {
+                if(keep[k]) {
+                    outPoints[n++] = points[k];
+                }
+            }
+        }
+        return new Simplified(outPoints, outParts);
+    }
+
+    /**
+     * Squared distance from c to the segment ab, or to a if the segment is a
+     * point, as at the ends of a ring.
+     */
+
+    private static double distance2(double[] a, double[] b, double[] c) {
+        double dx = b[0] - a[0], dy = b[1] - a[1];
+        double len2 = dx * dx + dy * dy;
+        double t = len2 > 0 ? ((c[0] - a[0]) * dx + (c[1] - a[1]) * dy) / len2 : 0;
+        t = Math.max(0, Math.min(1, t));
+        double ex = a[0] + t * dx - c[0], ey = a[1] + t * dy - c[1];
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * The points and part starts of a simplified record, laid out as those of
+     * its Geometry. The points are shared with the record.
+     */
+
+    static class Simplified {
+        final double[][] points;
+        final int[] parts;
+
+        Simplified(double[][] points, int[] parts) {
+            this.points = points;
+            this.parts = parts;
+        }
+    }
+}
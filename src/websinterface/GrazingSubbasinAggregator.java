@@ -0,0 +1,104 @@
+package websinterface;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GrazingSubbasinAggregator Class
+ *
+ * @author radfordd
+ *
+ * GrazingSubbasinAggregator computes the mean grazing cost of every subbasin
+ * that contains at least one existing grazing area. The grazing_area and
+ * subbasin_grazing tables are each read once. The area of every grazing id is
+ * taken from grazing_area and its unit cost from the Grazing data, then each
+ * subbasin_grazing row is added to the running sums of its subbasin:
+ *
+ *      SUM(UnitCost * Area * Percentage) / SUM(Area * Percentage)
+ *
+ * Grazing ids without an existing grazing record contribute their area with a
+ * unit cost of 0. Subbasins are reported in the order in which their first
+ * existing grazing area appears when subbasin_grazing is ordered by grazing.
+ */
+class GrazingSubbasinAggregator {
+    private final int[] subbasins;
+    private final double[] meanCosts;
+
+    /**
+     *
+     * @param src: ColumnTable containing the Grazing data, with the grazing
+     *             id in column 0 and the UnitCost in column 2.
+     * @param inA: Input Statement used in calling the table in subGrz.
+     * @param inB: Input Statement used in calling the table in grzArea.
+     * @param subGrz: subbasin_grazing table name from Spatial.db3 as a String.
+     * @param grzArea: grazing_area table name from Spatial.db3 as a String.
+     * @throws SQLException: Error reading either table.
+     */
+
+    public GrazingSubbasinAggregator(ColumnTable src, Statement inA, Statement inB, String subGrz, String grzArea) throws SQLException {
+        Map<Integer, Double> unitCosts = new HashMap<>();
+        for(int i = 0; i < src.getRowCount(); i++) {
+            unitCosts.put(src.getInt(i, 0), src.getDouble(i, 2));
+        }
+
+        // id -> {area, unit cost}
+        Map<Integer, double[]> areas = new HashMap<>();
+        ResultSet aRs = inB.executeQuery("SELECT * FROM " + grzArea + ";");
+        while(aRs.next()) {
+            int id = aRs.getInt(1);
+            Double cost = unitCosts.get(id);
+            areas.put(id, new double[]{aRs.getDouble(2), cost == null ? 0.0 : cost});
+        }
+
+        // subbasin -> {SUM(UnitCost * Area * Pct), SUM(Area * Pct)}
+        Map<Integer, double[]> sums = new HashMap<>();
+        Set<Integer> seen = new HashSet<>();
+        int[] order = new int[16];
+        int n = 0;
+        ResultSet sRs = inA.executeQuery("SELECT * FROM " + subGrz + " ORDER BY grazing;");
+        while(sRs.next()) {
+            int subId = sRs.getInt(1);
+            int grzId = sRs.getInt(2);
+            double pct = sRs.getDouble(3);
+            double[] s = sums.get(subId);
+            if(s == null) {
+                s = new double[2];
+                sums.put(subId, s);
+            }
+            double[] a = areas.get(grzId);
+            if(a != null) {
+                s[0] += a[1] * a[0] * pct;
+                s[1] += a[0] * pct;
+            }
+            if(unitCosts.containsKey(grzId) && seen.add(subId)) {
+                if(n == order.length) {
+                    int[] temp = new int[n * 2];
+                    System.arraycopy(order, 0, temp, 0, n);
+                    order = temp;
+                }
+                order[n++] = subId;
+            }
+        }
+
+        subbasins = new int[n];
+        meanCosts = new double[n];
+        for(int i = 0; i < n; i++) {
+            double[] s = sums.get(order[i]);
+            subbasins[i] = order[i];
+            meanCosts[i] = s[0] / s[1];
+        }
+    }
+
+    public int[] getSubbasins() {
+        return subbasins.clone();
+    }
+
+    public double[] getMeanCosts() {
+        return meanCosts.clone();
+    }
+}
@@ -0,0 +1,210 @@
+package websinterface;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * LayerImageCache Class
+ *
+ * @author radfordd
+ *
+ * LayerImageCache keeps an off-screen image of each map layer as MapRenderer
+ * last drew it. Each image is stored with a Key holding everything the
+ * drawing depends on: the transform of the Graphics2D, the view area, the map
+ * extent, the symbology of the layer and a version of its data. When a repaint
+ * draws a layer with an equal Key, the image is copied to the screen rather
+ * than drawing the features again, so repaints that only move the mouse or
+ * change the status bar no longer redraw unchanged layers.
+ *
+ * Images are in device pixels and are only used while the transform has no
+ * rotation or shear. Layers are held weakly, so a layer removed from the map
+ * releases its image.
+ */
+class LayerImageCache {
+    // Largest image kept for one layer, 4096 x 4096 pixels.
+    static final long MAX_PIXELS = 1L << 24;
+    private static final int NOT_CACHEABLE = AffineTransform.TYPE_FLIP | AffineTransform.TYPE_MASK_ROTATION
+                                             | AffineTransform.TYPE_GENERAL_TRANSFORM;
+    private final Map<Object, Entry> entries = new WeakHashMap<>();
+
+    /**
+     * Draws the image of a layer, if it was drawn for an equal Key.
+     *
+     * @param g2: Graphics2D of the map.
+     * @param layer: Layer of the image.
+     * @param key: Key of the layer as it would now be drawn.
+     * @return True if the image was drawn, false if the layer must be drawn.
+     */
+
+    public synchronized boolean drawCached(Graphics2D g2, Object layer, Key key) {
+        Entry e = entries.get(layer);
+        if(e == null || e.key == null || !e.key.equals(key)) {
+            return false;
+        }
+        blit(g2, e);
+        return true;
+    }
+
+    /**
+     * Starts drawing a layer into its image. The returned Graphics2D has the
+     * transform and rendering hints of g2, so the layer is drawn in page
+     * coordinates exactly as it would be drawn to g2. The image holds the
+     * bounds only; anything drawn outside them is lost.
+     *
+     * @param g2: Graphics2D of the map.
+     * @param layer: Layer to draw.
+     * @param bounds: Page coordinates covered by the layer.
+     * @return Graphics2D to draw the layer with, to be disposed before
+     *         commit(), or null if the layer cannot be cached and must be
+     *         drawn to g2.
+     */
+
+    public synchronized Graphics2D createGraphics(Graphics2D g2, Object layer, Rectangle2D bounds) {
+        AffineTransform tx = g2.getTransform();
+        if((tx.getType() & NOT_CACHEABLE) != 0) {
+            return null;
+        }
+        Rectangle device = tx.createTransformedShape(bounds).getBounds();
+        if(device.width <= 0 || device.height <= 0 || (long) device.width * device.height > MAX_PIXELS) {
+            entries.remove(layer);
+            return null;
+        }
+        Entry e = entries.get(layer);
+        if(e == null) {
+            e = new Entry();
+            entries.put(layer, e);
+        }
+        e.key = null;
+        e.x = device.x;
+        e.y = device.y;
+        Graphics2D ig;
+        if(e.image == null || e.image.getWidth() != device.width || e.image.getHeight() != device.height) {
+            GraphicsConfiguration gc = g2.getDeviceConfiguration();
+            e.image = gc != null ? gc.createCompatibleImage(device.width, device.height, Transparency.TRANSLUCENT)
+                    : new BufferedImage(device.width, device.height, BufferedImage.TYPE_INT_ARGB_PRE);
+            ig = e.image.createGraphics();
+        }
+        else {
+            ig = e.image.createGraphics();
+            Composite c = ig.getComposite();
+            ig.setComposite(AlphaComposite.Clear);
+            ig.fillRect(0, 0, device.width, device.height);
+            ig.setComposite(c);
+        }
+        ig.setRenderingHints(g2.getRenderingHints());
+        ig.translate(-device.x, -device.y);
+        ig.transform(tx);
+        return ig;
+    }
+
+    /**
+     * Stores the image drawn since createGraphics() under key and draws it.
+     *
+     * @param g2: Graphics2D of the map.
+     * @param layer: Layer of the image.
+     * @param key: Key of the layer as it was drawn.
+     */
+
+    public synchronized void commit(Graphics2D g2, Object layer, Key key) {
+        Entry e = entries.get(layer);
+        if(e != null && e.image != null) {
+            e.key = key.snapshot();
+            blit(g2, e);
+        }
+    }
+
+    /**
+     * Discards the image of a layer, so that it is drawn again on the next
+     * repaint. Needed when the features of a layer change without a change
+     * to its Key.
+     *
+     * @param layer: Layer to draw again.
+     */
+
+    public synchronized void invalidate(Object layer) {
+        Entry e = entries.get(layer);
+        if(e != null) {
+            e.key = null;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    private static void blit(Graphics2D g2, Entry e) {
+        AffineTransform old = g2.getTransform();
+        g2.setTransform(AffineTransform.getTranslateInstance(e.x, e.y));
+        g2.drawImage(e.image, 0, 0, null);
+        g2.setTransform(old);
+    }
+
+    private static class Entry {
+        private Key key;
+        private BufferedImage image;
+        private int x;
+        private int y;
+    }
+
+    /**
+     * The values a layer image depends on. Two Keys are equal when all their
+     * values are, comparing arrays by content.
+     */
+
+    static class Key {
+        private final Object[] parts;
+
+        /**
+         *
+         * @param parts: Values the image depends on. Arrays, such as the
+         *               colours of the features, and AffineTransforms are
+         *               copied when the Key is stored.
+         */
+
+        Key(Object... parts) {
+            this.parts = parts;
+        }
+
+        private Key snapshot() {
+            Object[] p = parts.clone();
+            for(int i = 0; i < p.length; i++) {
+                if(p[i] instanceof Object[]) {
+                    p[i] = ((Object[]) p[i]).clone();
+                }
+                else if(p[i] instanceof float[]) {
+                    p[i] = ((float[]) p[i]).clone();
+                }
+                else if(p[i] instanceof double[]) {
+                    p[i] = ((double[]) p[i]).clone();
+                }
+                else if(p[i] instanceof int[]) {
+                    p[i] = ((int[]) p[i]).clone();
+                }
+                else if(p[i] instanceof AffineTransform) {
+                    p[i] = ((AffineTransform) p[i]).clone();
+                }
+            }
+            return new Key(p);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.deepEquals(parts, ((Key) o).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.deepHashCode(parts);
+        }
+    }
+}
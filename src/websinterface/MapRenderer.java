@@ -27,6 +27,7 @@ import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.MemoryImageSource;
@@ -41,6 +42,8 @@ import java.text.AttributedString;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
@@ -121,6 +124,12 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
     private final Color selectedFeatureColour = Color.RED;
     private final Color selectionBoxColour = Color.GRAY;
     private final double ppm = java.awt.Toolkit.getDefaultToolkit().getScreenResolution() * 39.3701;
+    private final LayerImageCache layerImages = new LayerImageCache();
+    private final Map<VectorLayerInfo, VectorLayerIndex> layerIndices = new WeakHashMap<>();
+    private final Map<VectorLayerInfo, VectorStyle> layerStyles = new WeakHashMap<>();
+    private final PathBuilder pathBuilder = new PathBuilder();
+    // how near, in screen pixels, a click must be to a point or line to select it
+    private static final double SELECTION_TOLERANCE = 3.0;
 
     public MapRenderer() {
         init();
@@ -175,18 +184,19 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
                 @Override
                 public void keyPressed(KeyEvent e) {
                     if (e.getKeyCode() == KeyEvent.VK_DELETE || e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
-                        boolean isActivelyEditedVector = false;
+                        VectorLayerInfo activelyEditedVector = null;
                         if (map.getCartographicElement(whichCartoElement) instanceof MapArea) {
                             MapArea mapArea = (MapArea) map.getCartographicElement(whichCartoElement);
                             if (mapArea.getActiveLayer().getLayerType() == MapLayer.MapLayerType.VECTOR) {
                                 VectorLayerInfo vli = (VectorLayerInfo) mapArea.getActiveLayer();
                                 if (vli.isActivelyEdited()) {
-                                    isActivelyEditedVector = true;
+                                    activelyEditedVector = vli;
                                 }
                             }
                         }
-                        if (isActivelyEditedVector) {
+                        if (activelyEditedVector != null) {
                             host.deleteFeature();
+                            invalidateLayerImage(activelyEditedVector);
                         } else {
                             removeSelectedMapElements();
                             host.refreshMap(true);
@@ -242,6 +252,21 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
 
     public void setMapInfo(MapInfo mapinfo) {
         this.map = mapinfo;
+        layerImages.invalidateAll();
+    }
+
+    /**
+     * Discards the cached image and the index of a layer, so that its
+     * features are drawn again on the next repaint. Needed after changing the
+     * features of a layer without changing their number or symbology.
+     */
+    public void invalidateLayerImage(MapLayer layer) {
+        layerImages.invalidate(layer);
+        layerIndices.remove(layer);
+    }
+
+    public void invalidateLayerImages() {
+        layerImages.invalidateAll();
     }
 
     public int getMouseMode() {
@@ -1911,15 +1936,37 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
                                 //    layer.setResolutionFactor(1);
                                 //}
 
-                                if (layer.isDirty()) {
+                                boolean dirty = layer.isDirty();
+                                if (dirty) {
                                     layer.createPixelData();
                                 }
 
-                                width = layer.getImageWidth();
-                                height = layer.getImageHeight();
-                                Image image = createImage(new MemoryImageSource(width, height, layer.getPixelData(), 0, width));
-                                if (!g2.drawImage(image, x, y, layerWidth, layerHeight, this)) {
-                                    g2.drawImage(image, x, y, layerWidth, layerHeight, this);
+                                // the pixel data only change when the layer is dirty
+                                LayerImageCache.Key key = new LayerImageCache.Key(g2.getTransform(),
+                                        layerCE.getMinX(), layerCE.getMinY(), layerCE.getMaxX(), layerCE.getMaxY(),
+                                        x, y, layerWidth, layerHeight, res, layer.getImageWidth(), layer.getImageHeight());
+                                if (printingMap || dirty || !layerImages.drawCached(g2, layer, key)) {
+                                    width = layer.getImageWidth();
+                                    height = layer.getImageHeight();
+                                    Image image = createImage(new MemoryImageSource(width, height, layer.getPixelData(), 0, width));
+                                    Graphics2D lg = printingMap ? null
+                                            : layerImages.createGraphics(g2, layer, new Rectangle(x, y, layerWidth, layerHeight));
+                                    if (lg == null) {
+                                        if (!g2.drawImage(image, x, y, layerWidth, layerHeight, this)) {
+                                            g2.drawImage(image, x, y, layerWidth, layerHeight, this);
+                                        }
+                                    } else {
+                                        boolean complete = lg.drawImage(image, x, y, layerWidth, layerHeight, this)
+                                                || lg.drawImage(image, x, y, layerWidth, layerHeight, this);
+                                        lg.dispose();
+                                        if (complete) {
+                                            layerImages.commit(g2, layer, key);
+                                        } else {
+                                            // keep drawing it directly until the image is ready
+                                            layerImages.invalidate(layer);
+                                            g2.drawImage(image, x, y, layerWidth, layerHeight, this);
+                                        }
+                                    }
                                 }
 
                             }
@@ -1952,7 +1999,6 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
                             //layer.setSelectedFeatureNumber(-1);
                             layer.clearSelectedFeatures();
                         }
-                        float xPoint, yPoint;
                         /*
                          * minDistinguishableLength is used to
                          * speed up the drawing of vectors. Any
@@ -1963,8 +2009,6 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
                          */
                         double minDistinguishableLength = layer.getCartographicGeneralizationLevel() / mapScale; //scale;
 
-                        int r;
-
                         if (layer.isVisible()) {
                             BoundingBox fe = layer.getFullExtent();
                             if (fe.overlaps(mapExtent)) {
@@ -1977,455 +2021,71 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
                                     isClipped = true;
                                 }
                                 BoundingBox layerCE = fe.intersect(mapExtent);
-                                layer.setCurrentExtent(layerCE, minDistinguishableLength);
-                                int a1 = layer.getAlpha();
-                                //Color fillColour = new Color(r1, g1, b1, a1);
-                                int r1 = layer.getLineColour().getRed();
-                                int g1 = layer.getLineColour().getGreen();
-                                int b1 = layer.getLineColour().getBlue();
-                                Color lineColour = new Color(r1, g1, b1, a1);
-
-                                ShapeType shapeType = layer.getShapeType();
-                                //ShapeFileRecord[] records = layer.getGeometry();
-                                ArrayList<ShapeFileRecord> records = layer.getData();
-                                double x1, y1;
-                                //int xInt, yInt, x2Int, y2Int;
-                                double topCoord = mapExtent.getMaxY();
-                                double bottomCoord = mapExtent.getMinY();
-                                double leftCoord = mapExtent.getMinX();
-                                double rightCoord = mapExtent.getMaxX();
-                                double EWRange = rightCoord - leftCoord;
-                                double NSRange = topCoord - bottomCoord;
-
-                                double[][] xyData;
-                                GeneralPath gp;
-                                BasicStroke myStroke;
-                                Color[] colours = layer.getColourData();
-                                boolean isFilled = layer.isFilled();
-                                boolean isOutlined = layer.isOutlined();
-                                double[][] recPoints;
-
-                                int[] partStart;
-                                double[][] points;
-                                int pointSt;
-                                int pointEnd;
-                                float xPoints[] = new float[0];
-                                float yPoints[] = new float[0];
-                                GeneralPath polyline;
-
-                                boolean isActivelyEdited = layer.isActivelyEdited();
-
-                                switch (shapeType) {
-
-                                    case POINT:
-                                    case POINTZ:
-                                    case POINTM:
-                                        xyData = PointMarkers.getMarkerData(layer.getMarkerStyle(), layer.getMarkerSize());
-                                        myStroke = new BasicStroke(layer.getLineThickness());
-                                        oldStroke = g2.getStroke();
-                                        g2.setStroke(myStroke);
-
-                                        for (ShapeFileRecord record : records) {
-                                            r = record.getRecordNumber() - 1;
-                                            if (record.getShapeType() != ShapeType.NULLSHAPE) {
-//                                                whitebox.geospatialfiles.shapefile.Point rec = (whitebox.geospatialfiles.shapefile.Point) (record.getGeometry());
-//                                                x1 = rec.getX();
-//                                                y1 = rec.getY();
-                                                recPoints = record.getGeometry().getPoints();
-                                                x1 = recPoints[0][0];
-                                                y1 = recPoints[0][1];
-                                                if (y1 < bottomCoord || x1 < leftCoord
-                                                        || y1 > topCoord || x1 > rightCoord) {
-                                                    // It's not within the map area; do nothing.
-                                                } else {
-                                                    x1 = (viewAreaULX + (x1 - leftCoord) / EWRange * viewAreaWidth);
-                                                    y1 = (viewAreaULY + (topCoord - y1) / NSRange * viewAreaHeight);
-                                                    gp = new GeneralPath(GeneralPath.WIND_EVEN_ODD, 1);
-                                                    for (int a = 0; a < xyData.length; a++) {
-                                                        if (xyData[a][0] == 0) { // moveTo
-                                                            gp.moveTo(x1 + xyData[a][1], y1 + xyData[a][2]);
-                                                        } else if (xyData[a][0] == 1) { // lineTo
-                                                            gp.lineTo(x1 + xyData[a][1], y1 + xyData[a][2]);
-                                                        } else if (xyData[a][0] == 2) { // elipse2D
-                                                            Ellipse2D circle = new Ellipse2D.Double((x1 - xyData[a][1]), (y1 - xyData[a][1]), xyData[a][2], xyData[a][2]);
-
-                                                            gp.append(circle, true);
-                                                        }
-                                                    }
-                                                    if (activeLayerBool && isActivelyEdited) {
-                                                        g2.setColor(Color.RED);
-                                                        GeneralPath polyline2;
-                                                        float xSize = 2.5f;
-                                                        oldStroke = g2.getStroke();
-                                                        g2.setStroke(new BasicStroke(0.5f));
-                                                        polyline2 = new GeneralPath(GeneralPath.WIND_EVEN_ODD, 4);
-                                                        polyline2.moveTo(x1 - xSize, y1 - xSize);
-                                                        polyline2.lineTo(x1 + xSize, y1 + xSize);
-                                                        polyline2.moveTo(x1 + xSize, y1 - xSize);
-                                                        polyline2.lineTo(x1 - xSize, y1 + xSize);
-                                                        g2.draw(polyline2);
-                                                        g2.setStroke(oldStroke);
-                                                    } else {
-                                                        if (isFilled) {
-                                                            g2.setColor(colours[r]);
-                                                            g2.fill(gp);
-                                                        }
-                                                        if (isOutlined) {
-                                                            g2.setColor(lineColour);
-                                                            g2.draw(gp);
-                                                        }
-                                                        if (activeLayerBool && layer.getNumSelectedFeatures() > 0 && layer.isFeatureSelected(record.getRecordNumber())) { //record.getRecordNumber() == selectedFeature) {
-                                                            g2.setColor(selectedFeatureColour);
-                                                            g2.draw(gp);
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                        g2.setStroke(oldStroke);
-                                        break;
-
-                                    case MULTIPOINT:
-                                    case MULTIPOINTZ:
-                                    case MULTIPOINTM:
-                                        xyData = PointMarkers.getMarkerData(layer.getMarkerStyle(), layer.getMarkerSize());
-                                        myStroke = new BasicStroke(layer.getLineThickness());
-                                        oldStroke = g2.getStroke();
-                                        g2.setStroke(myStroke);
-
-                                        for (ShapeFileRecord record : records) {
-                                            r = record.getRecordNumber() - 1;
-                                            if (record.getShapeType() != ShapeType.NULLSHAPE) {
-                                                //MultiPoint rec = (MultiPoint) (record.getGeometry());
-                                                recPoints = record.getGeometry().getPoints();
-                                                for (int p = 0; p < recPoints.length; p++) {
-                                                    x1 = recPoints[p][0];
-                                                    y1 = recPoints[p][1];
-                                                    if (y1 < bottomCoord || x1 < leftCoord
-                                                            || y1 > topCoord || x1 > rightCoord) {
-                                                        // It's not within the map area; do nothing.
-                                                    } else {
-                                                        x1 = (viewAreaULX + (x1 - leftCoord) / EWRange * viewAreaWidth);
-                                                        y1 = (viewAreaULY + (topCoord - y1) / NSRange * viewAreaHeight);
-
-                                                        gp = new GeneralPath(GeneralPath.WIND_EVEN_ODD, xyData.length);
-                                                        for (int a = 0; a < xyData.length; a++) {
-                                                            if (xyData[a][0] == 0) { // moveTo
-                                                                gp.moveTo(x1 + xyData[a][1], y1 + xyData[a][2]);
-                                                            } else if (xyData[a][0] == 1) { // lineTo
-                                                                gp.lineTo(x1 + xyData[a][1], y1 + xyData[a][2]);
-                                                            } else if (xyData[a][0] == 2) { // elipse2D
-                                                                Ellipse2D circle = new Ellipse2D.Double((x1 - xyData[a][1]), (y1 - xyData[a][1]), xyData[a][2], xyData[a][2]);
-
-                                                                gp.append(circle, true);
-                                                            }
-                                                        }
-
-                                                        if (activeLayerBool && isActivelyEdited) {
-                                                            g2.setColor(Color.RED);
-                                                            GeneralPath polyline2;
-                                                            float xSize = 2.5f;
-                                                            oldStroke = g2.getStroke();
-                                                            g2.setStroke(new BasicStroke(0.5f));
-                                                            polyline2 = new GeneralPath(GeneralPath.WIND_EVEN_ODD, 4);
-                                                            polyline2.moveTo(x1 - xSize, y1 - xSize);
-                                                            polyline2.lineTo(x1 + xSize, y1 + xSize);
-                                                            polyline2.moveTo(x1 + xSize, y1 - xSize);
-                                                            polyline2.lineTo(x1 - xSize, y1 + xSize);
-                                                            g2.draw(polyline2);
-                                                            g2.setStroke(oldStroke);
-                                                        } else {
-                                                            if (isFilled) {
-                                                                g2.setColor(colours[r]);
-                                                                g2.fill(gp);
-                                                            }
-                                                            if (isOutlined) {
-                                                                g2.setColor(lineColour);
-                                                                g2.draw(gp);
-                                                            }
-                                                            if (activeLayerBool && layer.getNumSelectedFeatures() > 0 && layer.isFeatureSelected(record.getRecordNumber())) { //record.getRecordNumber() == selectedFeature) {
-                                                                g2.setColor(selectedFeatureColour);
-                                                                g2.draw(gp);
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                        g2.setStroke(oldStroke);
-                                        break;
-
-                                    case POLYLINE:
-                                    case POLYLINEZ:
-                                    case POLYLINEM:
-                                        //g2.setColor(lineColour);
-                                        myStroke = new BasicStroke(layer.getLineThickness(), BasicStroke.CAP_BUTT,
-                                                BasicStroke.JOIN_ROUND);
-                                        if (layer.isDashed()) {
-                                            myStroke
-                                                    = new BasicStroke(layer.getLineThickness(),
-                                                            BasicStroke.CAP_BUTT,
-                                                            BasicStroke.JOIN_ROUND,
-                                                            10.0f, layer.getDashArray(), 0.0f);
-                                        }
-                                        oldStroke = g2.getStroke();
-                                        g2.setStroke(myStroke);
-
-                                        for (ShapeFileRecord record : records) {
-                                            r = record.getRecordNumber() - 1;
-                                            if (record.getShapeType() != ShapeType.NULLSHAPE) {
-                                                partStart = record.getGeometry().getParts();
-                                                points = record.getGeometry().getPoints();
-                                                int numParts = partStart.length;
-                                                for (int p = 0; p < numParts; p++) {
-                                                    pointSt = partStart[p];
-                                                    if (p < numParts - 1) {
-                                                        pointEnd = partStart[p + 1];
-                                                    } else {
-                                                        pointEnd = points.length;
-                                                    }
-                                                    xPoints = new float[pointEnd - pointSt];
-                                                    yPoints = new float[pointEnd - pointSt];
-                                                    for (int k = pointSt; k < pointEnd; k++) {
-                                                        xPoint = (float) (viewAreaULX + (points[k][0] - leftCoord) / EWRange * viewAreaWidth);
-                                                        yPoint = (float) (viewAreaULY + (topCoord - points[k][1]) / NSRange * viewAreaHeight);
-                                                        xPoints[k - pointSt] = xPoint;
-                                                        yPoints[k - pointSt] = yPoint;
-                                                    }
-                                                    polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, xPoints.length);
-
-                                                    polyline.moveTo(xPoints[0], yPoints[0]);
-
-                                                    for (int index = 1; index < xPoints.length; index++) {
-                                                        polyline.lineTo(xPoints[index], yPoints[index]);
-                                                    }
-                                                    if (activeLayerBool && isActivelyEdited) {
-                                                        if (activeLayerBool && layer.isFeatureSelected(record.getRecordNumber())) {
-                                                            g2.setColor(selectedFeatureColour);
-                                                        } else {
-                                                            g2.setColor(colours[r]);
-                                                        }
-                                                        g2.draw(polyline);
-                                                        g2.setColor(Color.RED);
-                                                        GeneralPath polyline2;
-                                                        float xSize = 2.5f;
-                                                        oldStroke = g2.getStroke();
-                                                        g2.setStroke(new BasicStroke(0.5f));
-                                                        for (int index = 0; index < xPoints.length; index++) {
-                                                            polyline2 = new GeneralPath(GeneralPath.WIND_EVEN_ODD, 4);
-                                                            polyline2.moveTo(xPoints[index] - xSize, yPoints[index] - xSize);
-                                                            polyline2.lineTo(xPoints[index] + xSize, yPoints[index] + xSize);
-                                                            polyline2.moveTo(xPoints[index] + xSize, yPoints[index] - xSize);
-                                                            polyline2.lineTo(xPoints[index] - xSize, yPoints[index] + xSize);
-                                                            g2.draw(polyline2);
-                                                        }
-                                                        g2.setStroke(oldStroke);
-                                                    } else if ((activeLayerBool && layer.isFeatureSelected(record.getRecordNumber()))
-                                                            && !isActivelyEdited) { //record.getRecordNumber() == selectedFeature)
-                                                        g2.setColor(selectedFeatureColour);
-                                                        g2.draw(polyline);
-                                                    } else {
-                                                        g2.setColor(colours[r]);
-                                                        g2.draw(polyline);
-                                                    }
-                                                }
-
-                                                if (activeLayerBool && backgroundMouseMode == MOUSE_MODE_FEATURE_SELECT) {
-                                                    //&& layer.getNumSelectedFeatures() > 0) {
-                                                    BoundingBox bb = record.getGeometry().getBox();
-                                                    if (bb.isPointInBox(mapX, mapY)) {
-                                                        g2.setColor(selectionBoxColour);
-                                                        polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, 5);
-                                                        xPoint = (float) (viewAreaULX + (bb.getMinX() - leftCoord) / EWRange * viewAreaWidth);
-                                                        yPoint = (float) (viewAreaULY + (topCoord - bb.getMinY()) / NSRange * viewAreaHeight);
-                                                        float xPoint2 = (float) (viewAreaULX + (bb.getMaxX() - leftCoord) / EWRange * viewAreaWidth);
-                                                        float yPoint2 = (float) (viewAreaULY + (topCoord - bb.getMaxY()) / NSRange * viewAreaHeight);
-                                                        polyline.moveTo(xPoint, yPoint);
-                                                        polyline.lineTo(xPoint, yPoint2);
-                                                        polyline.lineTo(xPoint2, yPoint2);
-                                                        polyline.lineTo(xPoint2, yPoint);
-                                                        polyline.lineTo(xPoint, yPoint);
-
-                                                        g2.draw(polyline);
-
-                                                        Ellipse2D circle = new Ellipse2D.Double(xPoint + (xPoint2 - xPoint) / 2 - 2, yPoint + (yPoint2 - yPoint) / 2 - 2, 4, 4);
-                                                        g2.fill(circle);
-
-                                                    }
-                                                }
-                                            }
-                                        }
-                                        g2.setStroke(oldStroke);
-                                        break;
-
-                                    case POLYGON:
-                                    case POLYGONZ:
-                                    case POLYGONM:
-
-                                        colours = layer.getColourData();
-                                        for (ShapeFileRecord record : records) {
-                                            r = record.getRecordNumber() - 1;
-                                            if (record.getShapeType() != ShapeType.NULLSHAPE) {
-
-                                                partStart = record.getGeometry().getParts();
-                                                points = record.getGeometry().getPoints();
-                                                int numParts = partStart.length;
-
-                                                if (layer.isFilled()) {
-                                                    polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, points.length);
-                                                    for (int p = 0; p < numParts; p++) {
-                                                        pointSt = partStart[p];
-                                                        if (p < numParts - 1) {
-                                                            pointEnd = partStart[p + 1];
-                                                        } else {
-                                                            pointEnd = points.length;
-                                                        }
-                                                        xPoints = new float[pointEnd - pointSt];
-                                                        yPoints = new float[pointEnd - pointSt];
-                                                        for (int k = pointSt; k < pointEnd; k++) {
-                                                            xPoints[k - pointSt] = (float) (viewAreaULX + (points[k][0] - leftCoord) / EWRange * viewAreaWidth);
-                                                            yPoints[k - pointSt] = (float) (viewAreaULY + (topCoord - points[k][1]) / NSRange * viewAreaHeight);
-                                                        }
-                                                        //System.out.println(r + " " + p);
-                                                        polyline.moveTo(xPoints[0], yPoints[0]);
-
-                                                        for (int index = 1; index < xPoints.length; index++) {
-                                                            polyline.lineTo(xPoints[index], yPoints[index]);
-                                                        }
-                                                        polyline.closePath();
-                                                    }
-                                                    g2.setColor(colours[r]);
-                                                    g2.fill(polyline);
-                                                }
-
-                                                if ((layer.isOutlined() || (activeLayerBool && isActivelyEdited)) && 
-                                                        !(layer.isFeatureSelected(record.getRecordNumber()) & activeLayerBool)) {
-                                                    g2.setColor(lineColour);
-                                                    myStroke = new BasicStroke(layer.getLineThickness(), BasicStroke.CAP_BUTT,
-                                                            BasicStroke.JOIN_ROUND);
-                                                    if (layer.isDashed()) {
-                                                        myStroke
-                                                                = new BasicStroke(layer.getLineThickness(),
-                                                                        BasicStroke.CAP_BUTT,
-                                                                        BasicStroke.JOIN_ROUND,
-                                                                        10.0f, layer.getDashArray(), 0.0f);
-                                                    }
-                                                    oldStroke = g2.getStroke();
-                                                    g2.setStroke(myStroke);
-
-                                                    for (int p = 0; p < numParts; p++) {
-                                                        pointSt = partStart[p];
-                                                        if (p < numParts - 1) {
-                                                            pointEnd = partStart[p + 1];
-                                                        } else {
-                                                            pointEnd = points.length;
-                                                        }
-                                                        xPoints = new float[pointEnd - pointSt];
-                                                        yPoints = new float[pointEnd - pointSt];
-                                                        for (int k = pointSt; k < pointEnd; k++) {
-                                                            xPoints[k - pointSt] = (float) (viewAreaULX + (points[k][0] - leftCoord) / EWRange * viewAreaWidth);
-                                                            yPoints[k - pointSt] = (float) (viewAreaULY + (topCoord - points[k][1]) / NSRange * viewAreaHeight);
-                                                        }
-                                                        polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, xPoints.length);
-                                                        polyline.moveTo(xPoints[0], yPoints[0]);
-
-                                                        for (int index = 1; index < xPoints.length; index++) {
-                                                            polyline.lineTo(xPoints[index], yPoints[index]);
-                                                        }
-                                                        g2.draw(polyline);
-                                                    }
-
-                                                    if (activeLayerBool && isActivelyEdited) {
-                                                        if (xPoints.length > 0) {
-                                                            g2.setColor(Color.RED);
-                                                            GeneralPath polyline2;
-                                                            float xSize = 2.5f;
-                                                            oldStroke = g2.getStroke();
-                                                            g2.setStroke(new BasicStroke(0.5f));
-                                                            for (int index = 0; index < xPoints.length; index++) {
-                                                                polyline2 = new GeneralPath(GeneralPath.WIND_EVEN_ODD, 4);
-                                                                polyline2.moveTo(xPoints[index] - xSize, yPoints[index] - xSize);
-                                                                polyline2.lineTo(xPoints[index] + xSize, yPoints[index] + xSize);
-                                                                polyline2.moveTo(xPoints[index] + xSize, yPoints[index] - xSize);
-                                                                polyline2.lineTo(xPoints[index] - xSize, yPoints[index] + xSize);
-                                                                g2.draw(polyline2);
-                                                            }
-                                                            g2.setStroke(oldStroke);
-                                                            g2.setColor(lineColour);
-                                                        }
-                                                    }
-                                                    g2.setStroke(oldStroke);
-                                                }
-                                            }
-                                        }
-
-                                        if (activeLayerBool) { // && layer.getNumSelectedFeatures() > 0) { //backgroundMouseMode == MOUSE_MODE_FEATURE_SELECT && 
-                                            g2.setColor(selectedFeatureColour);
-                                            myStroke = new BasicStroke(layer.getLineThickness(), BasicStroke.CAP_BUTT,
-                                                            BasicStroke.JOIN_ROUND);
-                                            oldStroke = g2.getStroke();
-                                            g2.setStroke(myStroke);
-                                            for (ShapeFileRecord record : records) {
-                                                if (layer.isFeatureSelected(record.getRecordNumber())) {
-                                                    partStart = record.getGeometry().getParts();
-                                                    points = record.getGeometry().getPoints();
-                                                    int numParts = partStart.length;
-                                                    for (int p = 0; p < numParts; p++) {
-                                                        pointSt = partStart[p];
-                                                        if (p < numParts - 1) {
-                                                            pointEnd = partStart[p + 1];
-                                                        } else {
-                                                            pointEnd = points.length;
-                                                        }
-                                                        xPoints = new float[pointEnd - pointSt];
-                                                        yPoints = new float[pointEnd - pointSt];
-                                                        for (int k = pointSt; k < pointEnd; k++) {
-                                                            xPoints[k - pointSt] = (float) (viewAreaULX + (points[k][0] - leftCoord) / EWRange * viewAreaWidth);
-                                                            yPoints[k - pointSt] = (float) (viewAreaULY + (topCoord - points[k][1]) / NSRange * viewAreaHeight);
-                                                        }
-                                                        polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, xPoints.length);
-                                                        polyline.moveTo(xPoints[0], yPoints[0]);
-
-                                                        for (int index = 1; index < xPoints.length; index++) {
-                                                            polyline.lineTo(xPoints[index], yPoints[index]);
-                                                        }
-                                                        g2.draw(polyline);
-                                                    }
-                                                }
-
-                                                if (backgroundMouseMode == MOUSE_MODE_FEATURE_SELECT) {
-                                                    BoundingBox bb = record.getGeometry().getBox();
-
-                                                    if (bb.isPointInBox(mapX, mapY)) {
-                                                        g2.setColor(selectionBoxColour);
-                                                        polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD, 5);
-                                                        xPoint = (float) (viewAreaULX + (bb.getMinX() - leftCoord) / EWRange * viewAreaWidth);
-                                                        yPoint = (float) (viewAreaULY + (topCoord - bb.getMinY()) / NSRange * viewAreaHeight);
-                                                        float xPoint2 = (float) (viewAreaULX + (bb.getMaxX() - leftCoord) / EWRange * viewAreaWidth);
-                                                        float yPoint2 = (float) (viewAreaULY + (topCoord - bb.getMaxY()) / NSRange * viewAreaHeight);
-                                                        polyline.moveTo(xPoint, yPoint);
-                                                        polyline.lineTo(xPoint, yPoint2);
-                                                        polyline.lineTo(xPoint2, yPoint2);
-                                                        polyline.lineTo(xPoint2, yPoint);
-                                                        polyline.lineTo(xPoint, yPoint);
-
-                                                        g2.draw(polyline);
-
-                                                        Ellipse2D circle = new Ellipse2D.Double(xPoint + (xPoint2 - xPoint) / 2 - 2, yPoint + (yPoint2 - yPoint) / 2 - 2, 4, 4);
-                                                        g2.fill(circle);
-
-                                                        g2.setColor(selectedFeatureColour);
-                                                    }
-                                                }
-                                            }
-                                            
-                                            g2.setStroke(oldStroke);
+                                // the layer being edited changes with every node, so it is neither indexed nor cached
+                                boolean isActivelyEdited = activeLayerBool && layer.isActivelyEdited();
+                                ArrayList<ShapeFileRecord> records;
+                                VectorLayerIndex index = null;
+                                GeometryPyramid pyramid = null;
+                                int level = -1;
+                                ProjectedGeometry projected = null;
+                                LayerImageCache.Key key = null;
+                                if (isActivelyEdited) {
+                                    layer.setCurrentExtent(layerCE, minDistinguishableLength);
+                                    records = layer.getData();
+                                    layerIndices.remove(layer);
+                                    layerImages.invalidate(layer);
+                                } else {
+                                    index = getLayerIndex(layer);
+                                    records = index.getRecords(layerCE, minDistinguishableLength);
+                                    // lines and polygons are drawn simplified to half a device pixel,
+                                    // except when printing or exporting, which get every vertex
+                                    ShapeType baseType = layer.getShapeType().getBaseType();
+                                    if (!printingMap && (baseType == ShapeType.POLYLINE || baseType == ShapeType.POLYGON)) {
+                                        double devicePixel = 1.0 / (mapScale * Math.sqrt(Math.abs(g2.getTransform().getDeterminant())));
+                                        pyramid = index.getPyramid();
+                                        level = pyramid.getLevel(0.5 * devicePixel);
+                                        // the points in page units are kept until the scale changes, so a pan only moves them
+                                        projected = index.getProjected();
+                                        projected.setView(viewAreaWidth / (mapExtent.getMaxX() - mapExtent.getMinX()),
+                                                viewAreaHeight / (mapExtent.getMaxY() - mapExtent.getMinY()),
+                                                level, mapExtent.getMinX(), mapExtent.getMaxY());
+                                    }
+                                }
+                                if (!isActivelyEdited && !printingMap) {
+                                    // the index stands for the version of the records: it is replaced
+                                    // when they change in number or the layer image is invalidated
+                                    key = new LayerImageCache.Key(g2.getTransform(),
+                                            viewAreaULX, viewAreaULY, viewAreaWidth, viewAreaHeight,
+                                            mapExtent.getMinX(), mapExtent.getMinY(), mapExtent.getMaxX(), mapExtent.getMaxY(),
+                                            isClipped, minDistinguishableLength, layer.getShapeType(), index,
+                                            layer.getColourData(), layer.getLineColour(), layer.getAlpha(),
+                                            layer.getLineThickness(), layer.isFilled(), layer.isOutlined(),
+                                            layer.isDashed(), layer.getDashArray(), layer.getMarkerStyle(), layer.getMarkerSize());
+                                }
+                                if (key == null || !layerImages.drawCached(g2, layer, key)) {
+                                    Graphics2D lg = null;
+                                    if (key != null) {
+                                        // an unclipped layer may draw markers and lines a little past the view area
+                                        double pad = isClipped ? 0 : layer.getMarkerSize() + layer.getLineThickness() + 1;
+                                        lg = layerImages.createGraphics(g2, layer, new Rectangle2D.Double(viewAreaULX - pad,
+                                                viewAreaULY - pad, viewAreaWidth + 2 * pad, viewAreaHeight + 2 * pad));
+                                    }
+                                    if (lg == null) {
+                                        drawVectorFeatures(g2, layer, records, pyramid, level, projected, isActivelyEdited,
+                                                viewAreaULX, viewAreaULY, viewAreaWidth, viewAreaHeight);
+                                    } else {
+                                        if (isClipped) {
+                                            lg.clip(rect);
                                         }
-                                        break;
-
-                                    case MULTIPATCH:
-                                        // this vector type is unsupported
-                                        break;
+                                        drawVectorFeatures(lg, layer, records, pyramid, level, projected, false,
+                                                viewAreaULX, viewAreaULY, viewAreaWidth, viewAreaHeight);
+                                        lg.dispose();
+                                        layerImages.commit(g2, layer, key);
+                                    }
+                                }
+                                if (activeLayerBool) {
+                                    drawVectorSelection(g2, layer, records, index, isActivelyEdited,
+                                            viewAreaULX, viewAreaULY, viewAreaWidth, viewAreaHeight);
                                 }
                                 if (isClipped) {
                                     g2.setClip(oldClip);
@@ -2666,6 +2326,396 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
         }
     }
 
+    /**
+     * Draws the features of a vector layer within the current map extent.
+     * Selected features are drawn over them by drawVectorSelection().
+     *
+     * @param records: Records of the layer within the current map extent.
+     * @param pyramid: Simplified lines and polygons of the layer, or null.
+     * @param level: Level of pyramid to draw, or -1 to draw every vertex.
+     * @param projected: Points of the layer in page units for this view, or
+     * null to convert the points of each record.
+     * @param isActivelyEdited: True if the layer is the active layer and is
+     * being edited, to draw the nodes of each feature.
+     */
+    private void drawVectorFeatures(Graphics2D g2, VectorLayerInfo layer, ArrayList<ShapeFileRecord> records,
+            GeometryPyramid pyramid, int level, ProjectedGeometry projected, boolean isActivelyEdited,
+            int viewAreaULX, int viewAreaULY, int viewAreaWidth, int viewAreaHeight) {
+        VectorStyle style = getLayerStyle(layer);
+        PathBuilder builder = pathBuilder;
+        builder.setView(mapExtent, viewAreaULX, viewAreaULY, viewAreaWidth, viewAreaHeight);
+        Stroke oldStroke = g2.getStroke();
+        AffineTransform oldTransform = g2.getTransform();
+        if (projected != null) {
+            // the projected points are measured from their origin, wherever a pan has moved it
+            g2.translate(builder.toPageX(projected.getOriginX()), builder.toPageY(projected.getOriginY()));
+        }
+        int r;
+        Color lineColour = style.getLineColour();
+        double x1, y1;
+        double topCoord = mapExtent.getMaxY();
+        double bottomCoord = mapExtent.getMinY();
+        double leftCoord = mapExtent.getMinX();
+        double rightCoord = mapExtent.getMaxX();
+        double[][] xyData;
+        Color[] colours = layer.getColourData();
+        boolean isFilled = layer.isFilled();
+        boolean isOutlined = layer.isOutlined();
+        int[] partStart;
+        double[][] points;
+        Path2D.Float path;
+
+        switch (layer.getShapeType()) {
+
+            case POINT:
+            case POINTZ:
+            case POINTM:
+            case MULTIPOINT:
+            case MULTIPOINTZ:
+            case MULTIPOINTM:
+                xyData = PointMarkers.getMarkerData(layer.getMarkerStyle(), layer.getMarkerSize());
+                g2.setStroke(style.getMarkerStroke());
+                // the nodes of an edited layer are drawn in place of its markers
+                builder.reset();
+                for (ShapeFileRecord record : records) {
+                    r = record.getRecordNumber() - 1;
+                    if (record.getShapeType() != ShapeType.NULLSHAPE) {
+                        points = record.getGeometry().getPoints();
+                        for (int p = 0; p < points.length; p++) {
+                            x1 = points[p][0];
+                            y1 = points[p][1];
+                            if (y1 < bottomCoord || x1 < leftCoord
+                                    || y1 > topCoord || x1 > rightCoord) {
+                                // It's not within the map area; do nothing.
+                            } else {
+                                x1 = builder.toPageX(x1);
+                                y1 = builder.toPageY(y1);
+                                if (isActivelyEdited) {
+                                    builder.addNode(x1, y1);
+                                } else {
+                                    path = builder.marker(xyData, x1, y1);
+                                    if (isFilled) {
+                                        g2.setColor(colours[r]);
+                                        g2.fill(path);
+                                    }
+                                    if (isOutlined) {
+                                        g2.setColor(lineColour);
+                                        g2.draw(path);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+                if (isActivelyEdited) {
+                    g2.setColor(Color.RED);
+                    g2.setStroke(VectorStyle.NODE_STROKE);
+                    g2.draw(builder.getNodes());
+                }
+                break;
+
+            case POLYLINE:
+            case POLYLINEZ:
+            case POLYLINEM:
+                g2.setStroke(style.getLineStroke());
+                for (ShapeFileRecord record : records) {
+                    r = record.getRecordNumber() - 1;
+                    if (record.getShapeType() != ShapeType.NULLSHAPE) {
+                        if (level >= 0) {
+                            GeometryPyramid.Simplified simplified = pyramid.get(record, level);
+                            partStart = simplified.parts;
+                            points = simplified.points;
+                        } else {
+                            partStart = record.getGeometry().getParts();
+                            points = record.getGeometry().getPoints();
+                        }
+                        path = builder.reset();
+                        addParts(builder, projected, record, points, partStart, false, isActivelyEdited);
+                        g2.setColor(colours[r]);
+                        g2.draw(path);
+                        if (isActivelyEdited) {
+                            g2.setColor(Color.RED);
+                            g2.setStroke(VectorStyle.NODE_STROKE);
+                            g2.draw(builder.getNodes());
+                            g2.setStroke(style.getLineStroke());
+                        }
+                    }
+                }
+                break;
+
+            case POLYGON:
+            case POLYGONZ:
+            case POLYGONM:
+                g2.setStroke(style.getLineStroke());
+                for (ShapeFileRecord record : records) {
+                    r = record.getRecordNumber() - 1;
+                    if (record.getShapeType() != ShapeType.NULLSHAPE) {
+                        if (level >= 0) {
+                            GeometryPyramid.Simplified simplified = pyramid.get(record, level);
+                            partStart = simplified.parts;
+                            points = simplified.points;
+                        } else {
+                            partStart = record.getGeometry().getParts();
+                            points = record.getGeometry().getPoints();
+                        }
+                        if (isFilled) {
+                            path = builder.reset();
+                            addParts(builder, projected, record, points, partStart, true, false);
+                            g2.setColor(colours[r]);
+                            g2.fill(path);
+                        }
+
+                        if (isOutlined || isActivelyEdited) {
+                            path = builder.reset();
+                            addParts(builder, projected, record, points, partStart, false, isActivelyEdited);
+                            g2.setColor(lineColour);
+                            g2.draw(path);
+                            if (isActivelyEdited) {
+                                g2.setColor(Color.RED);
+                                g2.setStroke(VectorStyle.NODE_STROKE);
+                                g2.draw(builder.getNodes());
+                                g2.setStroke(style.getLineStroke());
+                            }
+                        }
+                    }
+                }
+                break;
+
+            case MULTIPATCH:
+                // this vector type is unsupported
+                break;
+        }
+        g2.setStroke(oldStroke);
+        g2.setTransform(oldTransform);
+    }
+
+    /**
+     * Adds the parts of a record to the path of builder, from its projected
+     * points when there are any.
+     */
+    private static void addParts(PathBuilder builder, ProjectedGeometry projected, ShapeFileRecord record,
+            double[][] points, int[] partStart, boolean close, boolean markNodes) {
+        int numParts = partStart.length;
+        if (projected != null && !markNodes) {
+            float[] xy = projected.get(record, points);
+            for (int p = 0; p < numParts; p++) {
+                builder.addPart(xy, partStart[p], p < numParts - 1 ? partStart[p + 1] : points.length, close);
+            }
+        } else {
+            for (int p = 0; p < numParts; p++) {
+                builder.addPart(points, partStart[p], p < numParts - 1 ? partStart[p + 1] : points.length, close, markNodes);
+            }
+        }
+    }
+
+    /**
+     * Draws the selected features of the active vector layer and, when
+     * selecting features, the box of the feature under the mouse. Neither is
+     * part of the cached image of the layer, as both change without any
+     * change to the layer.
+     *
+     * @param records: Records of the layer within the current map extent.
+     * @param index: Index of the layer, or null if the layer is being edited.
+     * @param isActivelyEdited: True if the layer is being edited.
+     */
+    private void drawVectorSelection(Graphics2D g2, VectorLayerInfo layer, ArrayList<ShapeFileRecord> records,
+            VectorLayerIndex index, boolean isActivelyEdited,
+            int viewAreaULX, int viewAreaULY, int viewAreaWidth, int viewAreaHeight) {
+        boolean hasSelection = layer.getNumSelectedFeatures() > 0;
+        boolean showBox = backgroundMouseMode == MOUSE_MODE_FEATURE_SELECT;
+        if (!hasSelection && !showBox) {
+            return;
+        }
+        VectorStyle style = getLayerStyle(layer);
+        PathBuilder builder = pathBuilder;
+        builder.setView(mapExtent, viewAreaULX, viewAreaULY, viewAreaWidth, viewAreaHeight);
+        double x1, y1;
+        double topCoord = mapExtent.getMaxY();
+        double bottomCoord = mapExtent.getMinY();
+        double leftCoord = mapExtent.getMinX();
+        double rightCoord = mapExtent.getMaxX();
+        double[][] xyData;
+        double[][] points;
+        int[] partStart;
+        int pointEnd;
+        Path2D.Float path;
+        Stroke oldStroke = g2.getStroke();
+
+        switch (layer.getShapeType()) {
+            case POINT:
+            case POINTZ:
+            case POINTM:
+            case MULTIPOINT:
+            case MULTIPOINTZ:
+            case MULTIPOINTM:
+                // the nodes of an edited layer are drawn in place of its markers
+                if (!hasSelection || isActivelyEdited) {
+                    break;
+                }
+                xyData = PointMarkers.getMarkerData(layer.getMarkerStyle(), layer.getMarkerSize());
+                g2.setStroke(style.getMarkerStroke());
+                g2.setColor(selectedFeatureColour);
+                for (ShapeFileRecord record : records) {
+                    if (record.getShapeType() != ShapeType.NULLSHAPE && layer.isFeatureSelected(record.getRecordNumber())) {
+                        points = record.getGeometry().getPoints();
+                        for (int p = 0; p < points.length; p++) {
+                            x1 = points[p][0];
+                            y1 = points[p][1];
+                            if (y1 >= bottomCoord && x1 >= leftCoord
+                                    && y1 <= topCoord && x1 <= rightCoord) {
+                                g2.draw(builder.marker(xyData, builder.toPageX(x1), builder.toPageY(y1)));
+                            }
+                        }
+                    }
+                }
+                break;
+
+            case POLYLINE:
+            case POLYLINEZ:
+            case POLYLINEM:
+            case POLYGON:
+            case POLYGONZ:
+            case POLYGONM:
+                boolean isPolyline = layer.getShapeType().getBaseType() == ShapeType.POLYLINE;
+                g2.setStroke(isPolyline ? style.getLineStroke() : style.getSolidStroke());
+                g2.setColor(selectedFeatureColour);
+                if (hasSelection) {
+                    for (ShapeFileRecord record : records) {
+                        if (record.getShapeType() != ShapeType.NULLSHAPE && layer.isFeatureSelected(record.getRecordNumber())) {
+                            partStart = record.getGeometry().getParts();
+                            points = record.getGeometry().getPoints();
+                            path = builder.reset();
+                            for (int p = 0; p < partStart.length; p++) {
+                                pointEnd = p < partStart.length - 1 ? partStart[p + 1] : points.length;
+                                builder.addPart(points, partStart[p], pointEnd, false, false);
+                            }
+                            g2.draw(path);
+                        }
+                    }
+                }
+
+                if (showBox) {
+                    g2.setColor(selectionBoxColour);
+                    // the index finds the records under the mouse without a pass over the layer
+                    for (ShapeFileRecord record : index != null ? index.getRecordsContaining(mapX, mapY) : records) {
+                        if (record.getShapeType() == ShapeType.NULLSHAPE) {
+                            continue;
+                        }
+                        BoundingBox bb = record.getGeometry().getBox();
+                        if (bb.isPointInBox(mapX, mapY)) {
+                            float xPoint = (float) builder.toPageX(bb.getMinX());
+                            float yPoint = (float) builder.toPageY(bb.getMinY());
+                            float xPoint2 = (float) builder.toPageX(bb.getMaxX());
+                            float yPoint2 = (float) builder.toPageY(bb.getMaxY());
+                            path = builder.reset();
+                            path.moveTo(xPoint, yPoint);
+                            path.lineTo(xPoint, yPoint2);
+                            path.lineTo(xPoint2, yPoint2);
+                            path.lineTo(xPoint2, yPoint);
+                            path.lineTo(xPoint, yPoint);
+
+                            g2.draw(path);
+
+                            Ellipse2D circle = new Ellipse2D.Double(xPoint + (xPoint2 - xPoint) / 2 - 2, yPoint + (yPoint2 - yPoint) / 2 - 2, 4, 4);
+                            g2.fill(circle);
+                        }
+                    }
+                }
+                break;
+
+            default:
+                break;
+        }
+        g2.setStroke(oldStroke);
+    }
+
+    /**
+     * Returns the strokes and line colour of a vector layer, made again when
+     * its symbology has changed.
+     */
+    private VectorStyle getLayerStyle(VectorLayerInfo layer) {
+        VectorStyle style = VectorStyle.forLayer(layer, layerStyles.get(layer));
+        layerStyles.put(layer, style);
+        return style;
+    }
+
+    /**
+     * Returns the index of a vector layer, building it when the layer is
+     * first drawn or its records have changed.
+     */
+    private VectorLayerIndex getLayerIndex(VectorLayerInfo layer) {
+        VectorLayerIndex index = VectorLayerIndex.forLayer(layer, layerIndices.get(layer));
+        layerIndices.put(layer, index);
+        return index;
+    }
+
+    /**
+     * Returns the active layer of a map area if its features can be selected
+     * through its index, or null if it is not a vector layer or is being
+     * edited, in which case the map area selects the features itself.
+     */
+    private VectorLayerInfo getIndexedActiveLayer(MapArea mapArea) {
+        MapLayer layer = mapArea.getActiveLayer();
+        if (layer == null || layer.getLayerType() != MapLayer.MapLayerType.VECTOR) {
+            return null;
+        }
+        VectorLayerInfo vli = (VectorLayerInfo) layer;
+        return vli.isActivelyEdited() ? null : vli;
+    }
+
+    /**
+     * Selects the feature of the active layer under a point. A click within
+     * SELECTION_TOLERANCE screen pixels of a point or line selects it.
+     *
+     * @param addToSelection: True to keep the features already selected.
+     */
+    private void selectVectorFeatures(MapArea mapArea, double x, double y, boolean addToSelection) {
+        VectorLayerInfo layer = getIndexedActiveLayer(mapArea);
+        if (layer == null) {
+            mapArea.selectVectorFeatures(x, y);
+            return;
+        }
+        int referenceMarkSize = mapArea.getReferenceMarksSize();
+        double viewAreaWidth = mapArea.getLowerRightX() - mapArea.getUpperLeftX() - 2 * referenceMarkSize;
+        if (mapArea.isSizeMaximizedToScreenSize() && !printingMap) {
+            viewAreaWidth = (int) (w / scale - 2 * referenceMarkSize);
+        }
+        BoundingBox currentExtent = mapArea.getCurrentMapExtent();
+        double tolerance = SELECTION_TOLERANCE / scale
+                * (currentExtent.getMaxX() - currentExtent.getMinX()) / viewAreaWidth;
+        ShapeFileRecord record = getLayerIndex(layer).getRecordAt(x, y, tolerance);
+        if (!addToSelection) {
+            layer.clearSelectedFeatures();
+        }
+        if (record != null && !layer.isFeatureSelected(record.getRecordNumber())) {
+            layer.setSelectedFeatureNumber(record.getRecordNumber());
+        }
+        this.repaint();
+    }
+
+    /**
+     * Selects the features of the active layer with a point, line or area
+     * within a box.
+     *
+     * @param addToSelection: True to keep the features already selected.
+     */
+    private void selectVectorFeaturesByBox(MapArea mapArea, BoundingBox bb, boolean addToSelection) {
+        VectorLayerInfo layer = getIndexedActiveLayer(mapArea);
+        if (layer == null) {
+            mapArea.selectVectorFeaturesByBox(bb);
+            return;
+        }
+        if (!addToSelection) {
+            layer.clearSelectedFeatures();
+        }
+        for (ShapeFileRecord record : getLayerIndex(layer).getRecordsIntersecting(bb)) {
+            if (!layer.isFeatureSelected(record.getRecordNumber())) {
+                layer.setSelectedFeatureNumber(record.getRecordNumber());
+            }
+        }
+        this.repaint();
+    }
+
     private double calculateArea() {
         int numPoints;
         double x1, y1, x2, y2;
@@ -3004,6 +3054,7 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
                     if (clickCount == 2) {
                         try {
                             vli.closeNewFeature(mapX, mapY);
+                            invalidateLayerImage(vli);
                             distPoints.clear();
                             if (host instanceof WhiteboxGui) {
                                 WhiteboxGui wb = (WhiteboxGui) host;
@@ -3015,6 +3066,7 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
                     } else {
                         try {
                             vli.addNodeToNewFeature(mapX, mapY);
+                            invalidateLayerImage(vli);
                         } catch (Exception e) {
                             Logger.getLogger(MapRenderer.class.getName()).log(Level.SEVERE, null, e);
                         }
@@ -3244,7 +3296,7 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
             if (myMode == MOUSE_MODE_MAPAREA) { //map.getCartographicElement(whichCartoElement) instanceof MapArea) {
                 MapArea mapArea = (MapArea) map.getCartographicElement(whichCartoElement);
                 if (mapArea != null) {
-                    mapArea.selectVectorFeatures(mapX, mapY);
+                    selectVectorFeatures(mapArea, mapX, mapY, me.isShiftDown());
                     updateStatus(me, mapArea);
                 }
             }
@@ -3449,7 +3501,7 @@ public class MapRenderer extends JPanel implements Printable, MouseMotionListene
                             Math.min(mapY, mapYEnd),
                             Math.max(mapX, mapXEnd),
                             Math.max(mapY, mapYEnd));
-                    mapArea.selectVectorFeaturesByBox(bb);
+                    selectVectorFeaturesByBox(mapArea, bb, e.isShiftDown());
                 } else if (backgroundMouseMode == MOUSE_MODE_ZOOM) {
                     BoundingBox bb = new BoundingBox(Math.min(mapX, mapXEnd),
                             Math.min(mapY, mapYEnd),
@@ -0,0 +1,217 @@
+package websinterface;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * PackedRTree Class
+ *
+ * @author radfordd
+ *
+ * PackedRTree is a read-only R-tree over a fixed set of bounding boxes, bulk
+ * loaded with Sort-Tile-Recursive packing. Each level is sorted into vertical
+ * slices by the x of the box centres, each slice by y, and every NODE_SIZE
+ * consecutive entries get one parent, so nodes are full and overlap little.
+ *
+ * The tree is stored in flat arrays, level by level from the items up to the
+ * root. The children of a node are the consecutive entries starting at its
+ * pointer, so a search walks the arrays without any node objects.
+ */
+class PackedRTree {
+    static final int NODE_SIZE = 16;
+    private final int size;
+    // minX, minY, maxX, maxY of each entry.
+    private final double[] boxes;
+    // Item number of each item, or first child of each node.
+    private final int[] pointers;
+    // End of each level in the arrays; level 0 holds the items.
+    private final int[] levelEnds;
+    private int[] stack = new int[64];
+
+    /**
+     * Each Array holds one entry for each item.
+     *
+     * @param minX: Smallest x of each item.
+     * @param minY: Smallest y of each item.
+     * @param maxX: Largest x of each item.
+     * @param maxY: Largest y of each item.
+     */
+
+    public PackedRTree(double[] minX, double[] minY, double[] maxX, double[] maxY) {
+        size = minX.length;
+        int total = size;
+        int levels = 1;
+        for(int n = size; n > 1; n = (n + NODE_SIZE - 1) / NODE_SIZE) {
+            total += (n + NODE_SIZE - 1) / NODE_SIZE;
+            levels++;
+        }
+        boxes = new double[4 * total];
+        pointers = new int[total];
+        levelEnds = new int[size > 1 ? levels : 1];
+        for(int i = 0; i < size; i++) {
+            boxes[4 * i] = minX[i];
+            boxes[4 * i + 1] = minY[i];
+            boxes[4 * i + 2] = maxX[i];
+            boxes[4 * i + 3] = maxY[i];
+            pointers[i] = i;
+        }
+        levelEnds[0] = size;
+        int start = 0, end = size, level = 1;
+        while(end - start > 1) {
+            sortTiles(start, end);
+            int pos = end;
+            for(int i = start; i < end; i += NODE_SIZE) {
+                int last = Math.min(i + NODE_SIZE, end);
+                double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+                double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+                for(int c = i; c < last; c++) {
+                    x0 = Math.min(x0, boxes[4 * c]);
+                    y0 = Math.min(y0, boxes[4 * c + 1]);
+                    x1 = Math.max(x1, boxes[4 * c + 2]);
+                    y1 = Math.max(y1, boxes[4 * c + 3]);
+                }
+                boxes[4 * pos] = x0;
+                boxes[4 * pos + 1] = y0;
+                boxes[4 * pos + 2] = x1;
+                boxes[4 * pos + 3] = y1;
+                pointers[pos] = i;
+                pos++;
+            }
+            levelEnds[level++] = pos;
+            start = end;
+            end = pos;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the items whose box intersects a query box, edges included.
+     *
+     * @param minX: Smallest x of the query box.
+     * @param minY: Smallest y of the query box.
+     * @param maxX: Largest x of the query box.
+     * @param maxY: Largest y of the query box.
+     * @param hits: Hits receiving the item numbers, in ascending order.
+     *              Its previous contents are replaced.
+     */
+
+    public void search(double minX, double minY, double maxX, double maxY, Hits hits) {
+        hits.count = 0;
+        if(size == 0) {
+            return;
+        }
+        int top = 0;
+        stack[top++] = pointers.length - 1;
+        while(top > 0) {
+            int node = stack[--top];
+            if(!intersects(node, minX, minY, maxX, maxY)) {
+                continue;
+            }
+            if(node < size) {
+                hits.add(pointers[node]);
+                continue;
+            }
+            int level = levelOf(node);
+            int first = pointers[node];
+            int last = Math.min(first + NODE_SIZE, levelEnds[level - 1]);
+            for(int c = first; c < last; c++) {
+                if(level == 1) {
+                    if(intersects(c, minX, minY, maxX, maxY)) {
+                        hits.add(pointers[c]);
+                    }
+                }
+                else {
+                    if(top == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * top);
+                    }
+                    stack[top++] = c;
+                }
+            }
+        }
+        // Items in their original order, as features are drawn.
+        Arrays.sort(hits.ids, 0, hits.count);
+    }
+
+    private boolean intersects(int e, double minX, double minY, double maxX, double maxY) {
+        return boxes[4 * e] <= maxX && boxes[4 * e + 1] <= maxY && boxes[4 * e + 2] >= minX && boxes[4 * e + 3] >= minY;
+    }
+
+    private int levelOf(int pos) {
+        int level = 0;
+        while(pos >= levelEnds[level]) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Orders the entries of one level into Sort-Tile-Recursive tiles: slices
+     * of whole parent nodes by x, and each slice by y.
+     */
+
+    private void sortTiles(int start, int end) {
+        int n = end - start;
+        int parents = (n + NODE_SIZE - 1) / NODE_SIZE;
+        int slices = (int) Math.ceil(Math.sqrt(parents));
+        int sliceSize = NODE_SIZE * ((parents + slices - 1) / slices);
+        double[] cx = new double[n];
+        double[] cy = new double[n];
+        for(int i = 0; i < n; i++) {
+            int e = start + i;
+            cx[i] = boxes[4 * e] / 2.0 + boxes[4 * e + 2] / 2.0;
+            cy[i] = boxes[4 * e + 1] / 2.0 + boxes[4 * e + 3] / 2.0;
+        }
+        Integer[] order = new Integer[n];
+        for(int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        sortBy(order, 0, n, cx);
+        for(int s = 0; s < n; s += sliceSize) {
+            sortBy(order, s, Math.min(s + sliceSize, n), cy);
+        }
+        double[] b = Arrays.copyOfRange(boxes, 4 * start, 4 * end);
+        int[] p = Arrays.copyOfRange(pointers, start, end);
+        for(int i = 0; i < n; i++) {
+            int from = order[i];
+            System.arraycopy(b, 4 * from, boxes, 4 * (start + i), 4);
+            pointers[start + i] = p[from];
+        }
+    }
+
+    private static void sortBy(Integer[] order, int from, int to, final double[] key) {
+        Arrays.sort(order, from, to, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(key[a], key[b]);
+            }
+        });
+    }
+
+    /**
+     * The item numbers found by a search. One Hits can be reused for every
+     * search, so searching allocates nothing once it is large enough.
+     */
+
+    static class Hits {
+        private int[] ids = new int[64];
+        private int count;
+
+        public int size() {
+            return count;
+        }
+
+        public int get(int i) {
+            return ids[i];
+        }
+
+        private void add(int id) {
+            if(count == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * count);
+            }
+            ids[count++] = id;
+        }
+    }
+}
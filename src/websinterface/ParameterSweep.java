@@ -0,0 +1,288 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ParameterSweep Class
+ *
+ * @author radfordd
+ *
+ * ParameterSweep evaluates the yearly BMP costs and net return of the
+ * Historical scenario over a grid of cost parameters, without building a
+ * scenario database for each point. The parameters are factors applied to the
+ * LifeTime of the small dams, the Pond_Yrs of the holding ponds and the
+ * UnitCost of the grazing areas; a factor of 1 gives the costs of the base
+ * scenario. The DBF tables and the crop net return are loaded once, and the
+ * grid points are evaluated in parallel.
+ *
+ * From the command line:
+ *
+ *      java -cp WEBsInterface.jar websinterface.ParameterSweep
+ *           [--life-time F] [--pond-yrs F] [--unit-cost F] project.wbprj output.db3
+ *
+ * where each F is a comma separated list of factors, such as 0.8,1,1.2, or a
+ * range start:end:step, such as 0.5:1.5:0.1. A parameter without a list is
+ * kept at 1. The DBF tables and Spatial.db3 are those of the project file,
+ * and every point is written to the sweep_results table of the output
+ * database.
+ */
+public class ParameterSweep {
+    static final String RESULTS = "sweep_results";
+    static final String[] COLUMNS = {"life_time_factor", "pond_yrs_factor", "unit_cost_factor", "small_dams_cost",
+                                     "holding_ponds_cost", "grazing_cost", "bmp_cost", "crop_net_return", "net_return"};
+    // Numerator of the small dam cost of each dam, the cost for a LifeTime of 1.
+    private final double[] damCost;
+    private final double[] damLife;
+    private final double[] pondBase;
+    private final double[] pondYears;
+    private final double[] pondMaintenance;
+    private final double grazingCost;
+    private final int bmps;
+    private final double cropNetReturn;
+
+    /**
+     *
+     * @param dams: ColumnTable containing the Small Dam data (ID, Embankment, LifeTime).
+     * @param ponds: ColumnTable containing the Holding Pond data with costs, from
+     *               ScenarioBuilder.loadPondCosts.
+     * @param grazing: ColumnTable containing the Grazing data with costs, from
+     *                 ScenarioBuilder.loadGrazing.
+     * @param cropNetReturn: Yearly crop net return of the watershed.
+     */
+
+    public ParameterSweep(ColumnTable dams, ColumnTable ponds, ColumnTable grazing, double cropNetReturn) {
+        double[] embankment = dams.toDoubleArray(1);
+        damLife = dams.toDoubleArray(2);
+        damCost = new double[embankment.length];
+        for(int i = 0; i < embankment.length; i++) {
+            damCost[i] = BmpCostEngine.smallDamCost(embankment[i], 1.0);
+        }
+        pondYears = ponds.toDoubleArray(8);
+        pondBase = ponds.toDoubleArray(9);
+        pondMaintenance = ponds.toDoubleArray(11);
+        // UnitCost, the yearly cost written to grazing_economic.
+        double sum = 0.0;
+        for(double v : grazing.toDoubleArray(2)) {
+            sum += v;
+        }
+        grazingCost = sum;
+        bmps = damCost.length + pondBase.length + grazing.getRowCount();
+        this.cropNetReturn = cropNetReturn;
+    }
+
+    /**
+     * Loads the inputs of a sweep.
+     *
+     * @param spatialFolder: Folder holding small_dam.dbf, cattle_yard.dbf and grazing.dbf.
+     * @param spatialDb: Spatial.db3 file holding the yield_historic table.
+     * @param horizon: SimulationHorizon of the project, giving the number of
+     *                 years the crop net return is spread over.
+     * @return The ParameterSweep of the inputs.
+     * @throws ClassNotFoundException: Missing the Library for SQLite version of JDBC.
+     * @throws SQLException: Error reading the yield_historic table.
+     * @throws IOException: Error reading a DBF table.
+     */
+
+    public static ParameterSweep load(File spatialFolder, File spatialDb, SimulationHorizon horizon)
+            throws ClassNotFoundException, SQLException, IOException {
+        ColumnTable dams = new DbfReader(new File(spatialFolder, "small_dam.dbf")).readTable("Existing",
+                new String[]{"ID", "Embankment", "LifeTime"});
+        ColumnTable ponds = ScenarioBuilder.loadPondCosts(new DbfReader(new File(spatialFolder, "cattle_yard.dbf")).readTable("Existing",
+                new String[]{"ID", "HRU", "Cattles", "ClayLiner", "PlasticLn", "WireFence", "Distance", "Trenching", "Pond_Yrs"}));
+        ColumnTable grazing = ScenarioBuilder.loadGrazing(new DbfReader(new File(spatialFolder, "grazing.dbf")).readTable("Existing",
+                new String[]{"ID", "Grazing_Ha", "UnitCost"}));
+        Class.forName("org.sqlite.JDBC");
+        double crop;
+        try(Connection c = DriverManager.getConnection("jdbc:sqlite:" + spatialDb.getAbsolutePath());
+            Statement stmt = c.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT SUM(net_return) FROM yield_historic;");
+            crop = rs.next() ? rs.getDouble(1) : 0.0;
+        }
+        return new ParameterSweep(dams, ponds, grazing, crop / horizon.getYearCount());
+    }
+
+    public int getBmpCount() {
+        return bmps;
+    }
+
+    /**
+     * Evaluates every combination of the factors. Points are ordered by
+     * LifeTime factor, then Pond_Yrs factor, then UnitCost factor.
+     *
+     * @param lifeTime: LifeTime factors of the small dams.
+     * @param pondYrs: Pond_Yrs factors of the holding ponds.
+     * @param unitCost: UnitCost factors of the grazing areas.
+     * @return ColumnTable with one row for each point, in the columns of
+     *         COLUMNS. All costs are yearly, as in the economic tables of the
+     *         Historical scenario, the grazing cost being the sum of UnitCost,
+     *         and net_return is the crop net return less the BMP cost.
+     */
+
+    public ColumnTable evaluate(final double[] lifeTime, final double[] pondYrs, final double[] unitCost) {
+        int n = lifeTime.length * pondYrs.length * unitCost.length;
+        int[] types = new int[COLUMNS.length];
+        final ColumnTable out = new ColumnTable(COLUMNS, types, n);
+        out.setRowCount(n);
+        final double[][] col = new double[COLUMNS.length][];
+        for(int j = 0; j < col.length; j++) {
+            col[j] = out.doubleColumn(j);
+        }
+        BmpCostEngine.run(new BmpCostEngine.Kernel() {
+            @Override
+            void compute(int from, int to) {
+                for(int p = from; p < to; p++) {
+                    double lf = lifeTime[p / (pondYrs.length * unitCost.length)];
+                    double pf = pondYrs[p / unitCost.length % pondYrs.length];
+                    double uf = unitCost[p % unitCost.length];
+                    double dams = 0.0;
+                    for(int i = 0; i < damCost.length; i++) {
+                        dams += damCost[i] / (damLife[i] * lf);
+                    }
+                    double ponds = 0.0;
+                    for(int i = 0; i < pondBase.length; i++) {
+                        ponds += pondBase[i] / (pondYears[i] * pf) + pondMaintenance[i];
+                    }
+                    double grazing = grazingCost * uf;
+                    double bmp = dams + ponds + grazing;
+                    col[0][p] = lf;
+                    col[1][p] = pf;
+                    col[2][p] = uf;
+                    col[3][p] = dams;
+                    col[4][p] = ponds;
+                    col[5][p] = grazing;
+                    col[6][p] = bmp;
+                    col[7][p] = cropNetReturn;
+                    col[8][p] = cropNetReturn - bmp;
+                }
+            }
+        }, n, Math.max(1, BmpCostEngine.SPLIT_THRESHOLD / Math.max(1, getBmpCount())));
+        return out;
+    }
+
+    /**
+     * Replaces the sweep_results table of an output database.
+     *
+     * @param c: Connection to the output database.
+     * @param results: ColumnTable from evaluate().
+     * @throws SQLException: Error writing the table.
+     */
+
+    public static void write(Connection c, ColumnTable results) throws SQLException {
+        boolean auto = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try(Statement stmt = c.createStatement()) {
+            StringBuilder sql = new StringBuilder("CREATE TABLE " + RESULTS + "(");
+            for(String col : COLUMNS) {
+                sql.append(col).append(" real, ");
+            }
+            sql.append("PRIMARY KEY(").append(COLUMNS[0]).append(", ").append(COLUMNS[1]).append(", ").append(COLUMNS[2]).append("));");
+            stmt.executeUpdate("DROP TABLE IF EXISTS " + RESULTS + ";");
+            stmt.executeUpdate(sql.toString());
+            try(BatchedTableWriter w = new BatchedTableWriter(c, RESULTS, COLUMNS)) {
+                results.write(w);
+                w.commit();
+            }
+        } finally {
+            c.setAutoCommit(auto);
+        }
+    }
+
+    /**
+     *
+     * @param spec: Comma separated list of factors, or a range start:end:step.
+     * @return The factors, each greater than 0, with repeated factors given
+     *         once in the order first listed.
+     */
+
+    static double[] parseFactors(String spec) {
+        // Each factor is one row of the results table, keyed by its value.
+        Set<Double> vals = new LinkedHashSet<>();
+        String[] range = spec.split(":");
+        if(range.length == 3) {
+            // Decimal steps, so that 0.5:1.5:0.1 gives 1.2 rather than 1.2000000000000002.
+            BigDecimal start = new BigDecimal(range[0].trim());
+            BigDecimal end = new BigDecimal(range[1].trim());
+            BigDecimal step = new BigDecimal(range[2].trim());
+            if(step.signum() <= 0 || end.compareTo(start) < 0) {
+                throw new IllegalArgumentException("Invalid range: " + spec);
+            }
+            for(BigDecimal v = start; v.compareTo(end) <= 0; v = v.add(step)) {
+                vals.add(v.doubleValue());
+            }
+        }
+        else if(range.length == 1) {
+            for(String s : spec.split(",")) {
+                vals.add(Double.parseDouble(s.trim()));
+            }
+        }
+        else {
+            throw new IllegalArgumentException("Invalid factors: " + spec);
+        }
+        double[] f = new double[vals.size()];
+        int i = 0;
+        for(double v : vals) {
+            if(!(v > 0.0)) {
+                throw new IllegalArgumentException("Factors must be greater than 0: " + spec);
+            }
+            f[i++] = v;
+        }
+        return f;
+    }
+
+    public static void main(String[] args) {
+        double[] life = {1.0}, pond = {1.0}, unit = {1.0};
+        List<String> rest = new ArrayList<>();
+        try {
+            for(int i = 0; i < args.length; i++) {
+                switch(args[i]) {
+                    case "--life-time":
+                        life = parseFactors(args[++i]);
+                        break;
+                    case "--pond-yrs":
+                        pond = parseFactors(args[++i]);
+                        break;
+                    case "--unit-cost":
+                        unit = parseFactors(args[++i]);
+                        break;
+                    default:
+                        rest.add(args[i]);
+                        break;
+                }
+            }
+            if(rest.size() != 2 || !new File(rest.get(0)).isFile()) {
+                throw new IllegalArgumentException("Expected a project file and an output database");
+            }
+        } catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: ParameterSweep [--life-time F] [--pond-yrs F] [--unit-cost F] project.wbprj output.db3");
+            System.exit(2);
+        }
+        WatershedProject project = WatershedProject.forProject(new File(rest.get(0)));
+        try {
+            long t = System.currentTimeMillis();
+            ParameterSweep sweep = load(project.getSpatialFolder(), project.getSpatialDatabase(), project.getHorizon());
+            ColumnTable results = sweep.evaluate(life, pond, unit);
+            try(Connection c = DriverManager.getConnection("jdbc:sqlite:" + new File(rest.get(1)).getAbsolutePath())) {
+                write(c, results);
+            }
+            System.out.println("points\t" + results.getRowCount());
+            System.out.println("millis\t" + (System.currentTimeMillis() - t));
+        } catch(ClassNotFoundException | SQLException | IOException e) {
+            Logger.getLogger(ParameterSweep.class.getName()).log(Level.SEVERE, null, e);
+            System.exit(1);
+        }
+    }
+}
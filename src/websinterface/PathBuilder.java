@@ -0,0 +1,181 @@
+package websinterface;
+
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import whitebox.structures.BoundingBox;
+
+/**
+ * PathBuilder Class
+ *
+ * @author radfordd
+ *
+ * PathBuilder turns the points of vector records into page coordinates and
+ * adds them to one Path2D.Float, which is reset rather than created again for
+ * each feature. The page coordinates of a part are kept in scratch arrays that
+ * only ever grow, and the nodes of a feature being edited are marked in a
+ * second reused path, so drawing a layer allocates no geometry once the arrays
+ * are large enough for its longest part.
+ *
+ * Parts already in page units, from ProjectedGeometry, are added without
+ * conversion.
+ *
+ * A PathBuilder is used by one thread at a time.
+ */
+class PathBuilder {
+    // half the width of the cross marking a node of a feature being edited
+    static final float NODE_SIZE = 2.5f;
+    private final Path2D.Float path = new Path2D.Float(Path2D.WIND_EVEN_ODD, 1024);
+    private final Path2D.Float nodes = new Path2D.Float(Path2D.WIND_EVEN_ODD, 1024);
+    private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+    private float[] xs = new float[256];
+    private float[] ys = new float[256];
+    private double viewAreaULX;
+    private double viewAreaULY;
+    private double viewAreaWidth;
+    private double viewAreaHeight;
+    private double leftCoord;
+    private double topCoord;
+    private double EWRange;
+    private double NSRange;
+
+    /**
+     * Sets the map extent shown in the view area of the page.
+     *
+     * @param extent: Map extent of the view area.
+     */
+
+    public void setView(BoundingBox extent, int viewAreaULX, int viewAreaULY, int viewAreaWidth, int viewAreaHeight) {
+        this.viewAreaULX = viewAreaULX;
+        this.viewAreaULY = viewAreaULY;
+        this.viewAreaWidth = viewAreaWidth;
+        this.viewAreaHeight = viewAreaHeight;
+        leftCoord = extent.getMinX();
+        topCoord = extent.getMaxY();
+        EWRange = extent.getMaxX() - leftCoord;
+        NSRange = topCoord - extent.getMinY();
+    }
+
+    public double toPageX(double x) {
+        return viewAreaULX + (x - leftCoord) / EWRange * viewAreaWidth;
+    }
+
+    public double toPageY(double y) {
+        return viewAreaULY + (topCoord - y) / NSRange * viewAreaHeight;
+    }
+
+    /**
+     * Empties the path and the node markers for the next feature.
+     *
+     * @return The emptied path.
+     */
+
+    public Path2D.Float reset() {
+        path.reset();
+        nodes.reset();
+        return path;
+    }
+
+    public Path2D.Float getPath() {
+        return path;
+    }
+
+    public Path2D.Float getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Adds one part of a record to the path.
+     *
+     * @param points: Points of the record.
+     * @param start: First point of the part.
+     * @param end: Point after the last point of the part.
+     * @param close: True to close the part, as when filling a polygon.
+     * @param markNodes: True to add a cross at each point to the node markers.
+     */
+
+    public void addPart(double[][] points, int start, int end, boolean close, boolean markNodes) {
+        int n = end - start;
+        if(n <= 0) {
+            return;
+        }
+        if(n > xs.length) {
+            xs = new float[Math.max(n, 2 * xs.length)];
+            ys = new float[xs.length];
+        }
+        for(int k = 0; k < n; k++) {
+            xs[k] = (float) toPageX(points[start + k][0]);
+            ys[k] = (float) toPageY(points[start + k][1]);
+        }
+        path.moveTo(xs[0], ys[0]);
+        for(int k = 1; k < n; k++) {
+            path.lineTo(xs[k], ys[k]);
+        }
+        if(close) {
+            path.closePath();
+        }
+        if(markNodes) {
+            for(int k = 0; k < n; k++) {
+                addNode(xs[k], ys[k]);
+            }
+        }
+    }
+
+    /**
+     * Adds one part of a record, already in page units, to the path.
+     *
+     * @param xy: Interleaved x and y of the points of the record.
+     * @param start: First point of the part.
+     * @param end: Point after the last point of the part.
+     * @param close: True to close the part, as when filling a polygon.
+     */
+
+    public void addPart(float[] xy, int start, int end, boolean close) {
+        if(end <= start) {
+            return;
+        }
+        path.moveTo(xy[2 * start], xy[2 * start + 1]);
+        for(int k = start + 1; k < end; k++) {
+            path.lineTo(xy[2 * k], xy[2 * k + 1]);
+        }
+        if(close) {
+            path.closePath();
+        }
+    }
+
+    /**
+     * Adds a cross at a point, in page coordinates, to the node markers.
+     */
+
+    public void addNode(double x, double y) {
+        nodes.moveTo(x - NODE_SIZE, y - NODE_SIZE);
+        nodes.lineTo(x + NODE_SIZE, y + NODE_SIZE);
+        nodes.moveTo(x + NODE_SIZE, y - NODE_SIZE);
+        nodes.lineTo(x - NODE_SIZE, y + NODE_SIZE);
+    }
+
+    /**
+     * Replaces the path with a point marker.
+     *
+     * @param xyData: Marker data from PointMarkers.getMarkerData().
+     * @param x: X of the point on the page.
+     * @param y: Y of the point on the page.
+     * @return The path holding the marker.
+     */
+
+    public Path2D.Float marker(double[][] xyData, double x, double y) {
+        path.reset();
+        for(int a = 0; a < xyData.length; a++) {
+            if(xyData[a][0] == 0) { // moveTo
+                path.moveTo(x + xyData[a][1], y + xyData[a][2]);
+            }
+            else if(xyData[a][0] == 1) { // lineTo
+                path.lineTo(x + xyData[a][1], y + xyData[a][2]);
+            }
+            else if(xyData[a][0] == 2) { // elipse2D
+                ellipse.setFrame(x - xyData[a][1], y - xyData[a][1], xyData[a][2], xyData[a][2]);
+                path.append(ellipse, true);
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,91 @@
+package websinterface;
+
+/**
+ * ProgressEvent Class
+ *
+ * @author radfordd
+ *
+ * ProgressEvent describes the progress of one scenario build. A build is made
+ * of weighted stages, such as opening a database or writing one output table.
+ * An event is raised when a stage completes, and while a stage writes rows,
+ * after each batch of rows. Progress values run from 0 to 100, weighted by
+ * the stages completed. The overall progress is the mean progress of all the
+ * builds run by the same ScenarioBuildExecutor, or the progress of the build
+ * itself when it is run alone.
+ */
+class ProgressEvent {
+    private final String scenario;
+    private final String stage;
+    private final String message;
+    private final boolean stageCompleted;
+    private final long rows;
+    private final long stageMillis;
+    private final double progress;
+    private final double overallProgress;
+
+    /**
+     *
+     * @param scenario: Scenario name of the build.
+     * @param stage: Name of the stage.
+     * @param message: Progress message.
+     * @param stageCompleted: True if the stage has completed, false for a row event.
+     * @param rows: Rows written by the stage so far.
+     * @param stageMillis: Time spent in the stage so far, in milliseconds.
+     * @param progress: Progress of the build, from 0 to 100.
+     * @param overallProgress: Combined progress of the builds, from 0 to 100.
+     */
+
+    public ProgressEvent(String scenario, String stage, String message, boolean stageCompleted, long rows,
+                         long stageMillis, double progress, double overallProgress) {
+        this.scenario = scenario;
+        this.stage = stage;
+        this.message = message;
+        this.stageCompleted = stageCompleted;
+        this.rows = rows;
+        this.stageMillis = stageMillis;
+        this.progress = progress;
+        this.overallProgress = overallProgress;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isStageCompleted() {
+        return stageCompleted;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getStageMillis() {
+        return stageMillis;
+    }
+
+    public double getProgress() {
+        return progress;
+    }
+
+    public double getOverallProgress() {
+        return overallProgress;
+    }
+
+    /**
+     *
+     * @param overall: Combined progress of the builds.
+     * @return A copy of the event with the given overall progress.
+     */
+
+    public ProgressEvent withOverallProgress(double overall) {
+        return new ProgressEvent(scenario, stage, message, stageCompleted, rows, stageMillis, progress, overall);
+    }
+}
@@ -0,0 +1,79 @@
+package websinterface;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ProgressTracker Class
+ *
+ * @author radfordd
+ *
+ * ProgressTracker follows the stages of one scenario build and raises its
+ * ProgressEvents. The stages are run one after another, so a stage starts when
+ * the previous one completes. Each stage has a weight, and the progress of the
+ * build is the weight of the completed stages over the total weight. A stage
+ * that is not known to the tracker has a weight of 0.
+ */
+class ProgressTracker implements BatchedTableWriter.RowListener {
+    private final String scenario;
+    private final Map<String, Double> weights = new HashMap<>();
+    private final double total;
+    private final BuildProgressListener listener;
+    private volatile double progress;
+    private double done;
+    private long stageStart;
+    private long stageRows;
+
+    /**
+     *
+     * @param scenario: Scenario name of the build.
+     * @param stages: Names of the stages of the build.
+     * @param stageWeights: Weight of each stage.
+     * @param listener: BuildProgressListener receiving the events, may be null.
+     */
+
+    public ProgressTracker(String scenario, String[] stages, double[] stageWeights, BuildProgressListener listener) {
+        this.scenario = scenario;
+        this.listener = listener;
+        double sum = 0.0;
+        for(int i = 0; i < stages.length; i++) {
+            weights.put(stages[i], stageWeights[i]);
+            sum += stageWeights[i];
+        }
+        total = sum;
+        stageStart = System.currentTimeMillis();
+    }
+
+    public double getProgress() {
+        return progress;
+    }
+
+    /**
+     *
+     * @param stage: Name of the completed stage.
+     * @param message: Progress message of the stage.
+     */
+
+    public void stageCompleted(String stage, String message) {
+        Double w = weights.get(stage);
+        done += w == null ? 0.0 : w;
+        progress = total > 0.0 ? Math.min(100.0, 100.0 * done / total) : 100.0;
+        long now = System.currentTimeMillis();
+        fire(new ProgressEvent(scenario, stage, message, true, stageRows, now - stageStart, progress, progress));
+        stageStart = now;
+        stageRows = 0;
+    }
+
+    @Override
+    public void rowsWritten(String tbl, long rows) {
+        stageRows = rows;
+        long elapsed = System.currentTimeMillis() - stageStart;
+        fire(new ProgressEvent(scenario, tbl, tbl + ": " + rows + " rows written", false, rows, elapsed, progress, progress));
+    }
+
+    private void fire(ProgressEvent e) {
+        if(listener != null) {
+            listener.progress(e);
+        }
+    }
+}
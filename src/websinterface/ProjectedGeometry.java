@@ -0,0 +1,96 @@
+package websinterface;
+
+import java.util.Arrays;
+import whitebox.geospatialfiles.shapefile.ShapeFileRecord;
+
+/**
+ * ProjectedGeometry Class
+ *
+ * @author radfordd
+ *
+ * ProjectedGeometry keeps the points of the records of a vector layer in
+ * page units for the current map scale, measured from a fixed map origin.
+ * Panning the map only moves the origin on the page, so MapRenderer draws a
+ * panned view by translating the Graphics2D to the origin and reusing the
+ * points, rather than converting every vertex again. Each record is converted
+ * the first time it is drawn at a scale.
+ *
+ * The points are dropped when the scale or the level of the GeometryPyramid
+ * changes. A ProjectedGeometry belongs to the VectorLayerIndex of its layer,
+ * so it is also replaced when the records of the layer change.
+ */
+class ProjectedGeometry {
+    // relative change in scale below which a view is taken as panned rather than zoomed
+    private static final double SAME_SCALE = 1e-9;
+    private final float[][] coords;
+    private double scaleX;
+    private double scaleY;
+    private double originX;
+    private double originY;
+    private int level = -2;
+
+    /**
+     *
+     * @param numRecords: Number of records of the layer.
+     */
+
+    public ProjectedGeometry(int numRecords) {
+        coords = new float[numRecords][];
+    }
+
+    /**
+     * Prepares the points for a view, dropping them if the view is not at the
+     * scale and level they were converted at.
+     *
+     * @param scaleX: Page units per map unit across the view.
+     * @param scaleY: Page units per map unit down the view.
+     * @param level: Level of the GeometryPyramid drawn, or -1 for the records.
+     * @param minX: Smallest x of the view, taken as the origin on a change.
+     * @param maxY: Largest y of the view, taken as the origin on a change.
+     */
+
+    public void setView(double scaleX, double scaleY, int level, double minX, double maxY) {
+        if(level == this.level && Math.abs(scaleX - this.scaleX) <= SAME_SCALE * this.scaleX
+           && Math.abs(scaleY - this.scaleY) <= SAME_SCALE * this.scaleY) {
+            return;
+        }
+        Arrays.fill(coords, null);
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        this.level = level;
+        originX = minX;
+        originY = maxY;
+    }
+
+    public double getOriginX() {
+        return originX;
+    }
+
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     *
+     * @param record: Record of the layer.
+     * @param points: Points of the record at the level of the view.
+     * @return The x and y of each point in page units from the origin,
+     *         interleaved.
+     */
+
+    public float[] get(ShapeFileRecord record, double[][] points) {
+        int r = record.getRecordNumber() - 1;
+        float[] xy = r >= 0 && r < coords.length ? coords[r] : null;
+        if(xy == null) {
+            xy = new float[2 * points.length];
+            for(int k = 0; k < points.length; k++) {
+                xy[2 * k] = (float) ((points[k][0] - originX) * scaleX);
+                xy[2 * k + 1] = (float) ((originY - points[k][1]) * scaleY);
+            }
+            if(r >= 0 && r < coords.length) {
+                coords[r] = xy;
+            }
+        }
+        return xy;
+    }
+}
@@ -0,0 +1,229 @@
+package websinterface;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+
+/**
+ * ScenarioBatchRunner Class
+ *
+ * @author radfordd
+ *
+ * ScenarioBatchRunner builds scenario databases from the command line, without
+ * a display and without loading the Swing interface:
+ *
+ *      java -cp WEBsInterface.jar websinterface.ScenarioBatchRunner
+ *           [--threads N] [--profile SAFE|BULK_LOAD] [--draws N [--seed S]]
+ *           [--output DIR] project.wbprj spec... [project.wbprj spec...]
+ *
+ * Each spec is name:type or name:type:base, where type is historic or
+ * conventional, and belongs to the project file before it. A base scenario is
+ * written to base_name.db3, any other scenario to name.db3. The inputs and
+ * the years of the economic tables are taken from the project file. A single
+ * project is written to the working directory unless --output is given.
+ * Several projects are built at the same time, within the --threads limit,
+ * and each is written to a folder named after its watershed under --output
+ * or the working directory, with its scenarios named watershed/name in the
+ * output. With --draws, Historical scenarios also get the P5, P50 and
+ * P95 cost tables of the small dams and holding ponds, from N draws per BMP.
+ *
+ * Output is one tab separated record per line:
+ *
+ *      stage     scenario  stage  milliseconds  rows
+ *      progress  percent  scenario  message
+ *      done      scenario  milliseconds
+ *      failed    scenario  milliseconds  message
+ *      summary   ok|failed  milliseconds
+ *
+ * The exit code is 0 when every scenario was built, 1 when a build failed or
+ * was cancelled, and 2 for invalid arguments.
+ */
+public class ScenarioBatchRunner {
+    private static final PrintStream out = System.out;
+
+    private ScenarioBatchRunner() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args));
+    }
+
+    /**
+     *
+     * @param args: Command line arguments.
+     * @return The exit code.
+     */
+
+    static int run(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        WriteProfile profile = WriteProfile.SAFE;
+        int draws = 0;
+        long seed = CostUncertainty.DEFAULT_SEED;
+        File output = null;
+        List<File> projects = new ArrayList<>();
+        List<List<String>> specs = new ArrayList<>();
+        try {
+            for(int i = 0; i < args.length; i++) {
+                if(args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                }
+                else if(args[i].equals("--profile")) {
+                    profile = WriteProfile.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                }
+                else if(args[i].equals("--draws")) {
+                    draws = Integer.parseInt(args[++i]);
+                }
+                else if(args[i].equals("--seed")) {
+                    seed = Long.parseLong(args[++i]);
+                }
+                else if(args[i].equals("--output")) {
+                    output = new File(args[++i]);
+                }
+                else if(projects.isEmpty() || args[i].toLowerCase(Locale.ROOT).endsWith(".wbprj")) {
+                    projects.add(new File(args[i]));
+                    specs.add(new ArrayList<String>());
+                }
+                else {
+                    specs.get(specs.size() - 1).add(args[i]);
+                }
+            }
+        } catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return usage(e.getMessage());
+        }
+        if(projects.isEmpty()) {
+            return usage("No project file given");
+        }
+        for(int i = 0; i < projects.size(); i++) {
+            if(!projects.get(i).isFile()) {
+                return usage("Project file not found: " + projects.get(i));
+            }
+            if(specs.get(i).isEmpty()) {
+                return usage("No scenarios given for " + projects.get(i));
+            }
+        }
+        CostUncertainty mc = null;
+        if(draws != 0) {
+            try {
+                mc = new CostUncertainty(draws, seed, CostUncertainty.DEFAULT_SPREAD);
+            } catch(IllegalArgumentException e) {
+                return usage(e.getMessage());
+            }
+        }
+        boolean single = projects.size() == 1;
+        if(output == null && !single) {
+            output = new File(System.getProperty("user.dir"));
+        }
+        final ScenarioWorkspace workspace = new ScenarioWorkspace(output, threads);
+        List<ScenarioBuilder> builders = new ArrayList<>();
+        try {
+            for(int i = 0; i < projects.size(); i++) {
+                WatershedProject p = workspace.addWatershed(projects.get(i));
+                for(String spec : specs.get(i)) {
+                    ScenarioBuilder sb = parseSpec(spec, p, workspace);
+                    if(single) {
+                        sb.setLabel(sb.getScenarioName());
+                    }
+                    sb.setWriteProfile(profile);
+                    sb.setCostUncertainty(mc);
+                    builders.add(sb);
+                }
+            }
+        } catch(IllegalArgumentException e) {
+            workspace.shutdown();
+            return usage(e.getMessage());
+        }
+
+        long start = System.currentTimeMillis();
+        // Row events are limited to one per second.
+        workspace.setProgressListener(new CoalescingProgressListener(new BuildProgressListener() {
+            @Override
+            public void progress(ProgressEvent e) {
+                if(e.isStageCompleted()) {
+                    out.println("stage\t" + e.getScenario() + "\t" + e.getStage() + "\t" + e.getStageMillis() + "\t" + e.getRows());
+                }
+                out.println(String.format(Locale.ROOT, "progress\t%.1f\t%s\t%s", e.getOverallProgress(), e.getScenario(), clean(e.getMessage())));
+            }
+        }, 1000));
+        Thread hook = new Thread() {
+            @Override
+            public void run() {
+                workspace.cancelAll();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(hook);
+        boolean ok = true;
+        try {
+            for(ScenarioBuilder sb : builders) {
+                workspace.submit(sb);
+            }
+            try {
+                workspace.awaitAll();
+            } catch(Exception e) {
+                ok = false;
+            }
+            for(ScenarioBuilder sb : builders) {
+                if(sb.getFailure() == null && !sb.isCancelled()) {
+                    out.println("done\t" + sb.getLabel() + "\t" + sb.getBuildMillis());
+                }
+                else {
+                    Throwable t = sb.getFailure();
+                    String msg = t == null || t instanceof CancellationException ? "cancelled" : t.toString();
+                    out.println("failed\t" + sb.getLabel() + "\t" + sb.getBuildMillis() + "\t" + clean(msg));
+                    ok = false;
+                }
+            }
+        } finally {
+            workspace.shutdown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch(IllegalStateException e) {
+                // Already shutting down.
+            }
+        }
+        out.println("summary\t" + (ok ? "ok" : "failed") + "\t" + (System.currentTimeMillis() - start));
+        out.flush();
+        return ok ? 0 : 1;
+    }
+
+    /**
+     *
+     * @param spec: Scenario spec, name:type or name:type:base.
+     * @param p: WatershedProject of the scenario.
+     * @param workspace: ScenarioWorkspace creating the builder.
+     * @return The ScenarioBuilder for the spec.
+     */
+
+    private static ScenarioBuilder parseSpec(String spec, WatershedProject p, ScenarioWorkspace workspace) {
+        String[] parts = spec.split(":");
+        if(parts.length < 2 || parts.length > 3 || parts[0].isEmpty() || (parts.length == 3 && !parts[2].equalsIgnoreCase("base"))) {
+            throw new IllegalArgumentException("Invalid scenario spec: " + spec);
+        }
+        boolean historic;
+        if(parts[1].equalsIgnoreCase("historic")) {
+            historic = true;
+        }
+        else if(parts[1].equalsIgnoreCase("conventional")) {
+            historic = false;
+        }
+        else {
+            throw new IllegalArgumentException("Invalid scenario type: " + parts[1]);
+        }
+        return workspace.createBuilder(p, parts[0], parts.length == 3, historic);
+    }
+
+    private static String clean(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static int usage(String msg) {
+        if(msg != null) {
+            System.err.println(msg);
+        }
+        System.err.println("Usage: ScenarioBatchRunner [--threads N] [--profile SAFE|BULK_LOAD] [--draws N [--seed S]] [--output DIR] project.wbprj name:historic|conventional[:base]... [project.wbprj ...]");
+        return 2;
+    }
+}
@@ -0,0 +1,200 @@
+package websinterface;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ScenarioBuildExecutor Class
+ *
+ * @author radfordd
+ *
+ * ScenarioBuildExecutor runs independent ScenarioBuilders at the same time on
+ * a bounded thread pool. Every build writes to its own .db3 file and only reads
+ * from the Spatial.db3 file, so builds do not share any state. The
+ * ProgressEvents of every build are passed on to a BuildProgressListener,
+ * with the mean progress of all submitted builds as the overall progress.
+ */
+class ScenarioBuildExecutor {
+    private static final AtomicInteger poolCount = new AtomicInteger();
+    private final ExecutorService pool;
+    private volatile BuildProgressListener listener;
+    private final List<ScenarioBuilder> builds = new ArrayList<>();
+    private final List<Future<ScenarioBuilder>> futures = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     *
+     * @param maxThreads: Maximum number of builds run at the same time. The
+     *                    pool is never larger than the number of processors.
+     */
+
+    public ScenarioBuildExecutor(int maxThreads) {
+        int threads = Math.max(1, Math.min(maxThreads, Runtime.getRuntime().availableProcessors()));
+        final int id = poolCount.incrementAndGet();
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "scenario-build-" + id + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     *
+     * @param l: BuildProgressListener receiving the progress of the builds.
+     */
+
+    public void setProgressListener(BuildProgressListener l) {
+        listener = l;
+    }
+
+    /**
+     *
+     * @param sb: ScenarioBuilder to run. A build submitted after cancelAll()
+     *            is cancelled before it starts.
+     * @return The Future of the build.
+     */
+
+    public synchronized Future<ScenarioBuilder> submit(final ScenarioBuilder sb) {
+        if(cancelled) {
+            sb.cancel();
+        }
+        sb.setProgressListener(new BuildProgressListener() {
+            @Override
+            public void progress(ProgressEvent e) {
+                reportProgress(sb, e);
+            }
+        });
+        builds.add(sb);
+        Future<ScenarioBuilder> f = pool.submit(new Callable<ScenarioBuilder>() {
+            @Override
+            public ScenarioBuilder call() throws Exception {
+                sb.build();
+                return sb;
+            }
+        });
+        futures.add(f);
+        return f;
+    }
+
+    /**
+     *
+     * @param sb: ScenarioBuilder reporting the progress.
+     * @param e: ProgressEvent of the build.
+     */
+
+    private void reportProgress(ScenarioBuilder sb, ProgressEvent e) {
+        BuildProgressListener l = listener;
+        if(l == null) {
+            return;
+        }
+        double total = 0.0;
+        int n;
+        synchronized(this) {
+            for(ScenarioBuilder b : builds) {
+                total += b == sb ? e.getProgress() : b.getProgress();
+            }
+            n = builds.size();
+        }
+        l.progress(e.withOverallProgress(total / n));
+    }
+
+    /**
+     * Asks every submitted build to stop. Builds check for cancellation
+     * between steps and while writing, and stop with a CancellationException.
+     */
+
+    public synchronized void cancelAll() {
+        cancelled = true;
+        for(ScenarioBuilder b : builds) {
+            b.cancel();
+        }
+        for(Future<ScenarioBuilder> f : futures) {
+            f.cancel(true);
+        }
+    }
+
+    /**
+     * Waits for every submitted build to finish. The first failure is thrown
+     * once all builds have completed. Cancelled builds are reported with a
+     * CancellationException.
+     */
+
+    public void awaitAll() throws ClassNotFoundException, SQLException, IOException, InterruptedException {
+        List<Future<ScenarioBuilder>> pending;
+        synchronized(this) {
+            pending = new ArrayList<>(futures);
+        }
+        Throwable failure = null;
+        for(Future<ScenarioBuilder> f : pending) {
+            try {
+                f.get();
+            } catch(ExecutionException e) {
+                if(failure == null) {
+                    failure = e.getCause();
+                }
+            } catch(CancellationException e) {
+                if(failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if(failure instanceof ClassNotFoundException) {
+            throw (ClassNotFoundException) failure;
+        }
+        else if(failure instanceof SQLException) {
+            throw (SQLException) failure;
+        }
+        else if(failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        else if(failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        else if(failure instanceof Error) {
+            throw (Error) failure;
+        }
+        else if(failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     *
+     * @return True once cancelAll() has been called.
+     */
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Waits until every build has stopped and closed its databases, after
+     * shutdown(). Unlike awaitAll(), this also waits for cancelled builds,
+     * whose Futures complete as soon as they are cancelled.
+     */
+
+    public void awaitTermination() throws InterruptedException {
+        while(!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+            // Still rolling back or closing.
+        }
+    }
+}
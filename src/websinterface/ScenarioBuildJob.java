@@ -0,0 +1,120 @@
+package websinterface;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
+
+/**
+ * ScenarioBuildJob Class
+ *
+ * @author radfordd
+ *
+ * ScenarioBuildJob runs a set of ScenarioBuilders in the background, away from
+ * the Swing Event Dispatch Thread. The builds are run on a
+ * ScenarioBuildExecutor, their progress is published back to the Event
+ * Dispatch Thread and the Listener is told when the job completes, fails or is
+ * cancelled. All Listener methods are called on the Event Dispatch Thread.
+ *
+ * A running job is stopped with abort(). Cancellation is cooperative: every
+ * build stops at its next step or batch of rows and rolls back its current
+ * table. The job reports buildCancelled() only once every build has stopped
+ * and closed its database connections, so the output files are free to be
+ * built again.
+ */
+class ScenarioBuildJob extends SwingWorker<Void, ProgressEvent> implements BuildProgressListener {
+
+    /**
+     * Callbacks of a ScenarioBuildJob, called on the Event Dispatch Thread.
+     */
+
+    interface Listener {
+        void buildProgress(String txt, double progress);
+        void buildCompleted();
+        void buildFailed(Throwable t);
+        void buildCancelled();
+    }
+
+    private final ScenarioBuilder[] builders;
+    private final Listener listener;
+    private final ScenarioBuildExecutor executor;
+
+    /**
+     *
+     * @param builders: The ScenarioBuilders run by the job.
+     * @param maxThreads: Maximum number of builds run at the same time.
+     * @param listener: Listener receiving the progress and result of the job.
+     */
+
+    public ScenarioBuildJob(ScenarioBuilder[] builders, int maxThreads, Listener listener) {
+        this.builders = builders.clone();
+        this.listener = listener;
+        executor = new ScenarioBuildExecutor(maxThreads);
+        // Row events are limited to 10 per second before they are published.
+        executor.setProgressListener(new CoalescingProgressListener(this, 100));
+    }
+
+    /**
+     * Asks the job to stop. Safe to call from any thread, and more than once.
+     * The Listener is told once the builds have stopped.
+     */
+
+    public void abort() {
+        executor.cancelAll();
+    }
+
+    @Override
+    protected Void doInBackground() throws Exception {
+        try {
+            for(ScenarioBuilder sb : builders) {
+                executor.submit(sb);
+            }
+            executor.awaitAll();
+        } catch(InterruptedException e) {
+            executor.cancelAll();
+            throw e;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination();
+        }
+        return null;
+    }
+
+    @Override
+    public void progress(ProgressEvent e) {
+        publish(e);
+    }
+
+    @Override
+    protected void process(List<ProgressEvent> chunks) {
+        if(executor.isCancelled()) {
+            // Leave the cancelling message shown until the builds have stopped.
+            return;
+        }
+        // Only the most recent progress needs to be shown.
+        ProgressEvent e = chunks.get(chunks.size() - 1);
+        listener.buildProgress("\n" + e.getScenario() + ": " + e.getMessage(), e.getOverallProgress());
+    }
+
+    @Override
+    protected void done() {
+        // A cancelled build may also fail while it stops.
+        if(isCancelled() || executor.isCancelled()) {
+            listener.buildCancelled();
+            return;
+        }
+        try {
+            get();
+            listener.buildCompleted();
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof CancellationException) {
+                listener.buildCancelled();
+            }
+            else {
+                listener.buildFailed(e.getCause());
+            }
+        } catch(InterruptedException e) {
+            listener.buildCancelled();
+        }
+    }
+}
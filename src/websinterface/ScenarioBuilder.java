@@ -22,19 +22,45 @@ package websinterface;
 import java.io.File;
 import java.io.IOException;
 import java.sql.*;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import nl.knaw.dans.common.dbflib.*;
 
 public class ScenarioBuilder {
-    private static final File spatial = new File("STC/Data/Spatial/spatial.db3");
-    private static final File[] dbf_tbls = {new File("STC/Data/Spatial/small_dam.dbf"), new File("STC/Data/Spatial/cattle_yard.dbf"),
-                                            new File("STC/Data/Spatial/grazing.dbf"), new File("STC/Data/Spatial/land2010_by_land_id.dbf"),
-                                            new File("STC/Data/Spatial/farm2010.dbf")};
-    protected static double progress;
-    protected static boolean scenarioType;
+    private static final String[] dbf_names = {"small_dam.dbf", "cattle_yard.dbf", "grazing.dbf", "land2010_by_land_id.dbf", "farm2010.dbf"};
+    private static final String[] tbl_names = {"crop_economic_fields", "crop_economic_farms", "crop_economic_subbasins", "forage", "forage_hru",
+                                               "tillage", "grazing_hrus", "grazing_economic", "grazing_economic_subbasins", "small_dams_economic",
+                                               "holding_ponds_economic", "grazing", "holding_ponds", "small_dams", "tillage_hrus"};
+    // Progress stages and their weights: the first 6 stages make up a
+    // Conventional build and all 17 stages an Historical build.
+    private static final String[] stages = {"spatial.db3", "output", "tables", "crop_economic_fields", "crop_economic_farms",
+                                            "crop_economic_subbasins", "small_dam.dbf", "small_dams", "small_dams_economic",
+                                            "cattle_yard.dbf", "holding_ponds", "holding_ponds_economic", "grazing.dbf", "grazing",
+                                            "grazing_economic", "grazing_economic_subbasins", "grazing_hrus"};
+    private static final double[] stage_weights = {1, 1, 1, 8, 6, 6, 1, 1, 2, 1, 1, 2, 1, 1, 2, 3, 2};
+    private static final int CONVENTIONAL_STAGES = 6;
+    // Added to an Historical build when a CostUncertainty is set.
+    private static final String[] uncertainty_tbls = {"small_dams_economic_uncertainty", "holding_ponds_economic_uncertainty"};
+    private static final double[] uncertainty_weights = {3, 3};
+    private final WatershedProject project;
+    private final File spatial;
+    private final File[] dbf_tbls;
+    private final String scen;
+    private volatile String label;
+    private final boolean isBase;
+    private final boolean scenarioType;
+    private final SimulationHorizon horizon;
+    private volatile ProgressTracker tracker;
+    private volatile BuildProgressListener progressListener;
+    private volatile boolean cancelled;
+    private volatile WriteProfile writeProfile = WriteProfile.SAFE;
+    private volatile CostUncertainty uncertainty;
+    private BuildSignatures signatures;
+    private volatile long buildMillis;
+    private volatile Throwable failure;
+    private final Map<String, String> pendingSignatures = new HashMap<>();
 
     /**
      * @param scen: String containing the Scenario Name.
@@ -43,15 +69,76 @@ public class ScenarioBuilder {
      * @param type: Boolean value used to determine the type of scenario being
      *              created. A value of 'True' indicates an Historical scenario
      *              and a value of 'False' indicates a Conventional scenario.
+     *              The scenario is built for the STC/STC.wbprj project
+     *              and written to the working directory.
+     */
+    
+    protected ScenarioBuilder(String scen, boolean isBase, boolean type) {
+        this(scen, isBase, type, WatershedProject.forProject(WatershedProject.STC_PROJECT));
+    }
+    
+    /**
+     * @param scen: String containing the Scenario Name.
+     * @param isBase: Boolean value indicating whether a scenario is a base
+     *                scenario created by WEBs or a user-defined scenario.
+     * @param type: Boolean value indicating an Historical ('True') or a
+     *              Conventional ('False') scenario.
+     * @param project: WatershedProject giving the Spatial folder and
+     *                 Spatial.db3 file read by the build, the years of the
+     *                 economic tables, and the folder the .db3 file is
+     *                 written to.
+     */
+    
+    protected ScenarioBuilder(String scen, boolean isBase, boolean type, WatershedProject project) {
+        this.project = project;
+        this.spatial = project.getSpatialDatabase();
+        this.dbf_tbls = new File[dbf_names.length];
+        for(int i = 0; i < dbf_names.length; i++) {
+            dbf_tbls[i] = project.getSpatialFile(dbf_names[i]);
+        }
+        this.scen = scen;
+        this.label = scen;
+        this.isBase = isBase;
+        this.scenarioType = type;
+        this.horizon = project.getHorizon();
+    }
+    
+    /**
+     * Builds the scenario database. Each ScenarioBuilder keeps its own progress
+     * and writes to its own .db3 file, so separate builders may run at the
+     * same time on a ScenarioBuildExecutor.
+     * 
      * @throws ClassNotFoundException: Missing the Library for SQLite version of JDBC.
      * @throws SQLException: Error with Queries made using SQLite.
      * @throws IOException: File I/O Error when verifying existence of a DBF table.
      */
     
-    protected ScenarioBuilder(String scen, boolean isBase, boolean type) throws ClassNotFoundException, SQLException, IOException {
+    protected void build() throws ClassNotFoundException, SQLException, IOException {
+        long start = System.currentTimeMillis();
+        failure = null;
+        try {
+            buildDatabase();
+        } catch(Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            buildMillis = System.currentTimeMillis() - start;
+        }
+    }
+    
+    private void buildDatabase() throws ClassNotFoundException, SQLException, IOException {
         String inDb;
-        progress = 0.0;
-        scenarioType = type;
+        boolean type = scenarioType;
+        CostUncertainty mc = type ? uncertainty : null;
+        int n = type ? stages.length : CONVENTIONAL_STAGES;
+        int extra = mc != null ? uncertainty_tbls.length : 0;
+        String[] buildStages = new String[n + extra];
+        double[] buildWeights = new double[n + extra];
+        System.arraycopy(stages, 0, buildStages, 0, n);
+        System.arraycopy(stage_weights, 0, buildWeights, 0, n);
+        System.arraycopy(uncertainty_tbls, 0, buildStages, n, extra);
+        System.arraycopy(uncertainty_weights, 0, buildWeights, n, extra);
+        tracker = new ProgressTracker(label, buildStages, buildWeights, progressListener);
         Class.forName("org.sqlite.JDBC");
         
         if(isBase) {
@@ -60,21 +147,35 @@ public class ScenarioBuilder {
         else {
             inDb = scen + ".db3";
         }
+        File outDir = project.getOutputFolder();
+        if(!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Cannot create " + outDir);
+        }
         
         Connection cInDb3 = DriverManager.getConnection("jdbc:sqlite:" + spatial.getAbsolutePath());
         cInDb3.setAutoCommit(false);
-        progress = WEBsInterface.calculateProgressBaseScenario("\nOpened spatial.db3 database successfully", scenarioType, progress);
+        prepareSpatialIndexes(cInDb3);
+        reportProgress("spatial.db3", "Opened spatial.db3 database successfully");
 
-        Connection cOutput = DriverManager.getConnection("jdbc:sqlite:" + inDb);
+        Connection cOutput = DriverManager.getConnection("jdbc:sqlite:" + new File(outDir, inDb).getPath());
+        WriteProfile profile = writeProfile;
+        profile.apply(cOutput);
         cOutput.setAutoCommit(false);
-        progress = WEBsInterface.calculateProgressBaseScenario("\nConnection established to " + inDb + " database successfully", scenarioType, progress);
+        reportProgress("output", "Connection established to " + inDb + " database successfully");
         
         try {
             Statement inStmtA = cInDb3.createStatement();
             Statement inStmtB = cInDb3.createStatement();
             Statement outStmt = cOutput.createStatement();
+            TableSchemaCache outSchema = new TableSchemaCache(cOutput);
             
             createTables(outStmt, cOutput, inDb);
+            profile.record(cOutput);
+            signatures = new BuildSignatures(cOutput);
+            pendingSignatures.clear();
+            if(!profile.isDeferIndexes()) {
+                createIndexes(outStmt, cOutput, false);
+            }
             
             String tblA = "yield_";
             if(type) {
@@ -84,23 +185,245 @@ public class ScenarioBuilder {
                 tblA += "conventional";
             }
                     
-            buildCropEconFields(inStmtA, outStmt, tblA, "crop_economic_fields", cOutput);
+            String cropSig = BuildSignatures.of(spatial, tblA);
+            if(isStale("crop_economic_fields", cropSig)) {
+                buildCropEconFields(inStmtA, outSchema, tblA, "crop_economic_fields", cOutput);
+            }
             
-            buildCropEconFarms(inStmtA, inStmtB, outStmt, tblA, "field_farm", "crop_economic_farms", cOutput);
-                       
-            buildCropEconSubbasins(inStmtA, inStmtB, outStmt, tblA, "field_subbasin", "crop_economic_subbasins", cOutput);
+            boolean farms = isStale("crop_economic_farms", cropSig);
+            boolean subbasins = isStale("crop_economic_subbasins", cropSig);
+            if(farms || subbasins) {
+                CropRollupAggregator yields = new CropRollupAggregator(inStmtA, tblA);
+                if(farms) {
+                    buildCropEconFarms(yields, inStmtB, outSchema, "field_farm", "crop_economic_farms", cOutput);
+                }
+                if(subbasins) {
+                    buildCropEconSubbasins(yields, inStmtB, outSchema, "field_subbasin", "crop_economic_subbasins", cOutput);
+                }
+            }
             
             if(type) {
-                buildHistoricScenario(inStmtA, inStmtB, outStmt, cOutput);
+                buildHistoricScenario(inStmtA, inStmtB, outStmt, outSchema, cOutput, mc);
+            }
+            
+            if(profile.isDeferIndexes()) {
+                createIndexes(outStmt, cOutput, true);
             }
-        } catch(SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
         } finally {
             cOutput.close();
             cInDb3.close();
         }
     }
     
+    /**
+     * Creates any missing lookup indexes in the Spatial.db3 file. A file that
+     * cannot be prepared, for example a read-only file, is used as it is.
+     * 
+     * @param c: Connection to the Spatial.db3 file.
+     */
+    
+    private void prepareSpatialIndexes(Connection c) {
+        try {
+            SpatialIndexPreparer.prepare(c);
+        } catch(SQLException e) {
+            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.WARNING, null, e);
+            try {
+                c.rollback();
+            } catch(SQLException ex) {
+                Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether an output table must be rebuilt. A stale table is
+     * emptied, and its signature is recorded by tableBuilt() once it has been
+     * rebuilt. A table that is up to date counts as a completed step.
+     * 
+     * @param tbl: Output table name.
+     * @param sig: Signature of the current inputs of the table.
+     * @return True if the table must be rebuilt.
+     */
+    
+    private boolean isStale(String tbl, String sig) throws SQLException {
+        if(!signatures.isStale(tbl, sig)) {
+            reportProgress(tbl, tbl + " is up to date");
+            return false;
+        }
+        signatures.clear(tbl);
+        pendingSignatures.put(tbl, sig);
+        return true;
+    }
+    
+    /**
+     * 
+     * @param tbl: Output table that has been rebuilt.
+     * @throws SQLException: Error recording the signature of the table.
+     */
+    
+    private void tableBuilt(String tbl) throws SQLException {
+        String sig = pendingSignatures.remove(tbl);
+        if(sig != null) {
+            signatures.record(tbl, sig);
+        }
+    }
+    
+    protected String getScenarioName() {
+        return scen;
+    }
+    
+    /**
+     * 
+     * @return The name of the build in its ProgressEvents, the scenario name
+     *         unless set otherwise.
+     */
+    
+    protected String getLabel() {
+        return label;
+    }
+    
+    /**
+     * 
+     * @param l: Name of the next build in its ProgressEvents, such as
+     *           watershed/scenario when several watersheds are built.
+     */
+    
+    protected void setLabel(String l) {
+        label = l;
+    }
+    
+    protected WatershedProject getProject() {
+        return project;
+    }
+    
+    /**
+     * 
+     * @param p: WriteProfile used for the output .db3 file of the next build.
+     */
+    
+    protected void setWriteProfile(WriteProfile p) {
+        writeProfile = p;
+    }
+    
+    protected WriteProfile getWriteProfile() {
+        return writeProfile;
+    }
+    
+    /**
+     * 
+     * @param u: CostUncertainty used by the next Historical build to write the
+     *           small_dams_economic_uncertainty and
+     *           holding_ponds_economic_uncertainty tables, or null to leave
+     *           them out.
+     */
+    
+    protected void setCostUncertainty(CostUncertainty u) {
+        uncertainty = u;
+    }
+    
+    protected CostUncertainty getCostUncertainty() {
+        return uncertainty;
+    }
+    
+    /**
+     * 
+     * @return The duration of the last build in milliseconds.
+     */
+    
+    protected long getBuildMillis() {
+        return buildMillis;
+    }
+    
+    /**
+     * 
+     * @return The exception that ended the last build, or null if it completed.
+     */
+    
+    protected Throwable getFailure() {
+        return failure;
+    }
+    
+    protected SimulationHorizon getHorizon() {
+        return horizon;
+    }
+    
+    protected boolean isHistoric() {
+        return scenarioType;
+    }
+    
+    protected double getProgress() {
+        ProgressTracker t = tracker;
+        return t == null ? 0.0 : t.getProgress();
+    }
+    
+    /**
+     * 
+     * @param l: BuildProgressListener receiving the ProgressEvents of the
+     *           next build, or null.
+     */
+    
+    protected void setProgressListener(BuildProgressListener l) {
+        progressListener = l;
+    }
+    
+    /**
+     * Requests that the build stops. The request is checked after each step
+     * and whenever a batch of rows is written. Tables committed before the
+     * request remain in the output database.
+     */
+    
+    protected void cancel() {
+        cancelled = true;
+    }
+    
+    protected boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+    
+    /**
+     * 
+     * @throws CancellationException: The build has been cancelled.
+     */
+    
+    private void checkCancelled() {
+        if(isCancelled()) {
+            throw new CancellationException(scen + " build cancelled");
+        }
+    }
+    
+    /**
+     * 
+     * @param stage: Name of the stage that was completed.
+     * @param txt: Progress message for the stage.
+     */
+    
+    private void reportProgress(String stage, String txt) {
+        checkCancelled();
+        tracker.stageCompleted(stage, txt);
+    }
+    
+    /**
+     * 
+     * @param c: Connection to the Output SQL Database.
+     * @param tbl: String containing the name of the Output SQL Table.
+     * @param schema: TableSchemaCache for the Output SQL Database.
+     * @return A BatchedTableWriter reporting the rows it writes to the progress
+     *         of the build, which stops and rolls back its table once the
+     *         build is cancelled.
+     */
+    
+    private BatchedTableWriter openWriter(Connection c, String tbl, TableSchemaCache schema) throws SQLException {
+        BatchedTableWriter w = new BatchedTableWriter(c, tbl, schema);
+        w.setRowListener(tracker);
+        w.setCancelCheck(new BatchedTableWriter.CancelCheck() {
+            @Override
+            public boolean isCancelled() {
+                return ScenarioBuilder.this.isCancelled();
+            }
+        });
+        return w;
+    }
+    
     /**
      * 
      * @param out: Output Statement Call. This contains the Connection to the Output SQLite3 DB file.
@@ -108,81 +431,92 @@ public class ScenarioBuilder {
      * @param scen: String 
      */
     
-    private static void createTables(Statement out, Connection c, String scen) {
-        final String[] tbl_names = {"crop_economic_fields", "crop_economic_farms", "crop_economic_subbasins", "forage", "forage_hru",
-                                    "tillage", "grazing_hrus", "grazing_economic", "grazing_economic_subbasins", "small_dams_economic",
-                                    "holding_ponds_economic", "grazing", "holding_ponds", "small_dams", "tillage_hrus"};
+    private void createTables(Statement out, Connection c, String scen) throws SQLException {
         final String[] val_names = {"id", "year", "yield", "revenue", "cost", "net_return", "grazing_ha", "unit_cost", "hru",
                                     "cattle", "clay_liner", "plastic_ln", "wire_fence", "distance", "trenching", "pond_yrs",
                                     "annual_cost", "maintenance", "total_cost", "embankment", "life_time", "tillage"};
         final String[] val_types = {"int", "real"};
-        try {
-            int i = 1, t = 1;
-            for (String tbl: tbl_names) {
-                String sql = "CREATE TABLE IF NOT EXISTS " + tbl + "(";
-                switch(i) {
-                    case 1:
-                        sql += val_names[0] + " " + val_types[0] + ", " + val_names[1] + " " + val_types[0] + ", " + val_names[2] + " " + val_types[1] + ", "
-                             + val_names[3] + " " + val_types[1] + ", " + val_names[4] + " " + val_types[1] + ", " + val_names[5] + " " + val_types[1] + ");";
-                        t++;
-                        if(t > 3) {
-                            i++;
-                            t = 1;
-                        }
-                        break;
-                    case 2:
-                        sql += val_names[0] + " " + val_types[0] + ");";
-                        t++;
-                        if(t > 4) {
-                            i++;
-                            t = 1;
-                        }
-                        break;
-                    case 3:
-                        sql += val_names[0] + " " + val_types[0] + ", " + val_names[1] + " " + val_types[0] + ", " + val_names[4] + " " + val_types[1] + ");";
-                        t++;
-                        if(t > 4) {
-                            i++;
-                            t = 1;
-                        }
-                        break;
-                    case 4:
-                        sql += val_names[0] + " " + val_types[0] + ", " + val_names[6] + " " + val_types[1] + ", " + val_names[7] + " " + val_types[1] + ", " + val_names[4] + " " + val_types[1] + ");";
+        int i = 1, t = 1;
+        for (String tbl: tbl_names) {
+            String sql = "CREATE TABLE IF NOT EXISTS " + tbl + "(";
+            switch(i) {
+                case 1:
+                    sql += val_names[0] + " " + val_types[0] + ", " + val_names[1] + " " + val_types[0] + ", " + val_names[2] + " " + val_types[1] + ", "
+                         + val_names[3] + " " + val_types[1] + ", " + val_names[4] + " " + val_types[1] + ", " + val_names[5] + " " + val_types[1] + ");";
+                    t++;
+                    if(t > 3) {
                         i++;
-                        break;
-                    case 5:
-                        sql += val_names[0] + " " + val_types[0] + ", " + val_names[8] + " " + val_types[0] + ", " + val_names[9] + " " + val_types[1] + ", "
-                            + val_names[10] + " " + val_types[1] + ", " + val_names[11] + " " + val_types[1] + ", " + val_names[12] + " " + val_types[1] + ", "
-                            + val_names[13] + " " + val_types[1] + ", " + val_names[14] + " " + val_types[1] + ", " + val_names[15] + " " + val_types[1] + ", "
-                             + val_names[4] + " " + val_types[1] + ", " + val_names[16] + " " + val_types[1] + ", " + val_names[17] + " " + val_types[1] + ", "
-                            + val_names[18] + " " + val_types[1] + ");";
-                        i++;
-                        break;
-                    case 6:
-                        sql += val_names[0] + " " + val_types[0] + ", " + val_names[19] + " " + val_types[1] + ", " + val_names[20] + " " + val_types[0] + ");";
+                        t = 1;
+                    }
+                    break;
+                case 2:
+                    sql += val_names[0] + " " + val_types[0] + ");";
+                    t++;
+                    if(t > 4) {
                         i++;
-                        break;
-                    case 7:
-                        sql += val_names[0] + " " + val_types[0] + ", " + val_names[21] + " " + val_types[0] + ");";
+                        t = 1;
+                    }
+                    break;
+                case 3:
+                    sql += val_names[0] + " " + val_types[0] + ", " + val_names[1] + " " + val_types[0] + ", " + val_names[4] + " " + val_types[1] + ");";
+                    t++;
+                    if(t > 4) {
                         i++;
-                        break;
-                    default:
-                        sql = "EoE";
-                        i = 0;
-                        break; 
-                }
-                if(sql.equalsIgnoreCase("EoE")) {
-                    System.out.println("\nTABLES CREATED");
-                }
-                else {
-                    out.executeUpdate(sql);
-                }
+                        t = 1;
+                    }
+                    break;
+                case 4:
+                    sql += val_names[0] + " " + val_types[0] + ", " + val_names[6] + " " + val_types[1] + ", " + val_names[7] + " " + val_types[1] + ", " + val_names[4] + " " + val_types[1] + ");";
+                    i++;
+                    break;
+                case 5:
+                    sql += val_names[0] + " " + val_types[0] + ", " + val_names[8] + " " + val_types[0] + ", " + val_names[9] + " " + val_types[1] + ", "
+                        + val_names[10] + " " + val_types[1] + ", " + val_names[11] + " " + val_types[1] + ", " + val_names[12] + " " + val_types[1] + ", "
+                        + val_names[13] + " " + val_types[1] + ", " + val_names[14] + " " + val_types[1] + ", " + val_names[15] + " " + val_types[1] + ", "
+                         + val_names[4] + " " + val_types[1] + ", " + val_names[16] + " " + val_types[1] + ", " + val_names[17] + " " + val_types[1] + ", "
+                        + val_names[18] + " " + val_types[1] + ");";
+                    i++;
+                    break;
+                case 6:
+                    sql += val_names[0] + " " + val_types[0] + ", " + val_names[19] + " " + val_types[1] + ", " + val_names[20] + " " + val_types[0] + ");";
+                    i++;
+                    break;
+                case 7:
+                    sql += val_names[0] + " " + val_types[0] + ", " + val_names[21] + " " + val_types[0] + ");";
+                    i++;
+                    break;
+                default:
+                    sql = "EoE";
+                    i = 0;
+                    break; 
+            }
+            if(sql.equalsIgnoreCase("EoE")) {
+                System.out.println("\nTABLES CREATED");
+            }
+            else {
+                out.executeUpdate(sql);
             }
-            c.commit();
-            progress = WEBsInterface.calculateProgressBaseScenario("\n" + scen + " database created successfully", scenarioType, progress);
-        } catch (SQLException ex) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, ex);
         }
+        c.commit();
+        reportProgress("tables", scen + " database created successfully");
+    }
+    
+    /**
+     * 
+     * @param out: Output Statement Call. This contains the Connection to the Output SQLite3 DB file.
+     * @param c: Connection to the Output SQL Database.
+     * @param analyze: Boolean value indicating whether ANALYZE is run once the
+     *                 indexes exist, for indexes created after the data is written.
+     */
+    
+    private void createIndexes(Statement out, Connection c, boolean analyze) throws SQLException {
+        for(String tbl: tbl_names) {
+            out.executeUpdate("CREATE INDEX IF NOT EXISTS " + tbl + "_id ON " + tbl + "(id);");
+        }
+        if(analyze) {
+            out.executeUpdate("ANALYZE;");
+        }
+        c.commit();
     }
     
     /**
@@ -190,34 +524,84 @@ public class ScenarioBuilder {
      * @param inA: Input Statement A used for calling tables from the Spatial.db3 file.
      * @param inB: Input Statement B used for calling tables from the Spatial.db3 file.
      * @param out: Output Statement Call. This contains the Connection to the Output SQLite3 DB file.
+     * @param schema: TableSchemaCache for the Output SQL Database.
      * @param c: Connection to the Output SQL Database. 
+     * @param mc: CostUncertainty used for the cost percentile tables, or null
+     *            to leave them out.
      */
     
-    private static void buildHistoricScenario(Statement inA, Statement inB, Statement out, Connection c) {
-        try {
-            ValueTypePair[][] src;
-            src = loadDbfTableData(new Table(new File(dbf_tbls[0].getAbsolutePath())), "Existing", new String[]{"ID", "Embankment", "LifeTime"});
-            buildDbfTables(src, out, c, "small_dams");
-            buildDbfTables(loadSmallDamEconCosts(src), out, c, "small_dams_economic");
-            
-            src = loadDbfTableData(new Table(new File(dbf_tbls[1].getAbsolutePath())), "Existing", new String[]{"ID", "HRU",
+    private void buildHistoricScenario(Statement inA, Statement inB, Statement out, TableSchemaCache schema, Connection c, CostUncertainty mc) throws SQLException, IOException {
+        ColumnTable src;
+        File dams = dbf_tbls[0].getAbsoluteFile();
+        boolean tbl = isStale("small_dams", BuildSignatures.of(dams));
+        boolean econ = isStale("small_dams_economic", BuildSignatures.of(dams, horizon));
+        boolean unc = mc != null && isUncertaintyStale(out, c, uncertainty_tbls[0], BuildSignatures.of(dams, horizon, mc));
+        if(tbl || econ || unc) {
+            src = loadDbfTableData(dams, "Existing", new String[]{"ID", "Embankment", "LifeTime"});
+            if(tbl) {
+                buildDbfTables(src, schema, c, "small_dams");
+            }
+            if(econ) {
+                buildEconomicTable(src.toIntArray(0), loadSmallDamEconCosts(src), schema, c, "small_dams_economic");
+            }
+            if(unc) {
+                buildUncertaintyTable(src.toIntArray(0), mc.smallDamPercentiles(src.toDoubleArray(1), src.toDoubleArray(2)),
+                                      schema, c, uncertainty_tbls[0]);
+            }
+        }
+        else {
+            reportProgress(dams.getName(), dams.getName() + " is up to date");
+        }
+        
+        File ponds = dbf_tbls[1].getAbsoluteFile();
+        tbl = isStale("holding_ponds", BuildSignatures.of(ponds));
+        econ = isStale("holding_ponds_economic", BuildSignatures.of(ponds, horizon));
+        unc = mc != null && isUncertaintyStale(out, c, uncertainty_tbls[1], BuildSignatures.of(ponds, horizon, mc));
+        if(tbl || econ || unc) {
+            src = loadDbfTableData(ponds, "Existing", new String[]{"ID", "HRU",
                 "Cattles", "ClayLiner", "PlasticLn", "WireFence", "Distance", "Trenching", "Pond_Yrs"});
             src = loadPondCosts(src);
-            buildDbfTables(src, out, c, "holding_ponds");
-            buildDbfTables(loadPondEcon(src), out, c, "holding_ponds_economic");
-            
-            src = loadDbfTableData(new Table(new File(dbf_tbls[2].getAbsolutePath())), "Existing", new String[]{"ID", "Grazing_Ha", "UnitCost"});
+            if(tbl) {
+                buildDbfTables(src, schema, c, "holding_ponds");
+            }
+            if(econ) {
+                buildEconomicTable(src.toIntArray(0), src.toDoubleArray(12), schema, c, "holding_ponds_economic");
+            }
+            if(unc) {
+                buildUncertaintyTable(src.toIntArray(0), mc.pondPercentiles(src.toDoubleArray(2), src.toDoubleArray(3),
+                                      src.toDoubleArray(4), src.toDoubleArray(5), src.toDoubleArray(6), src.toDoubleArray(7),
+                                      src.toDoubleArray(8)), schema, c, uncertainty_tbls[1]);
+            }
+        }
+        else {
+            reportProgress(ponds.getName(), ponds.getName() + " is up to date");
+        }
+        
+        File grazing = dbf_tbls[2].getAbsoluteFile();
+        tbl = isStale("grazing", BuildSignatures.of(grazing));
+        econ = isStale("grazing_economic", BuildSignatures.of(grazing, horizon));
+        boolean sub = isStale("grazing_economic_subbasins", BuildSignatures.of(grazing, spatial, horizon));
+        if(tbl || econ || sub) {
+            src = loadDbfTableData(grazing, "Existing", new String[]{"ID", "Grazing_Ha", "UnitCost"});
             src = loadGrazing(src);
-            buildDbfTables(src, out, c, "grazing");
-            buildDbfTables(loadGrazingEcon(src), out, c, "grazing_economic");
-            
-            src = loadGrazingSubbasinData(src, inA, inB, "subbasin_grazing", "grazing_area");
-            buildDbfTables(src, out, c, "grazing_economic_subbasins");
-            
-            src = loadGrazingHruData(src, inA, out, "subbasin_grazing_hru", "grazing_economic_subbasins");
-            buildDbfTables(src, out, c, "grazing_hrus");
-        } catch (IOException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
+            if(tbl) {
+                buildDbfTables(src, schema, c, "grazing");
+            }
+            if(econ) {
+                buildEconomicTable(src.toIntArray(0), src.toDoubleArray(2), schema, c, "grazing_economic");
+            }
+            if(sub) {
+                GrazingSubbasinAggregator grz = loadGrazingSubbasinData(src, inA, inB, "subbasin_grazing", "grazing_area");
+                buildEconomicTable(grz.getSubbasins(), grz.getMeanCosts(), schema, c, "grazing_economic_subbasins");
+            }
+        }
+        else {
+            reportProgress(grazing.getName(), grazing.getName() + " is up to date");
+        }
+        
+        if(isStale("grazing_hrus", BuildSignatures.of(grazing, spatial))) {
+            src = loadGrazingHruData(inA, out, "subbasin_grazing_hru", "grazing_economic_subbasins");
+            buildDbfTables(src, schema, c, "grazing_hrus");
         }
     }
     
@@ -227,438 +611,294 @@ public class ScenarioBuilder {
      *            For all subsequent fillTableX functions, in refers to the Input connection. Any
      *            variables having the prefix 'in' are used in relation to values taken from the input tables
      *            via the input DB connection. 
-     * @param out: Output Statement Call. This contains the Connection to the Output SQLite3 DB file.
-     *             For all subsequent fillTableX functions, in refers to the Output connection. Any
-     *             variables having the prefix 'out' are used in relation to values taken from/written to the output table
-     *             via the output DB connection. 
+     * @param schema: TableSchemaCache for the Output SQLite3 DB file. Column names of the output
+     *                tables are read from the cache rather than queried from the table for each write.
      * @param inTbl: Name of the Input Table called yield_historic from the SQLite3 DB.
      * @param outTbl: crop_economic_fields Output SQL Table.
      * @param c: Connection to the Output SQL Database.
      */
     
-    private static void buildCropEconFields(Statement in, Statement out, String inTbl, String outTbl, Connection c) {
-        try {
-            ResultSet inRs = in.executeQuery("SELECT * FROM " + inTbl + ";");
-            ResultSet outRs = out.executeQuery("SELECT * FROM " + outTbl + ";");
-            NameTypePair[] ntp = loadInputNamesAndTypes(inRs);
-            String outColumnNames = loadOutputColumnNames(outRs);
-            String sql = "INSERT INTO " + outTbl + "(" + outColumnNames + "VALUES(";
+    private void buildCropEconFields(Statement in, TableSchemaCache schema, String inTbl, String outTbl, Connection c) throws SQLException {
+        ResultSet inRs = in.executeQuery("SELECT * FROM " + inTbl + ";");
+        NameTypePair[] ntp = loadInputNamesAndTypes(inRs);
+        try(BatchedTableWriter w = openWriter(c, outTbl, schema)) {
             while(inRs.next()) {
-                out.executeUpdate(writeFieldOutputQuery(inRs, ntp, sql, 0));
+                w.writeRow(inRs, ntp, 0, 1);
             }
-            c.commit();
-            progress = WEBsInterface.calculateProgressBaseScenario("\n" + outTbl + " database created successfully", scenarioType, progress);
-        } catch (SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e); 
+            w.commit();
         }
+        tableBuilt(outTbl);
+        reportProgress(outTbl, outTbl + " database created successfully");
     }
     
     /**
      *
-     * @param inFld: Input Statement for the yield_historic SQL Table. Referred
-     *               to as Fld since it is used to build crop_Economic_Fields
-     *               table. Additionally, each farm/subbasin is comprised of the
-     *               fields from this table.
+     * @param yields: CropRollupAggregator holding the yield_historic SQL Table.
+     *                Each farm/subbasin is comprised of the fields from this
+     *                table. The table is loaded once and shared by the farm
+     *                and subbasin rollups.
      * @param inBmp: Input Statement for the field_farm SQL Table.
      *               Referred to as inBMP to avoid duplication of the functions
      *               used to build the output SQL Tables. Farm and Subbasin are
      *               built using the same functions.
-     * @param out: Output Statement Call.
-     * @param inTblA: yield_historic SQL Table.
+     * @param schema: TableSchemaCache for the Output SQL Database.
      * @param inTblB: field_farm SQL Table.
      * @param outTbl: crop_economic_farms Output SQL Table.
      * @param c: Connection to the Output SQL Database.
      */
     
-    private static void buildCropEconFarms(Statement inFld, Statement inBmp, Statement out, String inTblA, String inTblB, String outTbl, Connection c){
-        try {
-            ResultSet inRsFld = inFld.executeQuery("SELECT * FROM " + inTblA + ";");
-            ResultSet inRsFrm = inBmp.executeQuery("SELECT * FROM " + inTblB + " WHERE farm > 0 ORDER BY farm;");
-            ResultSet outRs = out.executeQuery("SELECT * FROM " + outTbl + ";");
-            NameTypePair[] ntp = loadInputNamesAndTypes(inRsFld);
-            String outColumnNames = loadOutputColumnNames(outRs);
-            String sql = "INSERT INTO " + outTbl + "(" + outColumnNames + "VALUES(";
-            writeFarmSubbasinOutputQueries(inRsFrm, inFld, inTblA, ntp, sql, out, "farm");
-            c.commit();
-            progress = WEBsInterface.calculateProgressBaseScenario("\n" + outTbl +" database created successfully", scenarioType, progress);
-        } catch(SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
+    private void buildCropEconFarms(CropRollupAggregator yields, Statement inBmp, TableSchemaCache schema, String inTblB, String outTbl, Connection c) throws SQLException {
+        try(BatchedTableWriter w = openWriter(c, outTbl, schema)) {
+            yields.writeRollup(inBmp, inTblB, "farm", w);
+            w.commit();
         }
+        tableBuilt(outTbl);
+        reportProgress(outTbl, outTbl + " database created successfully");
     }
     
     /**
      * 
-     * @param inFld: Input Statement for the yield_historic SQL Table.
+     * @param yields: CropRollupAggregator holding the yield_historic SQL Table.
      * @param inBmp: Input Statement for the field_subbasin SQL Table.
-     * @param out: Output Statement Call.
-     * @param tblA: yield_historic SQL Table.
+     * @param schema: TableSchemaCache for the Output SQL Database.
      * @param tblB: field_subbasin SQL Table.
-     * @param outTbl: crop_economic_fields Output SQL Table.
+     * @param outTbl: crop_economic_subbasins Output SQL Table.
      * @param c: Connection to the Output SQL Database.
      */
     
-    private static void buildCropEconSubbasins(Statement inFld, Statement inBmp, Statement out, String tblA, String tblB, String outTbl, Connection c) {
-        try {
-            ResultSet inRsFld = inFld.executeQuery("SELECT * FROM " + tblA + ";");
-            ResultSet inRsBsn = inBmp.executeQuery("SELECT * FROM " + tblB + " WHERE subbasin > 0 ORDER BY subbasin;");
-            ResultSet outRs = out.executeQuery("SELECT * FROM " + outTbl + ";");
-            NameTypePair[] ntp = loadInputNamesAndTypes(inRsFld);
-            String outColumnNames = loadOutputColumnNames(outRs);
-            String sql = "INSERT INTO " + outTbl + "(" + outColumnNames + "VALUES(";
-            writeFarmSubbasinOutputQueries(inRsBsn, inFld, tblA, ntp, sql, out, "subbasin");
-            c.commit();
-            progress = WEBsInterface.calculateProgressBaseScenario("\n" + outTbl + " database created successfully", scenarioType, progress);
-        } catch(SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
+    private void buildCropEconSubbasins(CropRollupAggregator yields, Statement inBmp, TableSchemaCache schema, String tblB, String outTbl, Connection c) throws SQLException {
+        try(BatchedTableWriter w = openWriter(c, outTbl, schema)) {
+            yields.writeRollup(inBmp, tblB, "subbasin", w);
+            w.commit();
         }
+        tableBuilt(outTbl);
+        reportProgress(outTbl, outTbl + " database created successfully");
     }
      
     /**
      * 
-     * @param src: ValueTypePair Array containing the table data values.
-     * @param out: Output Statement Call. This contains the Connection to the Output SQLite3 DB file.
+     * @param src: ColumnTable containing the table data values.
+     * @param schema: TableSchemaCache for the Output SQL Database.
      * @param c: Connection to the Output SQL Database.
      * @param tbl: String containing the name of the Output SQL Table.
      */
     
-    private static void buildDbfTables(ValueTypePair[][] src, Statement out, Connection c, String tbl) {
-        try {
-            for(ValueTypePair[] s: src) {
-                String sql = "INSERT INTO " + tbl + "(" + loadOutputColumnNames(out.executeQuery("SELECT * FROM " + tbl + ";")) + " VALUES(";
-                out.executeUpdate(writeDbfOutputQueries(s, sql));
-            }
-            c.commit();
-            progress = WEBsInterface.calculateProgressBaseScenario("\n" + tbl + " database created successfully", scenarioType, progress);
-        } catch (SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
+    private void buildDbfTables(ColumnTable src, TableSchemaCache schema, Connection c, String tbl) throws SQLException {
+        try(BatchedTableWriter w = openWriter(c, tbl, schema)) {
+            src.write(w);
+            w.commit();
         }
+        tableBuilt(tbl);
+        reportProgress(tbl, tbl + " database created successfully");
     }
     
     /**
      * 
-     * @param iRs: Input ResultSet containing the query result from the source
-     *             table. All data will be written to the output Table using the
-     *             out Connection Statement variable. The naming convention for
-     *             the variables does not need the 'i' to represent input within
-     *             the functions individually. This has been done to ensure that
-     *             the documentation for the program can be clearly followed
-     *             when troubleshooting bugs in the future. An 'i' prefix
-     *             represents a ResultSet using a query with an Input Connection
-     *             and an 'o' prefix represents a ResultSet using a query with
-     *             an Output Connection.
-     * @return ntp: The NameTypePair array compiled in the function. 
+     * @param ids: BMP ids.
+     * @param vals: Yearly value of each BMP.
+     * @param schema: TableSchemaCache for the Output SQL Database.
+     * @param c: Connection to the Output SQL Database.
+     * @param tbl: String containing the name of the Output SQL Table. One row
+     *             (id, year, value) is written for every BMP and every year of
+     *             the simulation horizon.
      */
     
-    private static NameTypePair[] loadInputNamesAndTypes(ResultSet iRs) {
-        NameTypePair[] ntp = null;
-        try {
-            ntp = new NameTypePair[iRs.getMetaData().getColumnCount()];
-            for(int i = 1; i <= iRs.getMetaData().getColumnCount(); i++) {
-                // 4 is the Java.Sql.Types code for Integers.
-                if (iRs.getMetaData().getColumnType(i) == 4) {
-                    ntp[i - 1] = new NameTypePair(iRs.getMetaData().getColumnName(i), 1);
-                } else {
-                    ntp[i - 1] = new NameTypePair(iRs.getMetaData().getColumnName(i), 0);
-                }
-            }
-        } catch (SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
+    private void buildEconomicTable(int[] ids, double[] vals, TableSchemaCache schema, Connection c, String tbl) throws SQLException {
+        try(BatchedTableWriter w = openWriter(c, tbl, schema)) {
+            horizon.write(w, ids, vals);
+            w.commit();
         }
-        return ntp;
+        tableBuilt(tbl);
+        reportProgress(tbl, tbl + " database created successfully");
     }
     
     /**
+     * Creates a cost percentile table if it does not exist yet, then checks
+     * whether it must be rebuilt.
      * 
-     * @param oRs: Output ResultSet containing the query result from the target table.
-     * @return outColumnNames: A formatted String containing all of the column
-     *                         names in the table. This is done separately from
-     *                         data retrieval in the setOutputValues function to
-     *                         allow the columns names of the output tables to
-     *                         work with the data from the source tables, based
-     *                         on consistent naming standards. 
-     * 
+     * @param out: Output Statement Call.
+     * @param c: Connection to the Output SQL Database.
+     * @param tbl: Name of the cost percentile table.
+     * @param sig: Signature of the current inputs of the table.
+     * @return True if the table must be rebuilt.
      */
     
-    private static String loadOutputColumnNames(ResultSet oRs) {
-        String outColumnNames = "";
-        try {
-            String[] outColumnNamesArray = new String[oRs.getMetaData().getColumnCount()];      
-            for(int i = 1; i <= oRs.getMetaData().getColumnCount(); i++) {
-                outColumnNamesArray[i - 1] = oRs.getMetaData().getColumnName(i);
-                if(i == oRs.getMetaData().getColumnCount()) {
-                    outColumnNames += outColumnNamesArray[i - 1] + ") ";
-                }
-                else {
-                    outColumnNames += outColumnNamesArray[i - 1] + ", ";
-                }
-            }
-        } catch (SQLException e){
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
-        }
-        return outColumnNames;
+    private boolean isUncertaintyStale(Statement out, Connection c, String tbl, String sig) throws SQLException {
+        out.executeUpdate("CREATE TABLE IF NOT EXISTS " + tbl + "(id int, year int, p5 real, p50 real, p95 real);");
+        out.executeUpdate("CREATE INDEX IF NOT EXISTS " + tbl + "_id ON " + tbl + "(id);");
+        c.commit();
+        return isStale(tbl, sig);
     }
-
+    
     /**
-     * @param tbl: Input DBF Formatted Table.
-     * @param existing: The String used to mark the Existing Column. Used specifically
-     *                  for the base scenarios. A modification will be needed for the
-     *                  user-defined scenarios. Possibly a boolean call.
-     * @param columns: Column names found within the input Table.
-     * @return vals: A collection of the entries for each row in the input Table.
-     *               Each row contains the data from the corresponding columns,
-     *               as well as the type for the data value as a ValueTypePair.
-     *               This is to accommodate potential issues with input data
-     *               being read as an integer value instead of a double value.
-     *               Pairing the data value with a static type value will prevent
-     *               complications with writing the values to the SQLite databases.
-     * @throws IOException: File I/O Error when verifying existence of a DBF table.
+     * 
+     * @param ids: BMP ids.
+     * @param pct: P5, P50 and P95 of the yearly cost of each BMP, from CostUncertainty.
+     * @param schema: TableSchemaCache for the Output SQL Database.
+     * @param c: Connection to the Output SQL Database.
+     * @param tbl: String containing the name of the Output SQL Table. One row
+     *             (id, year, p5, p50, p95) is written for every BMP and every
+     *             year of the simulation horizon.
      */
     
-    private static ValueTypePair[][] loadDbfTableData(Table tbl, String existing, String[] columns) throws IOException {
-        ValueTypePair[][] vals = null, temp = null;
-        int entries = 0;
-        try {
-            tbl.open(IfNonExistent.ERROR);
-            temp = new ValueTypePair[tbl.getRecordCount()][columns.length];
-            progress = WEBsInterface.calculateProgressBaseScenario("\nOpened " + tbl.getName() + " database successfully", scenarioType, progress);
-            Iterator<Record> iter = tbl.recordIterator();
-            for(int i = 0; i < tbl.getRecordCount(); i++) {
-                Record rec = iter.next();
-                Number exists = rec.getNumberValue(existing);
-                if(exists.intValue() == 1) {
-                    for(int j = 0; j < columns.length; j++) {
-                        Number n = rec.getNumberValue(columns[j]);
-                        if(n.doubleValue() % 1 > 0 || columns[j].equalsIgnoreCase("embankment") || columns[j].equalsIgnoreCase("distance")) {
-                            temp[entries][j] = new ValueTypePair(n.doubleValue(), 0);
-                        }
-                        else {
-                            temp[entries][j] = new ValueTypePair((double) n.intValue(), 1);
-                        }
-                    }
-                    entries++;
-                }
-            }
-            vals = new ValueTypePair[entries][columns.length];
-            System.arraycopy(temp, 0, vals, 0, vals.length);
-        } catch (CorruptedTableException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
+    private void buildUncertaintyTable(int[] ids, double[][] pct, TableSchemaCache schema, Connection c, String tbl) throws SQLException {
+        try(BatchedTableWriter w = openWriter(c, tbl, schema)) {
+            horizon.write(w, ids, pct);
+            w.commit();
         }
-        finally {
-            tbl.close();
-        } 
-        return vals;
+        tableBuilt(tbl);
+        reportProgress(tbl, tbl + " database created successfully");
     }
     
     /**
      * 
-     * @param vtp: ValueTypePair Array containing the Small Dam data and type values.
-     * @return vals: ValueTypePair Array containing the calculated costs for the 
-     *               ponds, covering base, annual, maintenance, and total cost.
+     * @param iRs: Input ResultSet containing the query result from the source
+     *             table. All data will be written to the output Table using the
+     *             out Connection Statement variable. The naming convention for
+     *             the variables does not need the 'i' to represent input within
+     *             the functions individually. This has been done to ensure that
+     *             the documentation for the program can be clearly followed
+     *             when troubleshooting bugs in the future. An 'i' prefix
+     *             represents a ResultSet using a query with an Input Connection
+     *             and an 'o' prefix represents a ResultSet using a query with
+     *             an Output Connection.
+     * @return ntp: The NameTypePair array compiled in the function. 
      */
     
-    private static ValueTypePair[][] loadSmallDamEconCosts(ValueTypePair[][] vtp) {
-        ValueTypePair[][] vals = new ValueTypePair[vtp.length * 20][3];
-        for(int i = 0; i < vtp.length; i++) {
-            int year = 1991;
-            for(int j = 0; j < 20; j++) {
-                vals[i * 20 + j][0] = vtp[i][0];
-                vals[i * 20 + j][1] = new ValueTypePair(year , 1);
-                vals[i * 20 + j][2] = new ValueTypePair(calculateSmallDamCost(vtp[i][1].getPairValueAsDouble(), vtp[i][2].getPairValueAsDouble()), 0);
-                year++;
+    static NameTypePair[] loadInputNamesAndTypes(ResultSet iRs) throws SQLException {
+        NameTypePair[] ntp = new NameTypePair[iRs.getMetaData().getColumnCount()];
+        for(int i = 1; i <= iRs.getMetaData().getColumnCount(); i++) {
+            // 4 is the Java.Sql.Types code for Integers.
+            if (iRs.getMetaData().getColumnType(i) == 4) {
+                ntp[i - 1] = new NameTypePair(iRs.getMetaData().getColumnName(i), 1);
+            } else {
+                ntp[i - 1] = new NameTypePair(iRs.getMetaData().getColumnName(i), 0);
             }
         }
-        return vals;
+        return ntp;
     }
     
     /**
-     * 
-     * @param vtp: ValueTypePair Array containing the Holding Pond data and type values.
-     * @return vals: ValueTypePair Array containing the calculated cost for the
-     *               economic figures for the dam as well as the year values.
+     * @param f: Input DBF Formatted Table.
+     * @param existing: The String used to mark the Existing Column. Used specifically
+     *                  for the base scenarios. A modification will be needed for the
+     *                  user-defined scenarios. Possibly a boolean call.
+     * @param columns: Column names found within the input Table.
+     * @return vals: A ColumnTable with one column for each entry of columns,
+     *               holding the rows of the input Table marked as Existing.
+     *               A column is stored as Double if any of its values has a
+     *               fractional part, or if it is the Embankment or Distance
+     *               column, and as Integer otherwise. This is to accommodate
+     *               potential issues with input data being read as an integer
+     *               value instead of a double value, and prevents complications
+     *               with writing the values to the SQLite databases.
+     * @throws IOException: File I/O Error when reading the DBF table.
      */
     
-    private static ValueTypePair[][] loadPondCosts(ValueTypePair[][] vtp) {
-        ValueTypePair[][] vals = new ValueTypePair[vtp.length][13];
-        for(int i = 0; i < vtp.length; i++) {
-            for(int j = 0; j < 9; j++) { 
-                vals[i][j] = new ValueTypePair(vtp[i][j].getPairValueAsDouble(), vtp[i][j].getPairType());
-            }
-            vals[i][9] = new ValueTypePair(calculatePondBaseCost(
-                    vals[i][2].getPairValueAsDouble(), vals[i][3].getPairValueAsDouble(),
-                    vals[i][4].getPairValueAsDouble(), vals[i][5].getPairValueAsDouble(),
-                    vals[i][6].getPairValueAsDouble(), vals[i][7].getPairValueAsDouble()), 0);
-            vals[i][10] = new ValueTypePair(vals[i][9].getPairValueAsDouble() / vals[i][8].getPairValueAsDouble(), 0);
-            vals[i][11] = new ValueTypePair(calculatePondMaintenanceCost(vals[i][2].getPairValueAsDouble(), vals[i][5].getPairValueAsDouble()), 0);
-            vals[i][12] = new ValueTypePair(vals[i][10].getPairValueAsDouble() + vals[i][11].getPairValueAsDouble(), 0);
-        }
-        return vals;
+    private ColumnTable loadDbfTableData(File f, String existing, String[] columns) throws IOException {
+        DbfReader tbl = new DbfReader(f);
+        reportProgress(tbl.getName(), "Opened " + tbl.getName() + " database successfully");
+        return tbl.readTable(existing, columns);
     }
     
     /**
      * 
-     * @param vtp: ValueTypePair Array containing the Holding Pond data and type values.
-     * @return vals: ValueTypePair Array containing the calculated costs for the 
-     *               ponds, covering base, annual, maintenance, and total cost.
+     * @param src: ColumnTable containing the Small Dam data (ID, Embankment, LifeTime).
+     * @return vals: The yearly cost of each dam.
      */
     
-    private static ValueTypePair[][] loadPondEcon(ValueTypePair[][] vtp) {
-        ValueTypePair[][] vals = new ValueTypePair[vtp.length * 20][3];
-        for(int i = 0; i < vtp.length; i++) {
-            int year = 1991;
-            for(int j = 0; j < 20; j++) {
-                vals[i * 20 + j][0] = vtp[i][0];
-                vals[i * 20 + j][1] = new ValueTypePair(year, 1);
-                vals[i * 20 + j][2] = vtp[i][12];
-                year++;
-            }
-        }
-        return vals;
+    static double[] loadSmallDamEconCosts(ColumnTable src) {
+        return BmpCostEngine.smallDamCosts(src.toDoubleArray(1), src.toDoubleArray(2), true);
     }
     
     /**
      * 
-     * @param vtp: ValueTypePair Array containing the Grazing data and type values.
-     * @return vals: ValueTypePair Array containing the economic data for the
-     *               grazing areas.
+     * @param src: ColumnTable containing the Holding Pond data (ID, HRU, Cattles,
+     *             ClayLiner, PlasticLn, WireFence, Distance, Trenching, Pond_Yrs).
+     * @return vals: ColumnTable containing the Holding Pond data followed by the
+     *               base, annual, maintenance, and total cost of each pond.
      */
     
-    private static ValueTypePair[][] loadGrazingEcon(ValueTypePair[][] vtp) {
-        ValueTypePair[][] vals = new ValueTypePair[vtp.length * 20][3];
-        for(int i = 0; i < vtp.length; i++) {
-            int year = 1991;
-            for(int j = 0; j < 20; j++) {
-                vals[i * 20 + j][0] = new ValueTypePair(vtp[i][0].getPairValueAsDouble(), 1);
-                vals[i * 20 + j][1] = new ValueTypePair(year, 1);
-                vals[i * 20 + j][2] = new ValueTypePair(vtp[i][2].getPairValueAsDouble(), 0);
-                year++;
+    static ColumnTable loadPondCosts(ColumnTable src) {
+        NameTypePair[] ntp = new NameTypePair[13];
+        for(int j = 0; j < 9; j++) {
+            ntp[j] = src.getColumn(j);
+        }
+        ntp[9] = new NameTypePair("cost", 0);
+        ntp[10] = new NameTypePair("annual_cost", 0);
+        ntp[11] = new NameTypePair("maintenance", 0);
+        ntp[12] = new NameTypePair("total_cost", 0);
+        int n = src.getRowCount();
+        ColumnTable vals = new ColumnTable(ntp, n);
+        vals.setRowCount(n);
+        for(int i = 0; i < n; i++) {
+            for(int j = 0; j < 9; j++) {
+                vals.setDouble(i, j, src.getDouble(i, j));
             }
         }
+        BmpCostEngine.pondCosts(src.toDoubleArray(2), src.toDoubleArray(3), src.toDoubleArray(4), src.toDoubleArray(5),
+                                src.toDoubleArray(6), src.toDoubleArray(7), src.toDoubleArray(8), vals.doubleColumn(9),
+                                vals.doubleColumn(10), vals.doubleColumn(11), vals.doubleColumn(12), n, true);
         return vals;
     }
     
     /**
      * 
-     * @param vtp: ValueTypePair Array containing the Grazing data and type values.
-     * @return vals: ValueTypePair Array containing the calculated costs for the 
-     *               grazing areas, as UnitCost * Grazing_Ha.
+     * @param src: ColumnTable containing the Grazing data (ID, Grazing_Ha, UnitCost).
+     * @return vals: ColumnTable containing the Grazing data followed by the
+     *               calculated cost of the grazing areas, as UnitCost * Grazing_Ha.
      */
     
-    private static ValueTypePair[][] loadGrazing(ValueTypePair[][] vtp) {
-        ValueTypePair[][] vals = new ValueTypePair[vtp.length][4];
-        for(int i = 0; i < vtp.length; i++) {
+    static ColumnTable loadGrazing(ColumnTable src) {
+        NameTypePair[] ntp = {src.getColumn(0), src.getColumn(1), src.getColumn(2), new NameTypePair("cost", 0)};
+        ColumnTable vals = new ColumnTable(ntp, src.getRowCount());
+        vals.setRowCount(src.getRowCount());
+        for(int i = 0; i < src.getRowCount(); i++) {
             for(int j = 0; j < 3; j++) {
-                vals[i][j] = new ValueTypePair(vtp[i][j].getPairValueAsDouble(), vtp[i][j].getPairType());
+                vals.setDouble(i, j, src.getDouble(i, j));
             }
-            vals[i][3] = new ValueTypePair(vals[i][1].getPairValueAsDouble() * vals[i][2].getPairValueAsDouble(), 0);
+            vals.setDouble(i, 3, src.getDouble(i, 1) * src.getDouble(i, 2));
         }
         return vals;
     }
     
     /**
      * 
-     * @param vtp: ValueTypePair Array containing the Grazing Economic data and type values.
+     * @param src: ColumnTable containing the Grazing data from loadGrazing.
      * @param inA: Input Statement A used in calling the table in subGrz.
      * @param inB: Input Statement B used in calling the table in grzArea.
      * @param subGrz: Subbasin_grazing table name from Spatial.db3 as a String.
      * @param grzArea: grazing_area table name from Spatial.db3 as a String.
-     * @return vals: ValueTypePair Array containing the calculated costs for the 
-     *               grazing subbasin areas, calculated by the formula of 
-     *               SUM(UnitCost * Area * Percentage) / SUM(Area * Percentage).
-     *               Both of formulae are computed as the sums of these values.
-     */
-    
-    private static ValueTypePair[][] loadGrazingSubbasinData(ValueTypePair[][] vtp, Statement inA, Statement inB, String subGrz, String grzArea) {
-        ValueTypePair[][] vTemp = new ValueTypePair[vtp.length * 20][3];
-        HashSet ids = new HashSet(), subs = new HashSet();
-        int index = 0;
-        for (ValueTypePair[] v : vtp) {
-            ids.add(v[0].getPairValueAsInt());
-        }
-        try {
-            ResultSet sRs = inA.executeQuery("SELECT * FROM " + subGrz + " ORDER BY grazing;");
-            while(sRs.next()) {
-                int subId = sRs.getInt(1);
-                int grzId = sRs.getInt(2);
-                if(ids.contains(grzId)) {
-                    if(subs.contains(subId)) {
-                    }
-                    else {
-                        subs.add(subId);
-                        sRs = inA.executeQuery("SELECT * FROM " + subGrz + " WHERE subbasin = " + subId + ";");
-                        int k = 0; 
-                        IdValuePair[] iTempArea = new IdValuePair[vtp.length];
-                        IdValuePair[] iTempPct = new IdValuePair[vtp.length];
-                        while(sRs.next()) {
-                            grzId = sRs.getInt(2);
-                            //if(ids.contains(grzId)) {
-                                ResultSet aRs = inB.executeQuery("SELECT * FROM " + grzArea + " WHERE id = " + grzId + ";");
-                                iTempArea[k] = new IdValuePair(aRs.getInt(1), aRs.getDouble(2));
-                                iTempPct[k] = new IdValuePair(sRs.getInt(2), sRs.getDouble(3));
-                                k++;
-                            //}
-                            //else {
-                           //     ResultSet aRs = inB.executeQuery("SELECT * FROM " + grzArea + " WHERE id = " + grzId + ";");
-                           //     iTempArea[k] = new IdValuePair(aRs.getInt(1), aRs.getDouble(2));
-                               //     iTempPct[k] = new IdValuePair(sRs.getInt(2), sRs.getDouble(3));
-                           //     k++;
-                            //}
-                        }
-                        IdValuePair[] grazeArea = new IdValuePair[k];
-                        IdValuePair[] grazePct = new IdValuePair[k];
-                        System.arraycopy(iTempArea, 0, grazeArea, 0, k);
-                        System.arraycopy(iTempPct, 0, grazePct, 0, k);
-                        double cost = calculateGrazingMeanCost(grazeArea, grazePct, vtp);
-                        int year = 1991;
-                        for(int i = 0; i < 20; i++) {
-                            vTemp[index * 20 + i][0] = new ValueTypePair(subId, 1);
-                            vTemp[index * 20 + i][1] = new ValueTypePair(year, 1);
-                            vTemp[index * 20 + i][2] = new ValueTypePair(cost, 0);
-                            year++;
-                        }
-                        index++;
-                        sRs = inA.executeQuery("SELECT * FROM " + subGrz + " ORDER BY grazing;");
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
-        }
-        ValueTypePair[][] vals = new ValueTypePair[index * 20][3];
-        System.arraycopy(vTemp, 0, vals, 0, vals.length);
-        return vals;
+     * @return The GrazingSubbasinAggregator holding the mean cost of the
+     *         grazing subbasin areas, calculated by the formula of 
+     *         SUM(UnitCost * Area * Percentage) / SUM(Area * Percentage).
+     *         Both of formulae are computed as the sums of these values,
+     *         in a single pass by GrazingSubbasinAggregator.
+     */
+    
+    private static GrazingSubbasinAggregator loadGrazingSubbasinData(ColumnTable src, Statement inA, Statement inB, String subGrz, String grzArea) throws SQLException {
+        return new GrazingSubbasinAggregator(src, inA, inB, subGrz, grzArea);
     }
     
     /**
      * 
-     * @param vtp: ValueTypePair Array containing the Grazing Economic data and type values.
      * @param in: Input Statement used in calling the table in hruGrz.
      * @param out: Output Statement used in calling the table in subGrz.
      * @param hruGrz: subbasin_grazing_hru table name from Spatial.db3 as a String.
      * @param subGrz: grazing_economic_subbasins table name from Output Database as a String.
-     * @return vals: ValueTypePair Array containing the HRU indexes for the SWAT
-     *               model for each grazing subbasin. The Array remains 2D for
-     *               consistent use with the buildDbfTables method.
+     * @return vals: ColumnTable containing the HRU indexes for the SWAT
+     *               model for each grazing subbasin.
      */
     
-    private static ValueTypePair[][] loadGrazingHruData(ValueTypePair[][] vtp, Statement in, Statement out, String hruGrz, String subGrz) {
-        ValueTypePair[][] temp = new ValueTypePair[vtp.length][1];
-        int length = 0;
-        try {
-            ResultSet sRs = out.executeQuery("SELECT DISTINCT id FROM " + subGrz + ";");
-            int index = 0;
-            while(sRs.next()) {
-                ResultSet hRs = in.executeQuery("SELECT * FROM " + hruGrz + " WHERE subbasin = " + sRs.getInt(1) + ";");
-                while(hRs.next()) {
-                    temp[index][0] = new ValueTypePair(hRs.getInt(2), 1);
-                    index++;
-                }
+    private static ColumnTable loadGrazingHruData(Statement in, Statement out, String hruGrz, String subGrz) throws SQLException {
+        ColumnTable vals = new ColumnTable(new String[]{"hru"}, new int[]{1}, 64);
+        ResultSet sRs = out.executeQuery("SELECT DISTINCT id FROM " + subGrz + ";");
+        while(sRs.next()) {
+            ResultSet hRs = in.executeQuery("SELECT * FROM " + hruGrz + " WHERE subbasin = " + sRs.getInt(1) + ";");
+            while(hRs.next()) {
+                vals.setInt(vals.addRow(), 0, hRs.getInt(2));
             }
-            length = index;
-        } catch (SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
         }
-        ValueTypePair[][] vals = new ValueTypePair[length][1];
-        System.arraycopy(temp, 0, vals, 0, length);
         return vals;
     }
     
@@ -669,8 +909,8 @@ public class ScenarioBuilder {
      * @return Calculated Cost of Small Dam.
      */
     
-    private static double calculateSmallDamCost(double m, double l) {
-        return (4.87e-7 * Math.pow(m, 3.0) - 4.24e-3 * Math.pow(m, 2.0) + 1.28e1 * m + 6.71e3) / l;
+    static double calculateSmallDamCost(double m, double l) {
+        return BmpCostEngine.smallDamCost(m, l);
     }
     
     /**
@@ -684,28 +924,8 @@ public class ScenarioBuilder {
      * @return Calculated Base Cost of Holding Pond.
      */
     
-    private static double calculatePondBaseCost(double catl, double clay, double plst, double wire, double dist, double trch) {
-        double sqrtC = Math.sqrt(catl);
-        double eqn1 = 2.232 * catl + 11.338 * sqrtC;
-        double eqn2 = 3.72 * catl + trch * 7.94 * sqrtC + 0.844 * dist + clay * eqn1;
-
-        double eqn3 = (0.5 * 9.5 + 7.47) * eqn1;
-
-        double max = 1.38e-10 * Math.pow(eqn2,2.0) - 5.027e-5 * eqn2 + 6.736 + clay * eqn3
-        + plst / 0.7 * eqn3 + wire * (189.0 + Math.sqrt(820.0 * catl)) + 10000.0;
-        
-        max *= 1.1483;
-
-        eqn1 = 1.512 * catl + 9.332 * sqrtC;
-        eqn2 = 2.52 * catl + trch * 6.54 * sqrtC + 0.844 * dist + clay * eqn1;
-        eqn3 = (0.5 * 9.5 + 7.47) * eqn1;
-        
-        double min = 1.38e-10 * Math.pow(eqn2, 2.0) - 5.027e-5 * eqn2 + 6.736 + clay * eqn3
-        + plst / 0.7 * eqn3 + wire * (189.0 + Math.sqrt(556.0 * catl)) + 10000.0;
-        
-        min *= 1.1483;
-
-        return min / 2.0 + max / 2.0;
+    static double calculatePondBaseCost(double catl, double clay, double plst, double wire, double dist, double trch) {
+        return BmpCostEngine.pondBaseCost(catl, clay, plst, wire, dist, trch);
     }
     
     /**
@@ -715,220 +935,8 @@ public class ScenarioBuilder {
      * @return Calculated Maintenance Cost of Holding Pond.
      */
     
-    private static double calculatePondMaintenanceCost(double catl, double wire) {
-        double eqn = 0.03048 * Math.pow(Math.sqrt(1.68 * catl) - 6,2.0);
-
-        double min = 1.38e-10 * Math.pow(eqn, 2.0) - 5.027e-5 * eqn + 6.737
-        + wire * (24.48 + 3.05 * Math.sqrt(catl)) + 1.25 * catl;
-
-        eqn = 0.03048 * Math.pow(Math.sqrt(2.48 * catl) - 6, 2.0);
-
-        double max = 1.38e-10 * Math.pow(eqn, 2.0) - 5.027e-5 * eqn + 6.737
-        + wire * (24.48 + 3.71 * Math.sqrt(catl)) + 1.85 * catl;
-
-        return min / 2.0 + max / 2.0;
-    }
-    
-    /**
-     * 
-     * @param ivpArea: IdValuePair Array containing the Grazing id and area values.
-     * @param ivpPct: IdValuePair Array containing the Grazing id and Percent values.
-     * @param vtp: ValueTypePair Array containing the Grazing Economic data and type values.
-     * @return The Calculated value of the areaCostSum / areaSum. This formula is
-     *         comprised of the Sum of the UnitCost of the Grazing area,
-     *         times the Grazing area, times the Grazing area percentage, 
-     *         over the Sum of the Grazing area times the Grazing area
-     *         percentage.
-     */
-    
-    private static double calculateGrazingMeanCost(IdValuePair[] ivpArea, IdValuePair[] ivpPct, ValueTypePair[][] vtp) {
-        IdValuePair[] ivpCosts = new IdValuePair[ivpArea.length];
-        double areaCostSum = 0.0, areaSum = 0.0;
-        for(int i = 0; i < ivpArea.length; i++) {
-            for (ValueTypePair[] v : vtp) {
-                if (v[0].getPairValueAsInt() == ivpArea[i].getPairId()) {
-                    ivpCosts[i] = new IdValuePair(ivpArea[i].getPairId(), v[2].getPairValueAsDouble());
-                }
-            }
-            if(ivpCosts[i] == null) {
-                ivpCosts[i] = new IdValuePair(ivpArea[i].getPairId(), 0.0);
-            }
-        }
-        for(int i = 0; i < ivpCosts.length; i++) {
-            areaCostSum += (ivpCosts[i].getPairValue() * ivpArea[i].getPairValue() * ivpPct[i].getPairValue());
-            areaSum += ivpArea[i].getPairValue() * ivpPct[i].getPairValue();
-        }
-        return areaCostSum / areaSum;
-    }
-        
-    /**
-     * 
-     * @param iRs: Input ResultSet containing the query result from the source table.
-     * @param ntp: The NameTypePair array from getInputNamesAndTypes. 
-     * @param s: String containing the SQL Query to be written to the output Table.
-     * @param n: Starts building the Query String from the column n - 1 in ntp.
-     * @return sql: The Query needed for the output statement.
-     */
-    
-    private static String writeFieldOutputQuery(ResultSet iRs, NameTypePair[] ntp, String s, int n) {
-        try {
-            String sql = s;
-            for(int i = n; i < iRs.getMetaData().getColumnCount(); i++) {
-                if(ntp[i].getPairType() == 1) {
-                    sql += iRs.getInt(ntp[i].getPairName());
-                }
-                else {
-                    sql += iRs.getDouble(ntp[i].getPairName());
-                }
-                if(i == (iRs.getMetaData().getColumnCount() - 1)) {
-                    sql += ");";
-                }
-                else {
-                    sql += ", ";
-                }
-            }
-            return sql;
-        } catch(SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
-        }
-        return "";
-    }
-        
-    /**
-     * 
-     * Optimize Function Calls for this Method later.
-     * Break up loading Function and Writing Functions.
-     * 
-     * @param rsBmp: ResultSet for either the field_farm or field_subbasin
-     *               SQL Table. Due to the same functions being needed for both
-     *               the crop_economic_farms and crop_economic_subbasins SQL
-     *               Tables, BMP is used as a common identifier in the function.
-     * @param in: Input Statement Call.
-     * @param tbl: yield_historic SQL Table.
-     * @param ntp: The NameTypePair array from getInputNamesAndTypes.
-     * @param s: String containing the SQL Query to be written to the output Table.
-     * @param out: Output Statement Call.
-     */
-    
-    private static void writeFarmSubbasinOutputQueries(ResultSet rsBmp, Statement in, String tbl, NameTypePair[] ntp, String s, Statement out, String bmp) {
-        try {
-            int multiField = 0;
-            while(rsBmp.next()) {
-                String sql = s;
-                sql += rsBmp.getInt(2) + ", ";
-                int fieldId = rsBmp.getInt(1);
-                int bmpId = rsBmp.getInt(2);
-                if(multiField == bmpId) {
-                }
-                else {
-                    multiField = bmpId;
-                    if(rsBmp.getDouble(3) == 1.0) {
-                        ResultSet rsField = in.executeQuery("SELECT * FROM " + tbl + " WHERE field = " + fieldId + ";");
-                        while(rsField.next()) {
-                            out.executeUpdate(writeFieldOutputQuery(rsField, ntp, sql, 1));
-                        }
-                    }
-                    else {
-                        ResultSet rsField = in.executeQuery("SELECT * FROM " + rsBmp.getMetaData().getTableName(1) + " WHERE " + bmp + " = " + rsBmp.getInt(2) + ";");
-                        IdValuePair[] ivp = null, temp = null;
-                        int index = 0;
-                        while(rsField.next()) {
-                            if(ivp == null) {
-                                ivp = new IdValuePair[1];
-                                temp = new IdValuePair[1];
-                                ivp[index] = new IdValuePair(rsField.getInt("field"), rsField.getDouble("percent"));
-                                temp[index] = new IdValuePair();
-                                index++;
-                            }
-                            else {
-                                temp = new IdValuePair[ivp.length];
-                                System.arraycopy(ivp, 0, temp, 0, temp.length);
-                                ivp = new IdValuePair[temp.length + 1];
-                                System.arraycopy(temp, 0, ivp, 0, temp.length);
-                                ivp[index] = new IdValuePair(rsField.getInt("field"), rsField.getDouble("percent"));
-                                index++;
-                            }
-                        }
-                        double[][] bmpPercentTotals = new double[20][5];
-                        for (IdValuePair ivp1 : ivp) {
-                            int i = 0;
-                            rsField = in.executeQuery("SELECT * FROM " + tbl + " WHERE field = " + ivp1.getPairId() + ";");
-                            while(rsField.next()) {
-                                try {
-                                    for(int j = 1; j < rsField.getMetaData().getColumnCount(); j++) {
-                                        if(j == 1) {
-                                            bmpPercentTotals[i][j - 1] = rsField.getInt(ntp[j].getPairName());
-                                        }
-                                        else {
-                                            bmpPercentTotals[i][j - 1] += rsField.getDouble(ntp[j].getPairName()) * ivp1.getPairValue();
-                                        }
-
-                                    }
-                                } catch(SQLException e) {
-                                    Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
-                                }
-                                i++;
-                            }
-                        }
-                        for(int x = 0; x < 20; x++) {
-                            String pctSql = sql;
-                            for(int y = 0; y < 5; y++) {
-                                if(y == 0) {
-                                    int year = (int) bmpPercentTotals[x][y];
-                                    pctSql += year + ", ";
-                                }
-                                else {
-                                    if(y == 4) {
-                                        pctSql += bmpPercentTotals[x][y] + ");";
-                                    }
-                                    else {
-                                        pctSql += bmpPercentTotals[x][y] + ", ";
-                                    }
-                                }
-                            }
-                            out.executeUpdate(pctSql);
-                        }
-                    }
-                }
-            }
-        } catch(SQLException e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
-        }
-    }
-    
-    /**
-     * 
-     * @param src: Array containing the data values for the SQL query.
-     * @param s: The partial SQL Query String.
-     * @return sql: The complete SQL Query String.
-     */
-    
-    private static String writeDbfOutputQueries(ValueTypePair[] src, String s) {
-        String sql = s;
-        try {
-            for(int i = 0; i < src.length; i++) {
-                if(i == src.length - 1) {
-                    if(src[i].getPairValueAsInt() != -1) {
-                        sql += src[i].getPairValueAsInt() + ")";
-                    }
-                    else {
-                        sql += src[i].getPairValueAsDouble() + ")";
-                    }
-                }
-                else {
-                    if(src[i].getPairValueAsInt() != -1) {
-                        sql += src[i].getPairValueAsInt() + ",";
-                    }
-                    else {
-                        sql += src[i].getPairValueAsDouble() + ",";
-                    }
-                }
-            }
-            return sql;
-        } catch(Exception  e) {
-            Logger.getLogger(ScenarioBuilder.class.getName()).log(Level.SEVERE, null, e);
-        }
-        return "";
+    static double calculatePondMaintenanceCost(double catl, double wire) {
+        return BmpCostEngine.pondMaintenanceCost(catl, wire);
     }
     
 }
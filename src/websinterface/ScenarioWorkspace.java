@@ -0,0 +1,142 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * ScenarioWorkspace Class
+ *
+ * @author radfordd
+ *
+ * ScenarioWorkspace builds the scenarios of several watersheds at once. Every
+ * watershed is a WatershedProject read from its .wbprj file, and writes its
+ * scenario .db3 files to a folder of its own under the root folder of the
+ * workspace, named after the watershed. All builds share one
+ * ScenarioBuildExecutor, so the limit on concurrent builds holds across all
+ * watersheds rather than for each one.
+ *
+ * The ProgressEvents of a build are named watershed/scenario.
+ */
+class ScenarioWorkspace {
+    private final File root;
+    private final ScenarioBuildExecutor executor;
+    private final Map<String, WatershedProject> watersheds = new LinkedHashMap<>();
+    private final List<ScenarioBuilder> builds = new ArrayList<>();
+
+    /**
+     *
+     * @param root: Folder holding the output folder of each watershed, or
+     *              null to write each watershed to the output folder of its
+     *              WatershedProject.
+     * @param maxConcurrentBuilds: Maximum number of builds run at the same
+     *                             time across all watersheds.
+     */
+
+    public ScenarioWorkspace(File root, int maxConcurrentBuilds) {
+        this.root = root == null ? null : root.getAbsoluteFile();
+        executor = new ScenarioBuildExecutor(maxConcurrentBuilds);
+    }
+
+    /**
+     *
+     * @param wbprj: Project file of the watershed.
+     * @return The WatershedProject of the watershed, writing to root/name.
+     * @throws IllegalArgumentException: The workspace already has a watershed
+     *                                   of the same name.
+     */
+
+    public synchronized WatershedProject addWatershed(File wbprj) {
+        WatershedProject p = WatershedProject.forProject(wbprj);
+        String folder = folderName(p.getName());
+        // Compared without case, as the output folders may be.
+        String key = folder.toLowerCase(Locale.ROOT);
+        if(watersheds.containsKey(key)) {
+            throw new IllegalArgumentException("Watershed " + p.getName() + " of " + wbprj + " is already in the workspace");
+        }
+        if(root != null) {
+            p = p.withOutputFolder(new File(root, folder));
+        }
+        watersheds.put(key, p);
+        return p;
+    }
+
+    public synchronized List<WatershedProject> getWatersheds() {
+        return Collections.unmodifiableList(new ArrayList<>(watersheds.values()));
+    }
+
+    /**
+     *
+     * @param p: WatershedProject of the workspace.
+     * @param scen: String containing the Scenario Name.
+     * @param isBase: Boolean value indicating a base scenario.
+     * @param type: Boolean value indicating an Historical ('True') or a
+     *              Conventional ('False') scenario.
+     * @return The ScenarioBuilder of the scenario, not yet submitted.
+     */
+
+    public ScenarioBuilder createBuilder(WatershedProject p, String scen, boolean isBase, boolean type) {
+        ScenarioBuilder sb = new ScenarioBuilder(scen, isBase, type, p);
+        sb.setLabel(p.getName() + "/" + scen);
+        return sb;
+    }
+
+    /**
+     *
+     * @param sb: ScenarioBuilder from createBuilder().
+     * @return The Future of the build.
+     */
+
+    public synchronized Future<ScenarioBuilder> submit(ScenarioBuilder sb) {
+        builds.add(sb);
+        return executor.submit(sb);
+    }
+
+    public synchronized List<ScenarioBuilder> getBuilds() {
+        return Collections.unmodifiableList(new ArrayList<>(builds));
+    }
+
+    /**
+     *
+     * @param l: BuildProgressListener receiving the progress of every build.
+     */
+
+    public void setProgressListener(BuildProgressListener l) {
+        executor.setProgressListener(l);
+    }
+
+    /**
+     * Waits for every submitted build to finish, as
+     * ScenarioBuildExecutor.awaitAll().
+     */
+
+    public void awaitAll() throws ClassNotFoundException, SQLException, IOException, InterruptedException {
+        executor.awaitAll();
+    }
+
+    public void cancelAll() {
+        executor.cancelAll();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     *
+     * @return The watershed name with any character that is not safe in a
+     *         folder name replaced by '_'.
+     */
+
+    static String folderName(String name) {
+        String s = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return s.isEmpty() || s.matches("\\.+") ? "_" : s;
+    }
+}
@@ -0,0 +1,127 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SimulationHorizon Class
+ *
+ * @author radfordd
+ *
+ * SimulationHorizon is the range of years covered by a project, taken from the
+ * StartYear and EndYear of the SWATInput section of the .wbprj file. The yearly
+ * economic tables hold one row for every BMP and every year of the horizon.
+ * Those rows are not stored: write() generates the BMP x year product while it
+ * is written, so the memory used does not grow with the length of the horizon.
+ */
+class SimulationHorizon {
+    public static final SimulationHorizon DEFAULT = new SimulationHorizon(1991, 2010);
+    private static final Pattern START = Pattern.compile("\"StartYear\"\\s*:\\s*(-?\\d+)");
+    private static final Pattern END = Pattern.compile("\"EndYear\"\\s*:\\s*(-?\\d+)");
+    private final int startYear;
+    private final int endYear;
+
+    /**
+     *
+     * @param startYear: First year of the horizon.
+     * @param endYear: Last year of the horizon, inclusive.
+     */
+
+    public SimulationHorizon(int startYear, int endYear) {
+        if(endYear < startYear) {
+            throw new IllegalArgumentException("EndYear " + endYear + " is before StartYear " + startYear);
+        }
+        this.startYear = startYear;
+        this.endYear = endYear;
+    }
+
+    /**
+     *
+     * @param wbprj: Project (.wbprj) file.
+     * @return The horizon of the project, or DEFAULT if the file cannot be
+     *         read or does not hold a valid StartYear and EndYear.
+     */
+
+    public static SimulationHorizon forProject(File wbprj) {
+        try {
+            String txt = new String(Files.readAllBytes(wbprj.toPath()), StandardCharsets.UTF_8);
+            Matcher s = START.matcher(txt);
+            Matcher e = END.matcher(txt);
+            if(s.find() && e.find()) {
+                return new SimulationHorizon(Integer.parseInt(s.group(1)), Integer.parseInt(e.group(1)));
+            }
+        } catch(IOException | IllegalArgumentException e) {
+            Logger.getLogger(SimulationHorizon.class.getName()).log(Level.WARNING, null, e);
+        }
+        return DEFAULT;
+    }
+
+    public int getStartYear() {
+        return startYear;
+    }
+
+    public int getEndYear() {
+        return endYear;
+    }
+
+    public int getYearCount() {
+        return endYear - startYear + 1;
+    }
+
+    /**
+     * Writes one row (id, year, value) for every BMP and every year of the
+     * horizon, ordered by BMP and then by year.
+     *
+     * @param w: BatchedTableWriter for the output Table.
+     * @param ids: BMP ids.
+     * @param values: Yearly value of each BMP.
+     * @throws SQLException: Error writing the output Table.
+     */
+
+    public void write(BatchedTableWriter w, int[] ids, double[] values) throws SQLException {
+        for(int i = 0; i < ids.length; i++) {
+            for(int year = startYear; year <= endYear; year++) {
+                w.setInt(1, ids[i]);
+                w.setInt(2, year);
+                w.setDouble(3, values[i]);
+                w.addRow();
+            }
+        }
+    }
+
+    /**
+     * Writes one row (id, year, values[0], values[1], ...) for every BMP and
+     * every year of the horizon, ordered by BMP and then by year.
+     *
+     * @param w: BatchedTableWriter for the output Table.
+     * @param ids: BMP ids.
+     * @param values: One Array of yearly values for each value column, each
+     *                holding one entry for each BMP.
+     * @throws SQLException: Error writing the output Table.
+     */
+
+    public void write(BatchedTableWriter w, int[] ids, double[][] values) throws SQLException {
+        for(int i = 0; i < ids.length; i++) {
+            for(int year = startYear; year <= endYear; year++) {
+                w.setInt(1, ids[i]);
+                w.setInt(2, year);
+                for(int j = 0; j < values.length; j++) {
+                    w.setDouble(3 + j, values[j][i]);
+                }
+                w.addRow();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return startYear + "-" + endYear;
+    }
+}
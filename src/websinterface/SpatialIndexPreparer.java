@@ -0,0 +1,262 @@
+package websinterface;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SpatialIndexPreparer Class
+ *
+ * @author radfordd
+ *
+ * SpatialIndexPreparer makes sure the lookup tables of the Spatial.db3 file
+ * read by ScenarioBuilder are indexed on the columns the builder filters and
+ * orders them by. An index is created for every lookup that is not already the
+ * leading part of an existing index. Once the file is prepared, a fingerprint
+ * of its schema is stored in the webs_prepare table, and later runs only
+ * compare the fingerprint. Any change to the schema of the file, such as a
+ * replaced table, causes the indexes to be checked again.
+ *
+ * Lookups whose table or columns do not exist in the file are skipped.
+ */
+class SpatialIndexPreparer {
+    static final String STATE_TABLE = "webs_prepare";
+    // How long to wait for another connection preparing the file.
+    private static final long LOCK_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    private static final long LOCK_RETRY_MILLIS = 100;
+    // Table followed by the indexed columns, in index order.
+    private static final String[][] lookups = {
+        {"yield_historic", "field", "year"},
+        {"yield_conventional", "field", "year"},
+        {"field_farm", "farm", "field", "percent"},
+        {"field_subbasin", "subbasin", "field", "percent"},
+        {"subbasin_grazing", "grazing", "subbasin"},
+        {"subbasin_grazing", "subbasin"},
+        {"grazing_area", "id"},
+        {"subbasin_grazing_hru", "subbasin"}};
+
+    private SpatialIndexPreparer() {
+    }
+
+    /**
+     * Prepares the Spatial.db3 file unless the stored fingerprint matches its
+     * schema. Calls are serialised within the program, and a connection holds
+     * the write lock of the file from before it checks the fingerprint again
+     * until the indexes are committed, so builds and programs sharing the file
+     * prepare it once. Any transaction open on c is ended.
+     *
+     * @param c: Connection to the Spatial.db3 file, with auto-commit disabled.
+     * @return The number of indexes created.
+     * @throws SQLException: Error reading the schema or creating an index, or
+     *                       the file stayed locked by another connection.
+     */
+
+    public static synchronized int prepare(Connection c) throws SQLException {
+        boolean prepared = fingerprint(c).equals(loadFingerprint(c));
+        c.rollback();
+        if(prepared) {
+            return 0;
+        }
+        lock(c);
+        try {
+            // Another connection may have prepared the file while c waited.
+            if(fingerprint(c).equals(loadFingerprint(c))) {
+                c.rollback();
+                return 0;
+            }
+            int created = 0;
+            try(Statement stmt = c.createStatement()) {
+                for(String[] l : lookups) {
+                    String tbl = l[0];
+                    String[] cols = new String[l.length - 1];
+                    System.arraycopy(l, 1, cols, 0, cols.length);
+                    if(!hasColumns(stmt, tbl, cols) || isIndexed(c, stmt, tbl, cols)) {
+                        continue;
+                    }
+                    StringBuilder name = new StringBuilder("webs_" + tbl);
+                    for(String col : cols) {
+                        name.append('_').append(col);
+                    }
+                    stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + name + " ON " + tbl + "(" + join(cols) + ");");
+                    created++;
+                }
+                if(created > 0) {
+                    stmt.executeUpdate("ANALYZE;");
+                }
+            }
+            try(PreparedStatement ps = c.prepareStatement("INSERT OR REPLACE INTO " + STATE_TABLE + " VALUES ('schema_fingerprint', ?);")) {
+                ps.setString(1, fingerprint(c));
+                ps.executeUpdate();
+            }
+            c.commit();
+            return created;
+        } catch(SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a write transaction on c, which keeps other connections from
+     * writing to the file until it ends. The first statement of the
+     * transaction writes, so a connection waiting for the lock holds no read
+     * lock that could block the connection holding it.
+     *
+     * @param c: Connection to the Spatial.db3 file, with no open transaction.
+     * @throws SQLException: Error writing to the file, or the file stayed
+     *                       locked for LOCK_TIMEOUT_MILLIS.
+     */
+
+    private static void lock(Connection c) throws SQLException {
+        long deadline = System.currentTimeMillis() + LOCK_TIMEOUT_MILLIS;
+        while(true) {
+            try(Statement stmt = c.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + STATE_TABLE + "(key text PRIMARY KEY, value text);");
+                c.commit();
+                stmt.executeUpdate("UPDATE " + STATE_TABLE + " SET value = value WHERE key = 'schema_fingerprint';");
+                return;
+            } catch(SQLException e) {
+                c.rollback();
+                String msg = String.valueOf(e.getMessage()).toLowerCase();
+                if(!(msg.contains("locked") || msg.contains("busy")) || System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MILLIS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for the lock of the spatial file", e);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param c: Connection to the Spatial.db3 file.
+     * @return SHA-256 of the schema of the file, leaving out the webs_prepare
+     *         table and the statistics tables written by ANALYZE.
+     * @throws SQLException: Error reading sqlite_master.
+     */
+
+    static String fingerprint(Connection c) throws SQLException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try(Statement stmt = c.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT type, name, tbl_name, sql FROM sqlite_master WHERE tbl_name <> '"
+                                             + STATE_TABLE + "' AND tbl_name NOT LIKE 'sqlite_%' ORDER BY type, name;");
+            while(rs.next()) {
+                for(int i = 1; i <= 4; i++) {
+                    String s = rs.getString(i);
+                    md.update((s == null ? "" : s).getBytes(StandardCharsets.UTF_8));
+                    md.update((byte) 0);
+                }
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for(byte b : md.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String loadFingerprint(Connection c) {
+        try(Statement stmt = c.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT value FROM " + STATE_TABLE + " WHERE key = 'schema_fingerprint';");
+            return rs.next() ? rs.getString(1) : null;
+        } catch(SQLException e) {
+            // No webs_prepare table yet.
+            return null;
+        }
+    }
+
+    private static boolean hasColumns(Statement stmt, String tbl, String[] cols) throws SQLException {
+        Set<String> names = new HashSet<>();
+        for(String name : pragmaNames(stmt, "PRAGMA table_info(" + tbl + ");")) {
+            names.add(name.toLowerCase());
+        }
+        for(String col : cols) {
+            if(!names.contains(col.toLowerCase())) {
+                if(!names.isEmpty()) {
+                    Logger.getLogger(SpatialIndexPreparer.class.getName()).log(Level.WARNING, "No column {0} in {1}", new Object[]{col, tbl});
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return True if an existing index of tbl starts with the columns cols,
+     *         in order.
+     */
+
+    private static boolean isIndexed(Connection c, Statement stmt, String tbl, String[] cols) throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        try(PreparedStatement ps = c.prepareStatement("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ?;")) {
+            ps.setString(1, tbl);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()) {
+                indexes.add(rs.getString(1));
+            }
+        }
+        for(String idx : indexes) {
+            List<String> idxCols = pragmaNames(stmt, "PRAGMA index_info('" + idx.replace("'", "''") + "');");
+            boolean match = idxCols.size() >= cols.length;
+            for(int i = 0; match && i < cols.length; i++) {
+                match = cols[i].equalsIgnoreCase(idxCols.get(i));
+            }
+            if(match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The SQLite driver throws from executeQuery() when a pragma returns no
+     * rows, as for a table that does not exist, so pragmas are run through
+     * execute().
+     *
+     * @return The name column of the rows returned by pragma.
+     */
+
+    private static List<String> pragmaNames(Statement stmt, String pragma) throws SQLException {
+        List<String> names = new ArrayList<>();
+        if(stmt.execute(pragma)) {
+            try(ResultSet rs = stmt.getResultSet()) {
+                while(rs.next()) {
+                    names.add(rs.getString("name"));
+                }
+            }
+        }
+        return names;
+    }
+
+    private static String join(String[] cols) {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < cols.length; i++) {
+            if(i > 0) {
+                sb.append(", ");
+            }
+            sb.append(cols[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,367 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SyntheticWatershed Class
+ *
+ * @author radfordd
+ *
+ * SyntheticWatershed generates a made up watershed, used to test the scenario
+ * build at larger scales: the lookup tables of a Spatial.db3 file, the
+ * small_dam, cattle_yard and grazing DBF tables, and a .wbprj project file
+ * pointing to them. At a scale of 1 the watershed has the size of the STC
+ * watershed: 372 fields, 33 farms, 82 subbasins, 26 small dams, 16 cattle
+ * yards and 11 grazing areas. Every count is multiplied by the scale, so a
+ * scale of 1000 over a 20 year horizon gives 7.44 million field-years. The
+ * same scale and seed always give the same watershed.
+ *
+ * Every field belongs to one farm and one subbasin, and the percentages of the
+ * fields of a farm or subbasin add up to 1.0. Every grazing area lies in one
+ * or two subbasins, and every grazing subbasin has two HRUs. Every grazing
+ * area has an Existing grazing record, while one in ten small dams and seven
+ * in eight cattle yards are not Existing, as in the STC tables.
+ *
+ * From the command line:
+ *
+ *      java -cp WEBsInterface.jar websinterface.SyntheticWatershed
+ *           [--scale N] [--seed S] [--start YEAR] [--end YEAR] folder name
+ *
+ * writes folder/name.wbprj and the folder/Data/Spatial files.
+ */
+public class SyntheticWatershed {
+    static final int FIELDS = 372;
+    static final int FARMS = 33;
+    static final int SUBBASINS = 82;
+    static final int SMALL_DAMS = 26;
+    static final int CATTLE_YARDS = 16;
+    static final int GRAZING = 11;
+    static final long BENCH_SEED = 20140717L;
+    private final int scale;
+    private final long seed;
+    private final SimulationHorizon horizon;
+
+    /**
+     *
+     * @param scale: Multiplier of the STC sized counts, at least 1.
+     * @param seed: Seed of the random values.
+     * @param horizon: SimulationHorizon giving the years of the yield tables.
+     */
+
+    public SyntheticWatershed(int scale, long seed, SimulationHorizon horizon) {
+        if(scale < 1) {
+            throw new IllegalArgumentException("Scale must be at least 1: " + scale);
+        }
+        this.scale = scale;
+        this.seed = seed;
+        this.horizon = horizon;
+    }
+
+    public int getFieldCount() {
+        return FIELDS * scale;
+    }
+
+    public int getFarmCount() {
+        return FARMS * scale;
+    }
+
+    public int getSubbasinCount() {
+        return SUBBASINS * scale;
+    }
+
+    public int getGrazingCount() {
+        return GRAZING * scale;
+    }
+
+    public int getSmallDamCount() {
+        return SMALL_DAMS * scale;
+    }
+
+    public int getCattleYardCount() {
+        return CATTLE_YARDS * scale;
+    }
+
+    public SimulationHorizon getHorizon() {
+        return horizon;
+    }
+
+    /**
+     *
+     * @param field: Field id, from 1.
+     * @return The farm id of the field, from 1.
+     */
+
+    public int farmOf(int field) {
+        return (field - 1) % getFarmCount() + 1;
+    }
+
+    /**
+     *
+     * @param field: Field id, from 1.
+     * @return The subbasin id of the field, from 1.
+     */
+
+    public int subbasinOf(int field) {
+        return (field - 1) % getSubbasinCount() + 1;
+    }
+
+    /**
+     *
+     * @param grazing: Grazing id, from 1.
+     * @return The first subbasin of the grazing area. Every second grazing
+     *         area also lies in the next subbasin.
+     */
+
+    public int subbasinOfGrazing(int grazing) {
+        return (grazing - 1) * 3 % getSubbasinCount() + 1;
+    }
+
+    /**
+     * Writes the lookup tables to a Spatial.db3 file. Existing tables of the
+     * same names are replaced.
+     *
+     * @param db3: Output Spatial.db3 file.
+     * @throws ClassNotFoundException: Missing the Library for SQLite version of JDBC.
+     * @throws SQLException: Error writing the tables.
+     * @throws IOException: The parent folder of the file cannot be created.
+     */
+
+    public void writeSpatialDatabase(File db3) throws ClassNotFoundException, SQLException, IOException {
+        File dir = db3.getAbsoluteFile().getParentFile();
+        if(dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        Class.forName("org.sqlite.JDBC");
+        try(Connection c = DriverManager.getConnection("jdbc:sqlite:" + db3.getAbsolutePath())) {
+            WriteProfile.BULK_LOAD.apply(c);
+            c.setAutoCommit(false);
+            try(Statement stmt = c.createStatement()) {
+                for(String tbl : new String[]{"yield_historic", "yield_conventional"}) {
+                    stmt.executeUpdate("DROP TABLE IF EXISTS " + tbl + ";");
+                    stmt.executeUpdate("CREATE TABLE " + tbl + "(field int, year int, yield real, revenue real, cost real, net_return real);");
+                }
+                stmt.executeUpdate("DROP TABLE IF EXISTS field_farm;");
+                stmt.executeUpdate("CREATE TABLE field_farm(field int, farm int, percent real);");
+                stmt.executeUpdate("DROP TABLE IF EXISTS field_subbasin;");
+                stmt.executeUpdate("CREATE TABLE field_subbasin(field int, subbasin int, percent real);");
+                stmt.executeUpdate("DROP TABLE IF EXISTS subbasin_grazing;");
+                stmt.executeUpdate("CREATE TABLE subbasin_grazing(subbasin int, grazing int, percent real);");
+                stmt.executeUpdate("DROP TABLE IF EXISTS grazing_area;");
+                stmt.executeUpdate("CREATE TABLE grazing_area(id int, area real);");
+                stmt.executeUpdate("DROP TABLE IF EXISTS subbasin_grazing_hru;");
+                stmt.executeUpdate("CREATE TABLE subbasin_grazing_hru(subbasin int, hru int);");
+            }
+            Random r = new Random(seed);
+            writeYields(c, "yield_historic", r, 1.0);
+            writeYields(c, "yield_conventional", r, 0.9);
+            writeWeights(c, "field_farm", getFarmCount(), true);
+            writeWeights(c, "field_subbasin", getSubbasinCount(), false);
+            writeGrazing(c, r);
+            c.commit();
+        }
+    }
+
+    /**
+     * Writes the small_dam, cattle_yard and grazing DBF tables with the
+     * fields read by ScenarioBuilder.
+     *
+     * @param folder: Output folder.
+     * @throws IOException: Error writing a table.
+     */
+
+    public void writeDbfTables(File folder) throws IOException {
+        if(!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Cannot create " + folder);
+        }
+        // Separate from the Spatial.db3 values, so either can be regenerated alone.
+        Random r = new Random(seed + 1);
+        try(DbfWriter w = new DbfWriter(new File(folder, "small_dam.dbf"), new String[]{"ID", "Embankment", "LifeTime", "Existing"},
+                                        new int[]{9, 19, 4, 10}, new int[]{0, 11, 0, 0})) {
+            for(int id = 1; id <= getSmallDamCount(); id++) {
+                w.addRecord(id, 500.0 + 9500.0 * r.nextDouble(), 25 + 25 * r.nextInt(2), id % 10 == 0 ? 0 : 1);
+            }
+        }
+        try(DbfWriter w = new DbfWriter(new File(folder, "cattle_yard.dbf"), new String[]{"ID", "HRU", "Cattles", "ClayLiner", "PlasticLn",
+                                        "WireFence", "Distance", "Trenching", "Pond_Yrs", "Existing"},
+                                        new int[]{9, 9, 9, 4, 4, 4, 19, 19, 4, 4}, new int[]{0, 0, 0, 0, 0, 0, 11, 11, 0, 0})) {
+            for(int id = 1; id <= getCattleYardCount(); id++) {
+                w.addRecord(id, 1 + r.nextInt(getSubbasinCount() * 2), 20 + r.nextInt(200), r.nextInt(2), r.nextInt(2), r.nextInt(2),
+                            5.0 + 95.0 * r.nextDouble(), r.nextDouble(), 50, id % 8 == 0 ? 1 : 0);
+            }
+        }
+        try(DbfWriter w = new DbfWriter(new File(folder, "grazing.dbf"), new String[]{"ID", "Grazing_Ha", "UnitCost", "Existing"},
+                                        new int[]{9, 19, 19, 4}, new int[]{0, 11, 11, 0})) {
+            for(int id = 1; id <= getGrazingCount(); id++) {
+                w.addRecord(id, 0.5 + 20.0 * r.nextDouble(), 50.0 + 100.0 * r.nextDouble(), 1);
+            }
+        }
+    }
+
+    /**
+     * Writes a .wbprj project file with the horizon of the watershed and the
+     * location of its Spatial folder and Spatial.db3 file.
+     *
+     * @param wbprj: Output project file.
+     * @param spatialFolder: Folder holding the DBF tables and Spatial.db3.
+     * @throws IOException: Error writing the file.
+     */
+
+    public void writeProject(File wbprj, File spatialFolder) throws IOException {
+        String name = wbprj.getName().replaceFirst("\\.wbprj$", "");
+        String folder = spatialFolder.getAbsolutePath() + File.separator;
+        String json = "{\"Watersehd\":" + quote(name)
+                      + ",\"Spatial\":{\"SpatialFolder\":" + quote(folder)
+                      + ",\"SpatialDatabase\":" + quote(folder + "spatial.db3") + "}"
+                      + ",\"SWATInput\":{\"StartYear\":" + horizon.getStartYear()
+                      + ",\"EndYear\":" + horizon.getEndYear() + "}}";
+        Files.write(wbprj.toPath(), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    public static void main(String[] args) {
+        int scale = 1;
+        long seed = BENCH_SEED;
+        int start = SimulationHorizon.DEFAULT.getStartYear();
+        int end = SimulationHorizon.DEFAULT.getEndYear();
+        List<String> rest = new ArrayList<>();
+        try {
+            for(int i = 0; i < args.length; i++) {
+                switch(args[i]) {
+                    case "--scale":
+                        scale = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--start":
+                        start = Integer.parseInt(args[++i]);
+                        break;
+                    case "--end":
+                        end = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        rest.add(args[i]);
+                        break;
+                }
+            }
+            if(rest.size() != 2) {
+                throw new IllegalArgumentException("Expected an output folder and a watershed name");
+            }
+            SyntheticWatershed ws = new SyntheticWatershed(scale, seed, new SimulationHorizon(start, end));
+            File folder = new File(rest.get(0));
+            File spatial = new File(folder, "Data" + File.separator + "Spatial");
+            long t = System.currentTimeMillis();
+            ws.writeSpatialDatabase(new File(spatial, "spatial.db3"));
+            ws.writeDbfTables(spatial);
+            ws.writeProject(new File(folder, rest.get(1) + ".wbprj"), spatial);
+            System.out.println("fields\t" + ws.getFieldCount());
+            System.out.println("field_years\t" + (long) ws.getFieldCount() * ws.getHorizon().getYearCount());
+            System.out.println("farms\t" + ws.getFarmCount());
+            System.out.println("subbasins\t" + ws.getSubbasinCount());
+            System.out.println("small_dams\t" + ws.getSmallDamCount());
+            System.out.println("cattle_yards\t" + ws.getCattleYardCount());
+            System.out.println("grazing\t" + ws.getGrazingCount());
+            System.out.println("millis\t" + (System.currentTimeMillis() - t));
+        } catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: SyntheticWatershed [--scale N] [--seed S] [--start YEAR] [--end YEAR] folder name");
+            System.exit(2);
+        } catch(ClassNotFoundException | SQLException | IOException e) {
+            Logger.getLogger(SyntheticWatershed.class.getName()).log(Level.SEVERE, null, e);
+            System.exit(1);
+        }
+    }
+
+    private void writeYields(Connection c, String tbl, Random r, double factor) throws SQLException {
+        try(BatchedTableWriter w = new BatchedTableWriter(c, tbl, new String[]{"field", "year", "yield", "revenue", "cost", "net_return"})) {
+            for(int field = 1; field <= getFieldCount(); field++) {
+                double base = 2.0 + 3.0 * r.nextDouble();
+                double price = 150.0 + 100.0 * r.nextDouble();
+                for(int year = horizon.getStartYear(); year <= horizon.getEndYear(); year++) {
+                    double yield = base * factor * (0.8 + 0.4 * r.nextDouble());
+                    double revenue = yield * price;
+                    double cost = 250.0 + 150.0 * r.nextDouble();
+                    w.setInt(1, field);
+                    w.setInt(2, year);
+                    w.setDouble(3, yield);
+                    w.setDouble(4, revenue);
+                    w.setDouble(5, cost);
+                    w.setDouble(6, revenue - cost);
+                    w.addRow();
+                }
+            }
+            w.commit();
+        }
+    }
+
+    /**
+     * Writes field_farm or field_subbasin. Every field is given an equal share
+     * of its farm or subbasin.
+     */
+
+    private void writeWeights(Connection c, String tbl, int groups, boolean farm) throws SQLException {
+        int[] counts = new int[groups + 1];
+        for(int field = 1; field <= getFieldCount(); field++) {
+            counts[farm ? farmOf(field) : subbasinOf(field)]++;
+        }
+        String bmp = farm ? "farm" : "subbasin";
+        try(BatchedTableWriter w = new BatchedTableWriter(c, tbl, new String[]{"field", bmp, "percent"})) {
+            for(int field = 1; field <= getFieldCount(); field++) {
+                int id = farm ? farmOf(field) : subbasinOf(field);
+                w.setInt(1, field);
+                w.setInt(2, id);
+                w.setDouble(3, 1.0 / counts[id]);
+                w.addRow();
+            }
+            w.commit();
+        }
+    }
+
+    private void writeGrazing(Connection c, Random r) throws SQLException {
+        try(PreparedStatement area = c.prepareStatement("INSERT INTO grazing_area VALUES(?, ?);");
+            PreparedStatement sub = c.prepareStatement("INSERT INTO subbasin_grazing VALUES(?, ?, ?);");
+            PreparedStatement hru = c.prepareStatement("INSERT INTO subbasin_grazing_hru VALUES(?, ?);")) {
+            boolean[] hasHrus = new boolean[getSubbasinCount() + 1];
+            for(int g = 1; g <= getGrazingCount(); g++) {
+                area.setInt(1, g);
+                area.setDouble(2, 0.5 + 20.0 * r.nextDouble());
+                area.addBatch();
+                int s = subbasinOfGrazing(g);
+                int[] subs = g % 2 == 0 ? new int[]{s, s % getSubbasinCount() + 1} : new int[]{s};
+                for(int id : subs) {
+                    sub.setInt(1, id);
+                    sub.setInt(2, g);
+                    sub.setDouble(3, 1.0 / subs.length);
+                    sub.addBatch();
+                    if(!hasHrus[id]) {
+                        hasHrus[id] = true;
+                        for(int h = 0; h < 2; h++) {
+                            hru.setInt(1, id);
+                            hru.setInt(2, id * 10 + h);
+                            hru.addBatch();
+                        }
+                    }
+                }
+            }
+            area.executeBatch();
+            sub.executeBatch();
+            hru.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package websinterface;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TableSchemaCache Class
+ *
+ * @author radfordd
+ *
+ * TableSchemaCache holds the column names and types of the tables in one
+ * SQLite database. Each table is read once with PRAGMA table_info and kept for
+ * the life of the connection, so writers do not need to query a table just to
+ * learn its columns. Declared types containing "INT" are stored with a type of
+ * 1 (Integer) and all other columns with a type of 0 (Double), matching the
+ * NameTypePair convention used by ScenarioBuilder.
+ */
+class TableSchemaCache {
+    private final Connection c;
+    private final Map<String, NameTypePair[]> schemas = new HashMap<>();
+
+    public TableSchemaCache(Connection c) {
+        this.c = c;
+    }
+
+    /**
+     *
+     * @param tbl: String containing the name of the SQL Table.
+     * @return The NameTypePair Array of the table columns in table order.
+     * @throws SQLException: Error reading the table information, or the table
+     *                       does not exist.
+     */
+
+    public NameTypePair[] getColumns(String tbl) throws SQLException {
+        NameTypePair[] ntp = schemas.get(tbl);
+        if(ntp == null) {
+            ntp = loadColumns(tbl);
+            schemas.put(tbl, ntp);
+        }
+        return ntp;
+    }
+
+    /**
+     *
+     * @param tbl: String containing the name of the SQL Table.
+     * @return The column names of the table in table order.
+     */
+
+    public String[] getColumnNames(String tbl) throws SQLException {
+        NameTypePair[] ntp = getColumns(tbl);
+        String[] names = new String[ntp.length];
+        for(int i = 0; i < ntp.length; i++) {
+            names[i] = ntp[i].getPairName();
+        }
+        return names;
+    }
+
+    private NameTypePair[] loadColumns(String tbl) throws SQLException {
+        try(Statement stmt = c.createStatement()) {
+            ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + tbl + ");");
+            ArrayList<NameTypePair> ntp = new ArrayList<>();
+            while(rs.next()) {
+                String type = rs.getString("type");
+                ntp.add(new NameTypePair(rs.getString("name"), type != null && type.toUpperCase().contains("INT") ? 1 : 0));
+            }
+            if(ntp.isEmpty()) {
+                throw new SQLException("No such table: " + tbl);
+            }
+            return ntp.toArray(new NameTypePair[ntp.size()]);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package websinterface;
+
+import java.util.ArrayList;
+import whitebox.geospatialfiles.VectorLayerInfo;
+import whitebox.geospatialfiles.shapefile.ShapeFileRecord;
+import whitebox.geospatialfiles.shapefile.ShapeType;
+import whitebox.structures.BoundingBox;
+
+/**
+ * VectorLayerIndex Class
+ *
+ * @author radfordd
+ *
+ * VectorLayerIndex is a PackedRTree over the bounding boxes of the records of
+ * a vector layer, built once from the records of its shapefile. MapRenderer
+ * draws, hit-tests and selects features through the records found by the
+ * index rather than by looping over every record of the layer, so the cost of
+ * a view grows with the features within it rather than the features loaded.
+ *
+ * Null shapes are left out of the index. An index is replaced when the
+ * records of its layer change in number or the layer is edited, and stands
+ * for the version of the records in the key of the cached layer image; a
+ * layer being edited is drawn from its own records, as its features change
+ * with every node. The index also
+ * holds the GeometryPyramid and ProjectedGeometry of the layer, which are
+ * replaced along with it.
+ */
+class VectorLayerIndex {
+    private final ArrayList<ShapeFileRecord> source;
+    private final int sourceSize;
+    private final ShapeFileRecord[] records;
+    private final double[] width;
+    private final double[] height;
+    // Points are never too small to draw.
+    private final boolean isPoint;
+    private final PackedRTree tree;
+    private final double size;
+    private GeometryPyramid pyramid;
+    private ProjectedGeometry projected;
+    private final PackedRTree.Hits hits = new PackedRTree.Hits();
+    private final ArrayList<ShapeFileRecord> visible = new ArrayList<>();
+    private final ArrayList<ShapeFileRecord> underPoint = new ArrayList<>();
+
+    private VectorLayerIndex(ArrayList<ShapeFileRecord> source, ShapeType shapeType) {
+        this.source = source;
+        sourceSize = source.size();
+        ArrayList<ShapeFileRecord> indexed = new ArrayList<>(sourceSize);
+        for(ShapeFileRecord record : source) {
+            if(record.getShapeType() != ShapeType.NULLSHAPE) {
+                indexed.add(record);
+            }
+        }
+        records = indexed.toArray(new ShapeFileRecord[indexed.size()]);
+        int n = records.length;
+        double[] minX = new double[n];
+        double[] minY = new double[n];
+        double[] maxX = new double[n];
+        double[] maxY = new double[n];
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        width = new double[n];
+        height = new double[n];
+        for(int i = 0; i < n; i++) {
+            BoundingBox bb = records[i].getGeometry().getBox();
+            minX[i] = bb.getMinX();
+            minY[i] = bb.getMinY();
+            maxX[i] = bb.getMaxX();
+            maxY[i] = bb.getMaxY();
+            width[i] = maxX[i] - minX[i];
+            height[i] = maxY[i] - minY[i];
+            x0 = Math.min(x0, minX[i]);
+            y0 = Math.min(y0, minY[i]);
+            x1 = Math.max(x1, maxX[i]);
+            y1 = Math.max(y1, maxY[i]);
+        }
+        size = n > 0 ? Math.max(x1 - x0, y1 - y0) : 0;
+        ShapeType base = shapeType.getBaseType();
+        isPoint = base == ShapeType.POINT || base == ShapeType.MULTIPOINT;
+        tree = new PackedRTree(minX, minY, maxX, maxY);
+    }
+
+    /**
+     *
+     * @param layer: Vector layer to index.
+     * @param current: Index of the layer from an earlier call, or null.
+     * @return current if it still indexes the records of the layer, or else a
+     *         new index of them.
+     */
+
+    public static VectorLayerIndex forLayer(VectorLayerInfo layer, VectorLayerIndex current) {
+        ArrayList<ShapeFileRecord> recs = layer.getShapefile().getRecords();
+        if(current != null && current.source == recs && current.sourceSize == recs.size()) {
+            return current;
+        }
+        return new VectorLayerIndex(recs, layer.getShapeType());
+    }
+
+    public int size() {
+        return records.length;
+    }
+
+    /**
+     *
+     * @return The simplified lines and polygons of the layer, created when
+     *         first needed.
+     */
+
+    public GeometryPyramid getPyramid() {
+        if(pyramid == null) {
+            pyramid = new GeometryPyramid(size, sourceSize);
+        }
+        return pyramid;
+    }
+
+    /**
+     *
+     * @return The points of the layer in page units, created when first
+     *         needed.
+     */
+
+    public ProjectedGeometry getProjected() {
+        if(projected == null) {
+            projected = new ProjectedGeometry(sourceSize);
+        }
+        return projected;
+    }
+
+    /**
+     * Finds the records to draw within an extent. The returned list is reused
+     * by the next call.
+     *
+     * @param extent: Extent of the view.
+     * @param minSize: Smallest width or height of a line or polygon to draw,
+     *                 in map units.
+     * @return The records whose box intersects extent, in record order.
+     */
+
+    public ArrayList<ShapeFileRecord> getRecords(BoundingBox extent, double minSize) {
+        tree.search(extent.getMinX(), extent.getMinY(), extent.getMaxX(), extent.getMaxY(), hits);
+        visible.clear();
+        for(int i = 0; i < hits.size(); i++) {
+            int r = hits.get(i);
+            if(isPoint || width[r] >= minSize || height[r] >= minSize) {
+                visible.add(records[r]);
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * The returned list is reused by the next call.
+     *
+     * @return The records whose box contains the point (x, y), in record order.
+     */
+
+    public ArrayList<ShapeFileRecord> getRecordsContaining(double x, double y) {
+        tree.search(x, y, x, y, hits);
+        underPoint.clear();
+        for(int i = 0; i < hits.size(); i++) {
+            underPoint.add(records[hits.get(i)]);
+        }
+        return underPoint;
+    }
+
+    /**
+     *
+     * @param box: Selection box.
+     * @return The records with a point, line or area within the box, in
+     *         record order.
+     */
+
+    public ArrayList<ShapeFileRecord> getRecordsIntersecting(BoundingBox box) {
+        double minX = box.getMinX(), minY = box.getMinY(), maxX = box.getMaxX(), maxY = box.getMaxY();
+        tree.search(minX, minY, maxX, maxY, hits);
+        ArrayList<ShapeFileRecord> found = new ArrayList<>();
+        for(int i = 0; i < hits.size(); i++) {
+            ShapeFileRecord record = records[hits.get(i)];
+            if(intersects(record, minX, minY, maxX, maxY)) {
+                found.add(record);
+            }
+        }
+        return found;
+    }
+
+    /**
+     *
+     * @param x: X coordinate of the point.
+     * @param y: Y coordinate of the point.
+     * @param tolerance: Distance from a point or line within which it is hit,
+     *                   in map units.
+     * @return The last drawn record under the point, or null.
+     */
+
+    public ShapeFileRecord getRecordAt(double x, double y, double tolerance) {
+        tree.search(x - tolerance, y - tolerance, x + tolerance, y + tolerance, hits);
+        for(int i = hits.size() - 1; i >= 0; i--) {
+            ShapeFileRecord record = records[hits.get(i)];
+            if(contains(record, x, y, tolerance)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private static boolean intersects(ShapeFileRecord record, double minX, double minY, double maxX, double maxY) {
+        double[][] points = record.getGeometry().getPoints();
+        ShapeType base = record.getShapeType().getBaseType();
+        for(double[] p : points) {
+            if(p[0] >= minX && p[0] <= maxX && p[1] >= minY && p[1] <= maxY) {
+                return true;
+            }
+        }
+        if(base == ShapeType.POINT || base == ShapeType.MULTIPOINT) {
+            return false;
+        }
+        int[] parts = record.getGeometry().getParts();
+        for(int p = 0; p < parts.length; p++) {
+            int end = p < parts.length - 1 ? parts[p + 1] : points.length;
+            for(int k = parts[p] + 1; k < end; k++) {
+                if(crossesBox(points[k - 1], points[k], minX, minY, maxX, maxY)) {
+                    return true;
+                }
+            }
+        }
+        // A box inside a polygon touches none of its edges.
+        return base == ShapeType.POLYGON && isInPolygon(points, parts, minX / 2.0 + maxX / 2.0, minY / 2.0 + maxY / 2.0);
+    }
+
+    private static boolean contains(ShapeFileRecord record, double x, double y, double tolerance) {
+        double[][] points = record.getGeometry().getPoints();
+        ShapeType base = record.getShapeType().getBaseType();
+        double tol2 = tolerance * tolerance;
+        if(base == ShapeType.POINT || base == ShapeType.MULTIPOINT) {
+            for(double[] p : points) {
+                double dx = p[0] - x, dy = p[1] - y;
+                if(dx * dx + dy * dy <= tol2) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int[] parts = record.getGeometry().getParts();
+        if(base == ShapeType.POLYGON && isInPolygon(points, parts, x, y)) {
+            return true;
+        }
+        for(int p = 0; p < parts.length; p++) {
+            int end = p < parts.length - 1 ? parts[p + 1] : points.length;
+            for(int k = parts[p] + 1; k < end; k++) {
+                if(segmentDistance2(points[k - 1], points[k], x, y) <= tol2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Even-odd test over all parts, so holes are outside the polygon.
+     */
+
+    private static boolean isInPolygon(double[][] points, int[] parts, double x, double y) {
+        boolean inside = false;
+        for(int p = 0; p < parts.length; p++) {
+            int start = parts[p];
+            int end = p < parts.length - 1 ? parts[p + 1] : points.length;
+            for(int k = start, j = end - 1; k < end; j = k++) {
+                double[] a = points[k], b = points[j];
+                if((a[1] > y) != (b[1] > y) && x < (b[0] - a[0]) * (y - a[1]) / (b[1] - a[1]) + a[0]) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    private static double segmentDistance2(double[] a, double[] b, double x, double y) {
+        double dx = b[0] - a[0], dy = b[1] - a[1];
+        double len2 = dx * dx + dy * dy;
+        double t = len2 > 0 ? ((x - a[0]) * dx + (y - a[1]) * dy) / len2 : 0;
+        t = Math.max(0, Math.min(1, t));
+        double ex = a[0] + t * dx - x, ey = a[1] + t * dy - y;
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * Liang-Barsky clipping of the segment ab to the box.
+     *
+     * @return True if part of the segment lies within the box.
+     */
+
+    private static boolean crossesBox(double[] a, double[] b, double minX, double minY, double maxX, double maxY) {
+        double dx = b[0] - a[0], dy = b[1] - a[1];
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {a[0] - minX, maxX - a[0], a[1] - minY, maxY - a[1]};
+        double t0 = 0, t1 = 1;
+        for(int i = 0; i < 4; i++) {
+            if(p[i] == 0) {
+                if(q[i] < 0) {
+                    return false;
+                }
+            }
+            else {
+                double t = q[i] / p[i];
+                if(p[i] < 0) {
+                    t0 = Math.max(t0, t);
+                }
+                else {
+                    t1 = Math.min(t1, t);
+                }
+                if(t0 > t1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
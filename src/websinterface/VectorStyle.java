@@ -0,0 +1,95 @@
+package websinterface;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.util.Arrays;
+import whitebox.geospatialfiles.VectorLayerInfo;
+
+/**
+ * VectorStyle Class
+ *
+ * @author radfordd
+ *
+ * VectorStyle holds the strokes and line colour MapRenderer draws a vector
+ * layer with, made once from the symbology of the layer rather than on every
+ * repaint. A VectorStyle is replaced when the line thickness, dashes, line
+ * colour or alpha of its layer change.
+ */
+class VectorStyle {
+    static final BasicStroke NODE_STROKE = new BasicStroke(0.5f);
+    private final float thickness;
+    private final boolean dashed;
+    private final float[] dashArray;
+    private final Color colour;
+    private final int alpha;
+    private final BasicStroke markerStroke;
+    private final BasicStroke solidStroke;
+    private final BasicStroke lineStroke;
+    private final Color lineColour;
+
+    private VectorStyle(VectorLayerInfo layer) {
+        thickness = layer.getLineThickness();
+        dashed = layer.isDashed();
+        dashArray = layer.getDashArray() == null ? null : layer.getDashArray().clone();
+        colour = layer.getLineColour();
+        alpha = layer.getAlpha();
+        markerStroke = new BasicStroke(thickness);
+        solidStroke = new BasicStroke(thickness, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND);
+        lineStroke = dashed ? new BasicStroke(thickness, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 10.0f, dashArray, 0.0f)
+                : solidStroke;
+        lineColour = new Color(colour.getRed(), colour.getGreen(), colour.getBlue(), alpha);
+    }
+
+    /**
+     *
+     * @param layer: Vector layer to draw.
+     * @param current: Style of the layer from an earlier call, or null.
+     * @return current if it still matches the symbology of the layer, or else
+     *         a new style for it.
+     */
+
+    public static VectorStyle forLayer(VectorLayerInfo layer, VectorStyle current) {
+        if(current != null && current.thickness == layer.getLineThickness() && current.dashed == layer.isDashed()
+           && Arrays.equals(current.dashArray, layer.getDashArray()) && current.colour.equals(layer.getLineColour())
+           && current.alpha == layer.getAlpha()) {
+            return current;
+        }
+        return new VectorStyle(layer);
+    }
+
+    /**
+     *
+     * @return Stroke of point markers.
+     */
+
+    public BasicStroke getMarkerStroke() {
+        return markerStroke;
+    }
+
+    /**
+     *
+     * @return Stroke of lines and outlines, dashed if the layer is.
+     */
+
+    public BasicStroke getLineStroke() {
+        return lineStroke;
+    }
+
+    /**
+     *
+     * @return Stroke of lines and outlines, never dashed.
+     */
+
+    public BasicStroke getSolidStroke() {
+        return solidStroke;
+    }
+
+    /**
+     *
+     * @return Line colour of the layer with its alpha.
+     */
+
+    public Color getLineColour() {
+        return lineColour;
+    }
+}
@@ -13,7 +13,6 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.IOException;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -132,6 +131,8 @@ public class WEBsInterface extends JFrame implements Runnable {
     public static JLabel swatLocation;
     public static JLabel progressLbl; // PRIVATE?
     public static JButton scenButton;
+    private static JLabel scenButtonTop;
+    private static JLabel scenButtonBottom;
     public static JButton spatLocBtn;
     public static JButton swatLocBtn;
     public static JButton btnDamSc;
@@ -149,6 +150,7 @@ public class WEBsInterface extends JFrame implements Runnable {
     private static final ArrayList<MapInfo> openMaps = new ArrayList<>();
     private static final int activeMap = 0;
     private static final MapRenderer mapViewArea = new MapRenderer();
+    private static ScenarioBuildJob baseScenarioJob;
     
     // Component Creation Methods
     
@@ -272,32 +274,6 @@ public class WEBsInterface extends JFrame implements Runnable {
         return g;
     }
     
-    /**
-     * 
-     * Calculating Progress Bar Value Method
-     * 
-     * @param t: The boolean value used to determine the progress for historic
-     *           or conventional progress counter.
-     * @param p: The current value of the progress bar.
-     * @return The value to be added to the progress bar total.
-     */        
-    
-    public static double calculateProgressBaseScenario(String txt, boolean type, double progress) {
-        progressLbl.setText(txt);
-        progressLbl.revalidate();
-        progressLbl.repaint();
-        if(type) {
-            progress += 5.8823529411;
-        }
-        else {
-            progress += 16.666666667;
-        }
-        websProgressBar.setValue((int) Math.round(progress));
-        websProgressBar.revalidate();
-        websProgressBar.repaint();
-        return progress;
-    }
-    
     // UI Builder Methods
     
     private static void buildTopPanel() {
@@ -516,8 +492,10 @@ public class WEBsInterface extends JFrame implements Runnable {
         
         scenButton = createScenarioPanelButton(new JButton(), "Builds the Base Historical and Conventional Scenarios.", new baseScenarioListener(), null);
         scenButton.setLayout(new BorderLayout());
-        scenButton.add(BorderLayout.CENTER, new JLabel("Create Base", SwingConstants.CENTER));
-        scenButton.add(BorderLayout.SOUTH, new JLabel(" Scenarios ", SwingConstants.CENTER));
+        scenButtonTop = new JLabel("Create Base", SwingConstants.CENTER);
+        scenButtonBottom = new JLabel(" Scenarios ", SwingConstants.CENTER);
+        scenButton.add(BorderLayout.CENTER, scenButtonTop);
+        scenButton.add(BorderLayout.SOUTH, scenButtonBottom);
         
         gbc = setGbc(new Insets(16, 32, 16, 16), GridBagConstraints.NONE, GridBagConstraints.NORTHWEST, 0, 3, 0, 0, 0.0, 0.25);
         scenButton.setContentAreaFilled(true);
@@ -696,29 +674,78 @@ public class WEBsInterface extends JFrame implements Runnable {
         }
     }
     
+    /**
+     * 
+     * Base Scenario Button Listener
+     * 
+     * Starts the Historical and Conventional base scenario builds as a
+     * background ScenarioBuildJob. While the job is running the button
+     * cancels it instead, and is disabled until the builds have stopped.
+     */
+    
     private static class baseScenarioListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent ae) {
-            try {
-                websProgressBar.setStringPainted(true);
-                frame.getGlassPane().setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-                frame.getGlassPane().setVisible(true);
-                ScenarioBuilder scH = new ScenarioBuilder("historic", true, true);
-                ScenarioBuilder scC = new ScenarioBuilder("conventional", true, false);
-                websProgressBar.setStringPainted(false);
-                frame.getGlassPane().setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-                frame.getGlassPane().setVisible(true);
-                progressLbl.setText("Completed");
-                websProgressBar.setValue(websProgressBar.getMinimum());
-                frame.remove(projPanel);
-                frame.add(scenPanel);
-                frame.validate();
-            } catch (ClassNotFoundException | SQLException | IOException e) {
-                Logger.getLogger(WEBsInterface.class.getName()).log(Level.SEVERE, null, e);
+            if(baseScenarioJob != null) {
+                progressLbl.setText("Cancelling...");
+                scenButton.setEnabled(false);
+                baseScenarioJob.abort();
+                return;
             }
+            websProgressBar.setStringPainted(true);
+            frame.getGlassPane().setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            frame.getGlassPane().setVisible(true);
+            setScenarioButtonText("Cancel", " Build ", "Cancels the Base Scenario build.");
+            ScenarioBuilder[] builders = {new ScenarioBuilder("historic", true, true), new ScenarioBuilder("conventional", true, false)};
+            baseScenarioJob = new ScenarioBuildJob(builders, 2, new baseScenarioJobListener());
+            baseScenarioJob.execute();
         }
     }
     
+    private static class baseScenarioJobListener implements ScenarioBuildJob.Listener {
+        @Override
+        public void buildProgress(String txt, double progress) {
+            progressLbl.setText(txt);
+            websProgressBar.setValue((int) Math.round(progress));
+        }
+
+        @Override
+        public void buildCompleted() {
+            finishBaseScenarioJob("Completed");
+            frame.remove(projPanel);
+            frame.add(scenPanel);
+            frame.validate();
+        }
+
+        @Override
+        public void buildFailed(Throwable t) {
+            Logger.getLogger(WEBsInterface.class.getName()).log(Level.SEVERE, null, t);
+            finishBaseScenarioJob("Base Scenario build failed");
+        }
+
+        @Override
+        public void buildCancelled() {
+            finishBaseScenarioJob("Cancelled");
+        }
+    }
+    
+    private static void finishBaseScenarioJob(String txt) {
+        baseScenarioJob = null;
+        websProgressBar.setStringPainted(false);
+        frame.getGlassPane().setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+        frame.getGlassPane().setVisible(true);
+        progressLbl.setText(txt);
+        websProgressBar.setValue(websProgressBar.getMinimum());
+        setScenarioButtonText("Create Base", " Scenarios ", "Builds the Base Historical and Conventional Scenarios.");
+        scenButton.setEnabled(true);
+    }
+    
+    private static void setScenarioButtonText(String top, String bottom, String tip) {
+        scenButtonTop.setText(top);
+        scenButtonBottom.setText(bottom);
+        scenButton.setToolTipText(tip);
+    }
+    
     private static class buttonMouseListener implements MouseListener {
         @Override
         public void mouseClicked(MouseEvent me) {
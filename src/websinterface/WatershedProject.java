@@ -0,0 +1,260 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * WatershedProject Class
+ *
+ * @author radfordd
+ *
+ * WatershedProject holds the locations a scenario build of one watershed
+ * reads from and writes to, taken from its .wbprj project file: the Spatial
+ * folder holding the DBF tables, the Spatial.db3 file, the simulation horizon,
+ * and the folder the scenario .db3 files are written to.
+ *
+ * Project files hold the absolute paths of the computer they were made on,
+ * such as C:\Users\...\STC\data\Spatial\. When the SpatialFolder or
+ * SpatialDatabase of the file does not exist, the same path is tried relative
+ * to the folder of the project file, in place of the Path of the project, and
+ * then the Data/Spatial folder next to the project file. Folder and file names
+ * are matched without regard to case, so a Windows project copied to another
+ * system still resolves.
+ */
+class WatershedProject {
+    static final File STC_PROJECT = new File("STC/STC.wbprj");
+    private static final Pattern NAME = stringEntry("Watersehd");
+    private static final Pattern PATH = stringEntry("Path");
+    private static final Pattern SPATIAL_FOLDER = stringEntry("SpatialFolder");
+    private static final Pattern SPATIAL_DATABASE = stringEntry("SpatialDatabase");
+    private final File wbprj;
+    private final String name;
+    private final File spatialFolder;
+    private final File spatialDatabase;
+    private final SimulationHorizon horizon;
+    private final File outputFolder;
+
+    private WatershedProject(File wbprj, String name, File spatialFolder, File spatialDatabase, SimulationHorizon horizon, File outputFolder) {
+        this.wbprj = wbprj;
+        this.name = name;
+        this.spatialFolder = spatialFolder;
+        this.spatialDatabase = spatialDatabase;
+        this.horizon = horizon;
+        this.outputFolder = outputFolder;
+    }
+
+    /**
+     * Reads a project file. The scenario .db3 files of the project are
+     * written to the working directory.
+     *
+     * @param wbprj: Project (.wbprj) file.
+     * @return The WatershedProject of the file. A file that cannot be read
+     *         gives the Data/Spatial folder next to it and the DEFAULT horizon.
+     */
+
+    public static WatershedProject forProject(File wbprj) {
+        wbprj = wbprj.getAbsoluteFile();
+        File dir = wbprj.getParentFile();
+        String txt = "";
+        try {
+            txt = new String(Files.readAllBytes(wbprj.toPath()), StandardCharsets.UTF_8);
+        } catch(IOException e) {
+            Logger.getLogger(WatershedProject.class.getName()).log(Level.WARNING, null, e);
+        }
+        String name = find(NAME, txt);
+        if(name == null || name.trim().isEmpty()) {
+            name = wbprj.getName().replaceFirst("(?i)\\.wbprj$", "");
+        }
+        String path = find(PATH, txt);
+        // An empty Path still marks the entries as paths of the project file.
+        path = path == null ? "" : path;
+        File folder = resolve(dir, path, find(SPATIAL_FOLDER, txt), true);
+        if(folder == null) {
+            folder = resolve(dir, null, "Data/Spatial", true);
+        }
+        if(folder == null) {
+            folder = new File(dir, "Data" + File.separator + "Spatial");
+        }
+        File db = resolve(dir, path, find(SPATIAL_DATABASE, txt), false);
+        if(db == null) {
+            db = resolve(folder, null, "spatial.db3", false);
+        }
+        if(db == null) {
+            db = new File(folder, "spatial.db3");
+        }
+        return new WatershedProject(wbprj, name.trim(), folder, db, SimulationHorizon.forProject(wbprj),
+                                    new File(System.getProperty("user.dir")));
+    }
+
+    /**
+     *
+     * @param folder: Folder the scenario .db3 files are written to.
+     * @return A copy of this WatershedProject writing to folder.
+     */
+
+    public WatershedProject withOutputFolder(File folder) {
+        return new WatershedProject(wbprj, name, spatialFolder, spatialDatabase, horizon, folder.getAbsoluteFile());
+    }
+
+    public File getProjectFile() {
+        return wbprj;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public File getSpatialFolder() {
+        return spatialFolder;
+    }
+
+    public File getSpatialDatabase() {
+        return spatialDatabase;
+    }
+
+    public SimulationHorizon getHorizon() {
+        return horizon;
+    }
+
+    public File getOutputFolder() {
+        return outputFolder;
+    }
+
+    /**
+     *
+     * @param fileName: Name of a table in the Spatial folder, such as small_dam.dbf.
+     * @return The table file, matched without regard to case if it exists.
+     */
+
+    public File getSpatialFile(String fileName) {
+        File f = resolve(spatialFolder, null, fileName, false);
+        return f != null ? f : new File(spatialFolder, fileName);
+    }
+
+    /**
+     * Finds an existing file or folder, first at path as given, then
+     * relative to dir.
+     *
+     * @param dir: Folder of the project file.
+     * @param projectPath: Path entry of the project file, the folder the
+     *                     project was made in, or null.
+     * @param path: Path to resolve, or null.
+     * @param folder: True to find a folder, false to find a file.
+     * @return The existing file or folder, or null.
+     */
+
+    private static File resolve(File dir, String projectPath, String path, boolean folder) {
+        if(path == null || path.trim().isEmpty()) {
+            return null;
+        }
+        File f = new File(path);
+        if(f.isAbsolute() && (folder ? f.isDirectory() : f.isFile())) {
+            return f;
+        }
+        List<String> parts = split(path);
+        if(projectPath != null) {
+            List<String> base = split(projectPath);
+            if(parts.size() > base.size() && startsWithIgnoreCase(parts, base)) {
+                parts = parts.subList(base.size(), parts.size());
+            }
+        }
+        // A path of the project file is also tried without its leading
+        // folders, so that C:\Users\...\STC\data\Spatial still finds
+        // data/Spatial next to the project file.
+        int tries = projectPath != null ? parts.size() : 1;
+        for(int start = 0; start < tries; start++) {
+            File r = dir;
+            for(int i = start; r != null && i < parts.size(); i++) {
+                r = child(r, parts.get(i));
+            }
+            if(r != null && (folder ? r.isDirectory() : r.isFile())) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    private static File child(File dir, String name) {
+        File f = new File(dir, name);
+        if(f.exists()) {
+            return f;
+        }
+        String[] names = dir.list();
+        if(names != null) {
+            for(String n : names) {
+                if(n.equalsIgnoreCase(name)) {
+                    return new File(dir, n);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<String> split(String path) {
+        List<String> parts = new ArrayList<>();
+        for(String p : path.split("[\\\\/]+")) {
+            if(!p.isEmpty() && !p.equals(".")) {
+                parts.add(p);
+            }
+        }
+        return parts;
+    }
+
+    private static boolean startsWithIgnoreCase(List<String> parts, List<String> base) {
+        for(int i = 0; i < base.size(); i++) {
+            if(!parts.get(i).equalsIgnoreCase(base.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Pattern stringEntry(String key) {
+        return Pattern.compile("\"" + key + "\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    }
+
+    /**
+     *
+     * @return The unescaped value of the first entry matched by p, or null.
+     */
+
+    private static String find(Pattern p, String txt) {
+        Matcher m = p.matcher(txt);
+        if(!m.find()) {
+            return null;
+        }
+        String s = m.group(1);
+        StringBuilder sb = new StringBuilder(s.length());
+        for(int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if(ch == '\\' && i + 1 < s.length()) {
+                ch = s.charAt(++i);
+                if(ch == 'u' && i + 4 < s.length()) {
+                    ch = (char) Integer.parseInt(s.substring(i + 1, i + 5), 16);
+                    i += 4;
+                }
+                else if(ch == 'n') {
+                    ch = '\n';
+                }
+                else if(ch == 't') {
+                    ch = '\t';
+                }
+            }
+            sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + wbprj + ")";
+    }
+}
@@ -0,0 +1,88 @@
+package websinterface;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * WriteProfile Enum
+ *
+ * @author radfordd
+ *
+ * WriteProfile sets how a ScenarioBuilder writes its output .db3 file.
+ *
+ * SAFE keeps the SQLite defaults: a rollback journal and a full fsync on every
+ * commit. The output indexes are created together with the tables.
+ *
+ * BULK_LOAD is for regenerating scenarios in bulk, where a failed build is
+ * simply run again. The rollback journal is kept in memory and fsyncs are
+ * turned off, larger pages and a larger cache are used, the database is locked
+ * for the length of the build, and the output indexes are only created once
+ * all rows have been written, followed by ANALYZE. A cancelled or failed table
+ * is still rolled back, but a bulk build stopped by a crash or a power loss
+ * can leave the output file unusable, and it must then be rebuilt.
+ *
+ * The profile of a build is recorded in the build_metadata table of its output
+ * database under the key write_profile.
+ */
+enum WriteProfile {
+    SAFE(false, "PRAGMA journal_mode = DELETE;", "PRAGMA synchronous = FULL;"),
+    BULK_LOAD(true, "PRAGMA page_size = 8192;", "PRAGMA journal_mode = MEMORY;", "PRAGMA synchronous = OFF;",
+              "PRAGMA cache_size = -65536;", "PRAGMA temp_store = MEMORY;", "PRAGMA locking_mode = EXCLUSIVE;");
+
+    static final String METADATA_TABLE = "build_metadata";
+    private final boolean deferIndexes;
+    private final String[] pragmas;
+
+    private WriteProfile(boolean deferIndexes, String... pragmas) {
+        this.deferIndexes = deferIndexes;
+        this.pragmas = pragmas;
+    }
+
+    /**
+     *
+     * @return True if the output indexes are created after the data has been
+     *         written, followed by ANALYZE.
+     */
+
+    public boolean isDeferIndexes() {
+        return deferIndexes;
+    }
+
+    /**
+     * Applies the pragmas of the profile. Must be called while the connection
+     * is still in auto-commit mode, before anything is written, as the journal
+     * mode and page size cannot be changed inside a transaction.
+     *
+     * @param c: Connection to the Output SQL Database.
+     * @throws SQLException: Error setting a pragma.
+     */
+
+    public void apply(Connection c) throws SQLException {
+        try(Statement stmt = c.createStatement()) {
+            for(String p : pragmas) {
+                stmt.execute(p);
+            }
+        }
+    }
+
+    /**
+     * Records the profile in the build_metadata table. The change is part of
+     * the current transaction of the connection.
+     *
+     * @param c: Connection to the Output SQL Database.
+     * @throws SQLException: Error writing the build_metadata table.
+     */
+
+    public void record(Connection c) throws SQLException {
+        try(Statement stmt = c.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + METADATA_TABLE + "(key text PRIMARY KEY, value text);");
+        }
+        try(PreparedStatement ps = c.prepareStatement("INSERT OR REPLACE INTO " + METADATA_TABLE + " VALUES (?, ?);")) {
+            ps.setString(1, "write_profile");
+            ps.setString(2, name());
+            ps.executeUpdate();
+        }
+    }
+}
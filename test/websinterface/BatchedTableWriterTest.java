@@ -0,0 +1,123 @@
+package websinterface;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * BatchedTableWriterTest Class
+ *
+ * @author radfordd
+ *
+ * Writes rows to an in-memory output table and checks the rows committed, the
+ * counts told to the RowListener and the rollback of a cancelled table or a
+ * table whose writing stopped with an exception.
+ */
+public class BatchedTableWriterTest {
+    private Connection c;
+    private long reported;
+    private volatile boolean cancelled;
+
+    @Before
+    public void setUp() throws ClassNotFoundException, SQLException {
+        Class.forName("org.sqlite.JDBC");
+        c = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try(Statement stmt = c.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE out(id int, value real);");
+        }
+        c.setAutoCommit(false);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        c.close();
+    }
+
+    @Test
+    public void testFinalCountIsReported() throws SQLException {
+        try(BatchedTableWriter w = openWriter()) {
+            write(w, 2500);
+            w.commit();
+        }
+        assertEquals(2500, reported);
+        assertEquals(2500, countRows());
+    }
+
+    @Test
+    public void testCancelledTableIsRolledBack() throws SQLException {
+        try(BatchedTableWriter w = openWriter()) {
+            write(w, 1500);
+            cancelled = true;
+            write(w, 1000);
+            fail("Writing continued after the build was cancelled");
+        } catch(CancellationException e) {
+            // expected
+        }
+        assertEquals(0, countRows());
+    }
+
+    @Test
+    public void testCancelAfterLastBatchIsRolledBack() throws SQLException {
+        try(BatchedTableWriter w = openWriter()) {
+            write(w, 2500);
+            cancelled = true;
+            w.commit();
+        } catch(CancellationException e) {
+            assertEquals(0, countRows());
+            return;
+        }
+        fail("The table was committed after the build was cancelled");
+    }
+
+    @Test
+    public void testUncommittedTableIsRolledBack() throws SQLException {
+        try(BatchedTableWriter w = openWriter()) {
+            write(w, 2500);
+            throw new SQLException("Reading the input failed");
+        } catch(SQLException e) {
+            // expected
+        }
+        assertEquals(0, countRows());
+    }
+
+    private BatchedTableWriter openWriter() throws SQLException {
+        BatchedTableWriter w = new BatchedTableWriter(c, "out", new String[]{"id", "value"}, 1000);
+        w.setRowListener(new BatchedTableWriter.RowListener() {
+            @Override
+            public void rowsWritten(String tbl, long rows) {
+                reported = rows;
+            }
+        });
+        w.setCancelCheck(new BatchedTableWriter.CancelCheck() {
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+        });
+        return w;
+    }
+
+    private static void write(BatchedTableWriter w, int n) throws SQLException {
+        for(int i = 0; i < n; i++) {
+            w.setInt(1, i);
+            w.setDouble(2, i / 2.0);
+            w.addRow();
+        }
+    }
+
+    private int countRows() throws SQLException {
+        try(Statement stmt = c.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT count(*) FROM out;");
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.fail;
+
+/**
+ * BmpCostEngineTest Class
+ *
+ * @author radfordd
+ *
+ * Checks that the column costs of BmpCostEngine are identical, bit for bit, to
+ * the original scalar formulas of ScenarioBuilder, kept below as they were
+ * before the costs were moved to BmpCostEngine. The records are the Existing
+ * records of the STC DBF tables, followed by edge values: no cattle, a
+ * Pond_Yrs of 1 and a LifeTime of 1. Each set of records is also repeated past
+ * the split threshold, so the fork/join path is checked as well.
+ */
+public class BmpCostEngineTest {
+    private static final String STC = "STC/Data/Spatial/";
+    private double[][] dams;
+    private double[][] ponds;
+
+    @Before
+    public void setUp() throws IOException {
+        ColumnTable d = new DbfReader(new File(STC + "small_dam.dbf")).readTable("Existing",
+                new String[]{"Embankment", "LifeTime"});
+        dams = columns(d, new double[][]{
+            {0.0, 1.0},
+            {1500.0, 1.0},
+            {10000.0, 50.0},
+            // The cube of this Embankment is rounded differently by m * m * m.
+            {7443.342811681263, 25.0}
+        });
+        ColumnTable p = new DbfReader(new File(STC + "cattle_yard.dbf")).readTable("Existing",
+                new String[]{"Cattles", "ClayLiner", "PlasticLn", "WireFence", "Distance", "Trenching", "Pond_Yrs"});
+        ponds = columns(p, new double[][]{
+            {0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 1.0},
+            {0.0, 1.0, 1.0, 1.0, 50.0, 1.0, 1.0},
+            {120.0, 1.0, 0.0, 1.0, 35.5, 0.5, 1.0},
+            {250.0, 0.0, 1.0, 0.0, 100.0, 0.0, 50.0}
+        });
+    }
+
+    @Test
+    public void testSmallDamCostsMatchScalarFormula() {
+        checkSmallDams(dams, false);
+    }
+
+    @Test
+    public void testSmallDamCostsMatchScalarFormulaInParallel() {
+        checkSmallDams(repeat(dams, 2 * BmpCostEngine.SPLIT_THRESHOLD + 1), true);
+    }
+
+    @Test
+    public void testPondCostsMatchScalarFormulas() {
+        checkPonds(ponds, false);
+    }
+
+    @Test
+    public void testPondCostsMatchScalarFormulasInParallel() {
+        checkPonds(repeat(ponds, 2 * BmpCostEngine.SPLIT_THRESHOLD + 1), true);
+    }
+
+    private static void checkSmallDams(double[][] d, boolean parallel) {
+        double[] cost = BmpCostEngine.smallDamCosts(d[0], d[1], parallel);
+        for(int i = 0; i < cost.length; i++) {
+            assertIdentical("small dam cost", i, calculateSmallDamCost(d[0][i], d[1][i]), cost[i]);
+        }
+    }
+
+    private static void checkPonds(double[][] p, boolean parallel) {
+        int n = p[0].length;
+        double[] base = new double[n], annual = new double[n], maintenance = new double[n], total = new double[n];
+        BmpCostEngine.pondCosts(p[0], p[1], p[2], p[3], p[4], p[5], p[6], base, annual, maintenance, total, n, parallel);
+        for(int i = 0; i < n; i++) {
+            double b = calculatePondBaseCost(p[0][i], p[1][i], p[2][i], p[3][i], p[4][i], p[5][i]);
+            double a = b / p[6][i];
+            double m = calculatePondMaintenanceCost(p[0][i], p[3][i]);
+            assertIdentical("pond base cost", i, b, base[i]);
+            assertIdentical("pond annual cost", i, a, annual[i]);
+            assertIdentical("pond maintenance cost", i, m, maintenance[i]);
+            assertIdentical("pond total cost", i, a + m, total[i]);
+        }
+    }
+
+    private static void assertIdentical(String what, int i, double expected, double actual) {
+        if(!(expected == actual)) {
+            fail(what + " of record " + i + ": expected " + expected + " got " + actual);
+        }
+    }
+
+    /**
+     *
+     * @param t: ColumnTable read from a DBF table.
+     * @param edges: Records appended after those of the table, one Array of
+     *               column values for each record.
+     * @return One Array for each column, holding the records of the table
+     *         followed by the edge records.
+     */
+
+    private static double[][] columns(ColumnTable t, double[][] edges) {
+        int n = t.getRowCount();
+        double[][] cols = new double[t.getColumnCount()][n + edges.length];
+        for(int j = 0; j < cols.length; j++) {
+            System.arraycopy(t.toDoubleArray(j), 0, cols[j], 0, n);
+            for(int i = 0; i < edges.length; i++) {
+                cols[j][n + i] = edges[i][j];
+            }
+        }
+        return cols;
+    }
+
+    private static double[][] repeat(double[][] cols, int n) {
+        double[][] out = new double[cols.length][n];
+        for(int j = 0; j < cols.length; j++) {
+            for(int i = 0; i < n; i++) {
+                out[j][i] = cols[j][i % cols[j].length];
+            }
+        }
+        return out;
+    }
+
+    /**
+     *
+     * @param m: Embankment Value.
+     * @param l: LifeTime Value.
+     * @return Calculated Cost of Small Dam.
+     */
+
+    private static double calculateSmallDamCost(double m, double l) {
+        return (4.87e-7 * Math.pow(m, 3.0) - 4.24e-3 * Math.pow(m, 2.0) + 1.28e1 * m + 6.71e3) / l;
+    }
+
+    /**
+     *
+     * @param catl: Cattle value.
+     * @param clay: Clay_Liner value.
+     * @param trch: Trenching value.
+     * @param dist: Distance value.
+     * @param wire: Wire_Fence value.
+     * @param plst: Plastic_Liner value.
+     * @return Calculated Base Cost of Holding Pond.
+     */
+
+    private static double calculatePondBaseCost(double catl, double clay, double plst, double wire, double dist, double trch) {
+        double sqrtC = Math.sqrt(catl);
+        double eqn1 = 2.232 * catl + 11.338 * sqrtC;
+        double eqn2 = 3.72 * catl + trch * 7.94 * sqrtC + 0.844 * dist + clay * eqn1;
+
+        double eqn3 = (0.5 * 9.5 + 7.47) * eqn1;
+
+        double max = 1.38e-10 * Math.pow(eqn2,2.0) - 5.027e-5 * eqn2 + 6.736 + clay * eqn3
+        + plst / 0.7 * eqn3 + wire * (189.0 + Math.sqrt(820.0 * catl)) + 10000.0;
+
+        max *= 1.1483;
+
+        eqn1 = 1.512 * catl + 9.332 * sqrtC;
+        eqn2 = 2.52 * catl + trch * 6.54 * sqrtC + 0.844 * dist + clay * eqn1;
+        eqn3 = (0.5 * 9.5 + 7.47) * eqn1;
+
+        double min = 1.38e-10 * Math.pow(eqn2, 2.0) - 5.027e-5 * eqn2 + 6.736 + clay * eqn3
+        + plst / 0.7 * eqn3 + wire * (189.0 + Math.sqrt(556.0 * catl)) + 10000.0;
+
+        min *= 1.1483;
+
+        return min / 2.0 + max / 2.0;
+    }
+
+    /**
+     *
+     * @param catl: Cattle value.
+     * @param wire: Wire_Fence value.
+     * @return Calculated Maintenance Cost of Holding Pond.
+     */
+
+    private static double calculatePondMaintenanceCost(double catl, double wire) {
+        double eqn = 0.03048 * Math.pow(Math.sqrt(1.68 * catl) - 6,2.0);
+
+        double min = 1.38e-10 * Math.pow(eqn, 2.0) - 5.027e-5 * eqn + 6.737
+        + wire * (24.48 + 3.05 * Math.sqrt(catl)) + 1.25 * catl;
+
+        eqn = 0.03048 * Math.pow(Math.sqrt(2.48 * catl) - 6, 2.0);
+
+        double max = 1.38e-10 * Math.pow(eqn, 2.0) - 5.027e-5 * eqn + 6.737
+        + wire * (24.48 + 3.71 * Math.sqrt(catl)) + 1.85 * catl;
+
+        return min / 2.0 + max / 2.0;
+    }
+}
@@ -0,0 +1,94 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ParameterSweepTest Class
+ *
+ * @author radfordd
+ *
+ * Builds the Historical scenario of a SyntheticWatershed and checks that a
+ * sweep with every factor at 1 gives the yearly costs of its small_dams,
+ * holding_ponds and grazing economic tables.
+ */
+public class ParameterSweepTest {
+    private File folder;
+    private WatershedProject project;
+    private ColumnTable results;
+
+    @Before
+    public void setUp() throws ClassNotFoundException, IOException, SQLException {
+        folder = Files.createTempDirectory("sweep").toFile();
+        File spatial = new File(folder, "Spatial");
+        SyntheticWatershed ws = new SyntheticWatershed(1, SyntheticWatershed.BENCH_SEED, SimulationHorizon.DEFAULT);
+        ws.writeSpatialDatabase(new File(spatial, "spatial.db3"));
+        ws.writeDbfTables(spatial);
+        ws.writeProject(new File(folder, "sweep.wbprj"), spatial);
+        project = WatershedProject.forProject(new File(folder, "sweep.wbprj")).withOutputFolder(folder);
+        new ScenarioBuilder("historic", false, true, project).build();
+        ParameterSweep sweep = ParameterSweep.load(project.getSpatialFolder(), project.getSpatialDatabase(), project.getHorizon());
+        results = sweep.evaluate(new double[]{1.0}, new double[]{1.0}, new double[]{1.0});
+    }
+
+    @After
+    public void tearDown() {
+        delete(folder);
+    }
+
+    @Test
+    public void testSmallDamsCostIsBuiltCost() throws ClassNotFoundException, SQLException {
+        assertEquals(sumBuiltCost("small_dams_economic"), results.getDouble(0, 3), 0.0);
+    }
+
+    @Test
+    public void testHoldingPondsCostIsBuiltCost() throws ClassNotFoundException, SQLException {
+        assertEquals(sumBuiltCost("holding_ponds_economic"), results.getDouble(0, 4), 0.0);
+    }
+
+    @Test
+    public void testGrazingCostIsBuiltCost() throws ClassNotFoundException, SQLException {
+        assertEquals(sumBuiltCost("grazing_economic"), results.getDouble(0, 5), 0.0);
+    }
+
+    /**
+     *
+     * @param tbl: Economic table of the built scenario.
+     * @return The sum of the costs of the first year, added in the order of
+     *         the BMPs as the sweep adds them.
+     */
+
+    private double sumBuiltCost(String tbl) throws ClassNotFoundException, SQLException {
+        Class.forName("org.sqlite.JDBC");
+        try(Connection c = DriverManager.getConnection("jdbc:sqlite:" + new File(folder, "historic.db3").getAbsolutePath());
+            Statement stmt = c.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT * FROM " + tbl + " WHERE year = "
+                                             + project.getHorizon().getStartYear() + " ORDER BY rowid;");
+            double sum = 0.0;
+            while(rs.next()) {
+                sum += rs.getDouble(3);
+            }
+            return sum;
+        }
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                delete(child);
+            }
+        }
+        f.delete();
+    }
+}
@@ -0,0 +1,88 @@
+package websinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * SpatialIndexPreparerTest Class
+ *
+ * @author radfordd
+ *
+ * Prepares a fresh Spatial.db3 file holding some of the lookup tables, one of
+ * them already indexed by a UNIQUE constraint, and checks the indexes created.
+ */
+public class SpatialIndexPreparerTest {
+    private File spatial;
+    private Connection c;
+
+    @Before
+    public void setUp() throws ClassNotFoundException, IOException, SQLException {
+        Class.forName("org.sqlite.JDBC");
+        spatial = File.createTempFile("spatial", ".db3");
+        c = DriverManager.getConnection("jdbc:sqlite:" + spatial.getAbsolutePath());
+        try(Statement stmt = c.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE yield_historic(field int, year int, net_return real);");
+            stmt.executeUpdate("CREATE TABLE field_farm(farm int, field int, percent real);");
+            stmt.executeUpdate("CREATE TABLE subbasin_grazing(grazing int, subbasin int, UNIQUE(subbasin, grazing));");
+        }
+        c.setAutoCommit(false);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        c.close();
+        spatial.delete();
+    }
+
+    @Test
+    public void testPrepareCreatesMissingIndexes() throws SQLException {
+        // subbasin_grazing(subbasin) is led by the UNIQUE index; the other
+        // lookup tables are not in the file.
+        assertEquals(3, SpatialIndexPreparer.prepare(c));
+        assertEquals(4, countIndexes());
+    }
+
+    @Test
+    public void testPreparedFileIsNotPreparedAgain() throws SQLException {
+        SpatialIndexPreparer.prepare(c);
+        assertEquals(0, SpatialIndexPreparer.prepare(c));
+        assertEquals(4, countIndexes());
+    }
+
+    @Test
+    public void testChangedSchemaIsPreparedAgain() throws SQLException {
+        SpatialIndexPreparer.prepare(c);
+        try(Statement stmt = c.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE grazing_area(id int, area real);");
+        }
+        c.commit();
+        assertEquals(1, SpatialIndexPreparer.prepare(c));
+        assertEquals(5, countIndexes());
+    }
+
+    /**
+     *
+     * @return The number of indexes on the lookup tables, leaving out the
+     *         index of the webs_prepare table.
+     */
+
+    private int countIndexes() throws SQLException {
+        try(Statement stmt = c.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT count(*) FROM sqlite_master WHERE type = 'index' AND tbl_name <> '"
+                                             + SpatialIndexPreparer.STATE_TABLE + "';");
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            c.rollback();
+        }
+    }
+}